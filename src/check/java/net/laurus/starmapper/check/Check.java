@@ -0,0 +1,11 @@
+package net.laurus.starmapper.check;
+
+/**
+ * One brute-force comparison run by {@link Checks}. Throws on the first
+ * mismatch, with enough detail in the message to reproduce it.
+ */
+interface Check {
+
+    void run() throws Exception;
+
+}
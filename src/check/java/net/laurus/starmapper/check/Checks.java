@@ -0,0 +1,66 @@
+package net.laurus.starmapper.check;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the brute-force checks: each compares an optimised structure against
+ * the obvious quadratic answer on generated catalogs. {@code mvn -Pcheck
+ * verify} runs them all; name some as arguments (e.g. {@code -Dcheck.args=route})
+ * to run only those. Exits non-zero if any check fails.
+ */
+public final class Checks {
+
+    private static final Map<String, Check> CHECKS = new LinkedHashMap<>();
+
+    static {
+        CHECKS.put("kdtree", new KDTreeCheck());
+        CHECKS.put("route", new RouteCheck());
+        CHECKS.put("cluster", new ClusterCheck());
+        CHECKS.put("join", new JoinCheck());
+    }
+
+    private Checks() {
+    }
+
+    public static void main(String[] args) {
+        List<String> names = args.length > 0 ? List.of(args) : List.copyOf(CHECKS.keySet());
+        int failed = 0;
+
+        for (String name : names) {
+            Check check = CHECKS.get(name);
+            if (check == null) {
+                System.err.println("Unknown check: " + name + "; known: " + CHECKS.keySet());
+                failed++;
+                continue;
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                check.run();
+                System.out.printf("%-12s ok (%.1f s)%n", name, (System.nanoTime() - start) / 1e9);
+            }
+            catch (Throwable e) {
+                System.out.printf("%-12s FAILED%n", name);
+                e.printStackTrace(System.out);
+                failed++;
+            }
+
+        }
+
+        if (failed > 0) {
+            System.out.println(failed + " check(s) failed");
+            System.exit(1);
+        }
+
+    }
+
+    /** Fail the running check with {@code message} unless {@code ok}. */
+    static void require(boolean ok, String message, Object... args) {
+        if (!ok)
+            throw new AssertionError(String.format(message, args));
+    }
+
+}
@@ -0,0 +1,222 @@
+package net.laurus.starmapper.check;
+
+import static net.laurus.starmapper.check.Checks.require;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import net.laurus.starmapper.analysis.ClusterResult;
+import net.laurus.starmapper.analysis.ConcurrentUnionFind;
+import net.laurus.starmapper.analysis.Dbscan;
+import net.laurus.starmapper.model.NeighbourGraph;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * {@link Dbscan}, over a grid and over a cached graph, against textbook
+ * DBSCAN on the full pairwise neighbourhoods: labels must match exactly,
+ * including which cluster a border star joins. {@link ConcurrentUnionFind}
+ * is also checked on its own against a sequential union-find, with unions
+ * racing from every thread.
+ */
+class ClusterCheck implements Check {
+
+    private static final int STARS = 3000;
+
+    private static final double[] EPSILONS = { 15, 40 };
+
+    private static final int[] MIN_POINTS = { 1, 3, 8 };
+
+    private static final int UNION_SIZE = 200_000;
+
+    @Override
+    public void run() throws Exception {
+        Path graphDir = Files.createTempDirectory("cluster-check");
+
+        for (SpatialDistribution d : SpatialDistribution.values()) {
+            StarCatalog catalog = new StarCatalog(CatalogGenerator.of(STARS, 11, d).stars());
+            StarColumns c = catalog.getColumns();
+
+            for (double eps : EPSILONS) {
+                int[][] near = neighbourhoods(c, eps);
+                NeighbourGraph graph = NeighbourGraph.loadOrBuild(catalog, eps, graphDir);
+
+                for (int minPoints : MIN_POINTS) {
+                    int[] expected = dbscan(near, minPoints);
+                    String where = String.format("%s eps %.0f min %d", d, eps, minPoints);
+                    compare(where + " (grid)", Dbscan.run(catalog, eps, minPoints), expected);
+                    compare(where + " (graph)", Dbscan.run(graph, minPoints), expected);
+                }
+
+            }
+
+        }
+
+        for (int seed = 0; seed < 5; seed++)
+            checkUnionFind(new Random(seed));
+    }
+
+    private static void compare(String where, ClusterResult result, int[] expected) {
+        int[] labels = result.getLabels();
+
+        for (int i = 0; i < expected.length; i++) {
+            require(
+                    labels[i] == expected[i], "%s: star %d labelled %d, expected %d", where, i,
+                    labels[i], expected[i]
+            );
+        }
+
+        int noise = (int) Arrays.stream(expected).filter(l -> l == ClusterResult.NOISE).count();
+        require(
+                result.getNoise() == noise, "%s: %d noise, expected %d", where, result
+                        .getNoise(), noise
+        );
+    }
+
+    // Neighbours within eps of each star, itself included
+    private static int[][] neighbourhoods(StarColumns c, double eps) {
+        int n = c.getSize();
+        int[][] near = new int[n][];
+        int[] row = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int k = 0;
+
+            for (int j = 0; j < n; j++) {
+                double dx = c.x(j) - c.x(i), dy = c.y(j) - c.y(i), dz = c.z(j) - c.z(i);
+                if (dx * dx + dy * dy + dz * dz <= eps * eps)
+                    row[k++] = j;
+            }
+
+            near[i] = Arrays.copyOf(row, k);
+        }
+
+        return near;
+    }
+
+    /*
+     * Clusters are the connected components of core stars; a border star
+     * joins the cluster of its lowest-index core neighbour. Ids are numbered
+     * in catalog order of each cluster's first member.
+     */
+    private static int[] dbscan(int[][] near, int minPoints) {
+        int n = near.length;
+        int[] component = new int[n];
+        Arrays.fill(component, -1);
+        int components = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int s = 0; s < n; s++) {
+            if (near[s].length < minPoints || component[s] >= 0)
+                continue;
+
+            component[s] = components;
+            queue.add(s);
+
+            while (!queue.isEmpty()) {
+                for (int j : near[queue.poll()]) {
+                    if (near[j].length >= minPoints && component[j] < 0) {
+                        component[j] = components;
+                        queue.add(j);
+                    }
+
+                }
+
+            }
+
+            components++;
+        }
+
+        int[] raw = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            raw[i] = component[i];
+            if (raw[i] >= 0)
+                continue;
+
+            for (int j : near[i]) {
+                if (near[j].length >= minPoints) {
+                    raw[i] = component[j];
+                    break;
+                }
+
+            }
+
+        }
+
+        // Renumber by first member
+        int[] id = new int[components];
+        Arrays.fill(id, -1);
+        int next = 0;
+        int[] labels = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            if (raw[i] < 0) {
+                labels[i] = ClusterResult.NOISE;
+                continue;
+            }
+
+            if (id[raw[i]] < 0)
+                id[raw[i]] = next++;
+            labels[i] = id[raw[i]];
+        }
+
+        return labels;
+    }
+
+    // Same partition as a sequential union-find, and every root is its set's smallest member
+    private static void checkUnionFind(Random random) {
+        int n = UNION_SIZE;
+        int[][] pairs = new int[n / 2][];
+
+        for (int k = 0; k < pairs.length; k++) {
+            // Mostly local pairs so long chains form, with some long links between them
+            int a = random.nextInt(n);
+            int b = random.nextInt(4) == 0 ? random.nextInt(n)
+                    : Math.min(n - 1, a + 1 + random.nextInt(8));
+            pairs[k] = new int[] { a, b };
+        }
+
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+        IntStream
+                .range(0, pairs.length)
+                .parallel()
+                .forEach(k -> sets.union(pairs[k][0], pairs[k][1]));
+
+        int[] parent = IntStream.range(0, n).toArray();
+        for (int[] p : pairs)
+            parent[root(parent, p[0])] = root(parent, p[1]);
+
+        int[] smallest = new int[n];
+        Arrays.fill(smallest, Integer.MAX_VALUE);
+        for (int i = 0; i < n; i++)
+            smallest[root(parent, i)] = Math.min(smallest[root(parent, i)], i);
+
+        for (int i = 0; i < n; i++) {
+            int expected = smallest[root(parent, i)];
+            int found = sets.find(i);
+            require(
+                    found == expected, "union-find: find(%d) = %d, expected %d", i, found,
+                    expected
+            );
+        }
+
+    }
+
+    private static int root(int[] parent, int x) {
+
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+
+        return x;
+    }
+
+}
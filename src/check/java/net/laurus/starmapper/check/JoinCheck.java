@@ -0,0 +1,151 @@
+package net.laurus.starmapper.check;
+
+import static net.laurus.starmapper.check.Checks.require;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.laurus.starmapper.analysis.DedupMode;
+import net.laurus.starmapper.analysis.DuplicateResult;
+import net.laurus.starmapper.analysis.PairBuffer;
+import net.laurus.starmapper.analysis.SpatialJoin;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * {@link SpatialJoin} pairs and position duplicates against every pair
+ * compared directly. Besides the usual generated catalogs there is one spread
+ * over 40 kpc with copied and nudged stars, joined at the duplicate radius:
+ * far more grid cells per axis than the grid's keys can hold apart.
+ */
+class JoinCheck implements Check {
+
+    private static final int STARS = 3000;
+
+    private static final double[] RADII = { 0, 0.5, 5, 20 };
+
+    private static final double WIDE_RADIUS = 40_000;
+
+    private static final double[] WIDE_JOIN_RADII = { 0, 1e-3, 500 };
+
+    // Stars copied in the wide catalog, half exactly and half nudged by NUDGE pc
+    private static final int COPIES = 100;
+
+    private static final double NUDGE = 5e-4;
+
+    @Override
+    public void run() {
+        for (SpatialDistribution d : SpatialDistribution.values()) {
+            StarCatalog catalog = new StarCatalog(CatalogGenerator.of(STARS, 17, d).stars());
+
+            for (double r : RADII)
+                compare(d + " at " + r + " pc", catalog, r);
+        }
+
+        List<Star> stars = new ArrayList<>(
+                new CatalogGenerator(STARS, 19, SpatialDistribution.UNIFORM, WIDE_RADIUS).stars()
+        );
+        Random random = new Random(3);
+        int nextId = stars.stream().mapToInt(Star::getId).max().getAsInt() + 1;
+
+        for (int k = 0; k < COPIES; k++) {
+            Star copy = copyOf(stars.get(random.nextInt(STARS)), nextId++);
+            if (k % 2 == 1)
+                copy.setX(copy.getX() + NUDGE);
+            stars.add(copy);
+        }
+
+        StarCatalog wide = new StarCatalog(stars);
+        for (double r : WIDE_JOIN_RADII)
+            compare("40 kpc catalog at " + r + " pc", wide, r);
+    }
+
+    private static Star copyOf(Star s, int id) {
+        Star copy = new Star();
+        copy.setId(id);
+        copy.setName(s.getName() + " copy");
+        copy.setX(s.getX());
+        copy.setY(s.getY());
+        copy.setZ(s.getZ());
+        copy.setMagnitude(s.getMagnitude());
+        copy.setColour(s.getColour());
+        return copy;
+    }
+
+    private static void compare(String where, StarCatalog catalog, double radius) {
+        StarColumns c = catalog.getColumns();
+        int n = c.getSize();
+        double rSq = radius * radius;
+        List<Long> expected = new ArrayList<>();
+        int[] parent = new int[n];
+
+        for (int i = 0; i < n; i++)
+            parent[i] = i;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double dx = c.x(j) - c.x(i), dy = c.y(j) - c.y(i), dz = c.z(j) - c.z(i);
+                if (dx * dx + dy * dy + dz * dz <= rSq) {
+                    expected.add(pair(i, j));
+                    union(parent, i, j);
+                }
+
+            }
+
+        }
+
+        PairBuffer pairs = SpatialJoin.pairs(catalog, radius);
+        long[] found = new long[pairs.size()];
+
+        for (int k = 0; k < found.length; k++) {
+            require(
+                    pairs.first(k) < pairs.second(k), "%s: pair %d, %d not in order", where, pairs
+                            .first(k), pairs.second(k)
+            );
+            found[k] = pair(pairs.first(k), pairs.second(k));
+        }
+
+        Arrays.sort(found);
+        long[] want = expected.stream().mapToLong(Long::longValue).sorted().toArray();
+        require(
+                Arrays.equals(found, want), "%s: %d pairs joined, %d expected", where,
+                found.length, want.length
+        );
+
+        // Roots link under the smallest index, which is then every member's canonical entry
+        DuplicateResult duplicates = SpatialJoin.duplicates(catalog, DedupMode.POSITION, radius);
+        for (int i = 0; i < n; i++) {
+            int canonical = duplicates.getCanonical()[i];
+            require(
+                    canonical == smallest(parent, i), "%s: star %d merged into %d, expected %d",
+                    where, i, canonical, smallest(parent, i)
+            );
+        }
+
+    }
+
+    private static long pair(int i, int j) {
+        return ((long) i << 32) | j;
+    }
+
+    // Union by smaller index, so each root is its set's smallest member
+    private static void union(int[] parent, int a, int b) {
+        a = smallest(parent, a);
+        b = smallest(parent, b);
+        parent[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    private static int smallest(int[] parent, int x) {
+
+        while (parent[x] != x)
+            x = parent[x] = parent[parent[x]];
+
+        return x;
+    }
+
+}
@@ -0,0 +1,184 @@
+package net.laurus.starmapper.check;
+
+import static net.laurus.starmapper.check.Checks.require;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * {@link KDTree} range and nearest queries, which every pick goes through,
+ * against a scan of all stars. Ranges once skipped the left subtree whenever
+ * the centre lay right of a split, so centres are spread over the whole
+ * catalog, not only near the origin. Also {@link StarCatalog#findByName}
+ * against the first match in catalog order, with names shared by several
+ * stars.
+ */
+class KDTreeCheck implements Check {
+
+    private static final int STARS = 20_000;
+
+    private static final int QUERIES = 300;
+
+    private static final double MAX_RADIUS = 150;
+
+    @Override
+    public void run() {
+        for (SpatialDistribution d : SpatialDistribution.values()) {
+            List<Star> generated = CatalogGenerator.of(STARS, 23, d).stars();
+            Random random = new Random(d.ordinal());
+            shareNames(generated, random);
+            StarCatalog catalog = new StarCatalog(generated);
+            List<Star> stars = catalog.getStars();
+            KDTree tree = catalog.getKdtree();
+
+            for (int q = 0; q < QUERIES; q++) {
+                // Centred on a random star, nudged, so queries follow the catalog's shape
+                Star at = stars.get(random.nextInt(stars.size()));
+                double x = at.getX() + random.nextGaussian() * 20;
+                double y = at.getY() + random.nextGaussian() * 20;
+                double z = at.getZ() + random.nextGaussian() * 20;
+                double r = q % 10 == 0 ? 0 : random.nextDouble() * MAX_RADIUS;
+                String where = String
+                        .format("%s range %.1f pc at (%.1f, %.1f, %.1f)", d, r, x, y, z);
+
+                checkRange(where, stars, tree.range(x, y, z, r), x, y, z, r);
+                List<Star> cancellable = tree.range(x, y, z, r, () -> false);
+                checkRange(where + " (cancellable)", stars, cancellable, x, y, z, r);
+                checkNearest(where, stars, tree.nearest(x, y, z, r), x, y, z, r);
+                int k = 1 + random.nextInt(50);
+                List<Star> head = tree.nearestWithin(x, y, z, k, r);
+                checkNearestWithin(where + " nearest " + k, stars, head, k, x, y, z, r);
+            }
+
+            for (int q = 0; q < QUERIES; q++) {
+                String name = stars.get(random.nextInt(stars.size())).getName();
+                String typed = q % 2 == 0 ? name.toUpperCase() : name;
+                Star expected = stars
+                        .stream()
+                        .filter(s -> typed.equalsIgnoreCase(s.getName()))
+                        .findFirst()
+                        .orElse(null);
+                require(
+                        catalog.findByName(typed) == expected, "%s: findByName(%s) is not the "
+                                + "first match in catalog order", d, typed
+                );
+            }
+
+            require(catalog.findByName("no such star") == null, "%s: findByName found a miss", d);
+        }
+
+    }
+
+    // Give about one star in twenty the name of another, so lookups hit several entries
+    private static void shareNames(List<Star> stars, Random random) {
+        for (int k = 0; k < stars.size() / 20; k++) {
+            String name = stars.get(random.nextInt(stars.size())).getName();
+            stars.get(random.nextInt(stars.size())).setName(name);
+        }
+
+    }
+
+    private static void checkRange(
+            String where,
+            List<Star> stars,
+            List<Star> found,
+            double x,
+            double y,
+            double z,
+            double r
+    ) {
+        Set<Star> got = Collections.newSetFromMap(new IdentityHashMap<>());
+        got.addAll(found);
+        require(got.size() == found.size(), "%s: a star was returned twice", where);
+        List<Star> expected = new ArrayList<>();
+
+        for (Star s : stars) {
+            if (distanceSq(s, x, y, z) <= r * r)
+                expected.add(s);
+        }
+
+        require(
+                expected.size() == found.size() && got.containsAll(expected),
+                "%s: %d stars found, %d in range", where, found.size(), expected.size()
+        );
+    }
+
+    // Ties may resolve to either star, so compare distances
+    private static void checkNearest(
+            String where,
+            List<Star> stars,
+            Star found,
+            double x,
+            double y,
+            double z,
+            double r
+    ) {
+        double best = Double.POSITIVE_INFINITY;
+
+        for (Star s : stars)
+            best = Math.min(best, distanceSq(s, x, y, z));
+
+        // Only stars strictly closer than the limit count
+        if (found == null) {
+            require(
+                    best >= r * r, "%s: no nearest star, yet one is %.3f pc away", where, Math
+                            .sqrt(best)
+            );
+            return;
+        }
+
+        require(
+                distanceSq(found, x, y, z) == best, "%s: nearest at %.6f pc, closest is %.6f",
+                where, Math.sqrt(distanceSq(found, x, y, z)), Math.sqrt(best)
+        );
+    }
+
+    // The k smallest distances within r, in order; ties may resolve to either star
+    private static void checkNearestWithin(
+            String where,
+            List<Star> stars,
+            List<Star> found,
+            int k,
+            double x,
+            double y,
+            double z,
+            double r
+    ) {
+        double[] expected = stars
+                .stream()
+                .mapToDouble(s -> distanceSq(s, x, y, z))
+                .filter(d -> d <= r * r)
+                .sorted()
+                .limit(k)
+                .toArray();
+        require(
+                found.size() == expected.length, "%s: %d stars found, expected %d", where,
+                found.size(), expected.length
+        );
+
+        for (int i = 0; i < expected.length; i++) {
+            double d = distanceSq(found.get(i), x, y, z);
+            require(
+                    d == expected[i], "%s: star %d at %.6f pc, expected %.6f", where, i, Math
+                            .sqrt(d), Math.sqrt(expected[i])
+            );
+        }
+
+    }
+
+    private static double distanceSq(Star s, double x, double y, double z) {
+        double dx = s.getX() - x, dy = s.getY() - y, dz = s.getZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+}
@@ -0,0 +1,195 @@
+package net.laurus.starmapper.check;
+
+import static net.laurus.starmapper.check.Checks.require;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.navigation.Route;
+import net.laurus.starmapper.navigation.RouteMode;
+import net.laurus.starmapper.navigation.RoutePlanner;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * {@link RoutePlanner}, on both its grid and its cached-graph neighbours,
+ * against breadth-first search (fewest jumps) and Dijkstra (shortest) over
+ * the full pairwise jump graph. Every returned path must also be a real
+ * chain of jumps within range.
+ */
+class RouteCheck implements Check {
+
+    private static final int STARS = 2000;
+
+    private static final int PAIRS = 60;
+
+    private static final double[] RANGES = { 40, 80, 150 };
+
+    private static final double EPSILON = 1e-9;
+
+    @Override
+    public void run() throws Exception {
+        Path graphDir = Files.createTempDirectory("route-check");
+
+        for (SpatialDistribution d : SpatialDistribution.values()) {
+            StarCatalog catalog = new StarCatalog(CatalogGenerator.of(STARS, 7, d).stars());
+            RoutePlanner[] planners = {
+                    new RoutePlanner(catalog), new RoutePlanner(catalog, graphDir)
+            };
+
+            for (int r = 0; r < RANGES.length; r++)
+                check(catalog.getColumns(), planners, RANGES[r], new Random(r));
+        }
+
+    }
+
+    private void check(StarColumns c, RoutePlanner[] planners, double range, Random random) {
+        int n = c.getSize();
+        int[][] adjacent = adjacency(c, range);
+
+        for (int p = 0; p < PAIRS; p++) {
+            int from = random.nextInt(n), to = random.nextInt(n);
+            int jumps = fewestJumps(adjacent, from, to);
+            double shortest = shortestDistance(c, adjacent, from, to);
+
+            for (RoutePlanner planner : planners) {
+                String where = String.format("%d -> %d at %.0f pc", from, to, range);
+
+                Route fewest = planner
+                        .planIndices(from, to, range, RouteMode.FEWEST_JUMPS, () -> false);
+                validate(c, fewest, from, to, range, where);
+                require(
+                        fewest.isFound() ? fewest.getJumps() == jumps : jumps < 0,
+                        "%s: %d jumps planned, %d by BFS", where, fewest.getJumps(), jumps
+                );
+
+                Route best = planner.planIndices(from, to, range, RouteMode.SHORTEST, () -> false);
+                validate(c, best, from, to, range, where);
+                require(
+                        best.isFound() ? close(best.getDistance(), shortest)
+                                : shortest == Double.POSITIVE_INFINITY,
+                        "%s: %.9f pc planned, %.9f by Dijkstra", where, best.getDistance(), shortest
+                );
+            }
+
+        }
+
+    }
+
+    // A found path starts and ends at the right stars and every jump is in range
+    private static void validate(
+            StarColumns c,
+            Route r,
+            int from,
+            int to,
+            double range,
+            String where
+    ) {
+        require(r != null, "%s: not cancelled, yet no route", where);
+        int[] path = r.getPath();
+        if (path.length == 0)
+            return;
+
+        require(
+                path[0] == from && path[path.length - 1] == to, "%s: wrong ends %s", where,
+                Arrays.toString(path)
+        );
+        double total = 0;
+
+        for (int k = 1; k < path.length; k++) {
+            double d = distance(c, path[k - 1], path[k]);
+            require(d <= range, "%s: jump of %.3f pc", where, d);
+            total += d;
+        }
+
+        require(
+                close(total, r.getDistance()), "%s: distance %.9f, path sums to %.9f", where,
+                r.getDistance(), total
+        );
+    }
+
+    private static boolean close(double a, double b) {
+        return Math.abs(a - b) <= EPSILON * Math.max(1, Math.abs(b));
+    }
+
+    private static int[][] adjacency(StarColumns c, double range) {
+        int n = c.getSize();
+        int[][] adjacent = new int[n][];
+        int[] row = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int k = 0;
+
+            for (int j = 0; j < n; j++) {
+                if (j != i && distance(c, i, j) <= range)
+                    row[k++] = j;
+            }
+
+            adjacent[i] = Arrays.copyOf(row, k);
+        }
+
+        return adjacent;
+    }
+
+    // -1 when unreachable
+    private static int fewestJumps(int[][] adjacent, int from, int to) {
+        int[] depth = new int[adjacent.length];
+        Arrays.fill(depth, -1);
+        depth[from] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            for (int j : adjacent[i]) {
+                if (depth[j] < 0) {
+                    depth[j] = depth[i] + 1;
+                    queue.add(j);
+                }
+
+            }
+
+        }
+
+        return depth[to];
+    }
+
+    // O(n^2) Dijkstra without a heap; infinity when unreachable
+    private static double shortestDistance(StarColumns c, int[][] adjacent, int from, int to) {
+        int n = adjacent.length;
+        double[] dist = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[from] = 0;
+
+        while (true) {
+            int best = -1;
+
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && (best < 0 || dist[i] < dist[best]))
+                    best = i;
+            }
+
+            if (best < 0 || dist[best] == Double.POSITIVE_INFINITY || best == to)
+                return dist[to];
+
+            done[best] = true;
+            for (int j : adjacent[best])
+                dist[j] = Math.min(dist[j], dist[best] + distance(c, best, j));
+        }
+
+    }
+
+    private static double distance(StarColumns c, int a, int b) {
+        double dx = c.x(a) - c.x(b);
+        double dy = c.y(a) - c.y(b);
+        double dz = c.z(a) - c.z(b);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+}
@@ -0,0 +1,62 @@
+package net.laurus.starmapper.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/** Building the spatial indexes from scratch over synthetic catalogs. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int size;
+
+    private List<Star> stars;
+
+    private StarCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        stars = CatalogGenerator.of(size, 42, SpatialDistribution.UNIFORM).stars();
+        catalog = new StarCatalog(stars);
+    }
+
+    @Benchmark
+    public KDTree kdtree() {
+        return new KDTree(stars);
+    }
+
+    @Benchmark
+    public SpatialGrid grid() {
+        return SpatialGrid.build(catalog.getColumns(), 10);
+    }
+
+    @Benchmark
+    public StarCatalog catalog() {
+        return new StarCatalog(stars);
+    }
+
+}
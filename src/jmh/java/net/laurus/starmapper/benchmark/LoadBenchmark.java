@@ -0,0 +1,38 @@
+package net.laurus.starmapper.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.util.StarLoader;
+
+/** Parsing the bundled JSON catalogs, with the loader's cache cleared each time. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({ "bubble.json", "smol-bubble.json" })
+    public String resource;
+
+    @Benchmark
+    public List<Star> loadStars() {
+        StarLoader.clearCache();
+        return StarLoader.loadStars(resource);
+    }
+
+}
@@ -0,0 +1,121 @@
+package net.laurus.starmapper.benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * Nearest and fixed-radius queries at random points inside the catalog.
+ * Each call takes the next of 4096 precomputed query points, so results are
+ * not constant-folded and the caches see a realistic spread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int POINTS = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({ "10000", "100000", "1000000" })
+        public int size;
+
+        StarCatalog catalog;
+
+        // Query points are copies of star positions, jittered by up to 10 pc
+        final double[] px = new double[POINTS];
+
+        final double[] py = new double[POINTS];
+
+        final double[] pz = new double[POINTS];
+
+        @Setup
+        public void setUp() {
+            List<Star> stars = CatalogGenerator.of(size, 42, SpatialDistribution.UNIFORM).stars();
+            catalog = new StarCatalog(stars);
+            StarColumns columns = catalog.getColumns();
+            SplittableRandom random = new SplittableRandom(7);
+
+            for (int k = 0; k < POINTS; k++) {
+                int i = random.nextInt(size);
+                px[k] = columns.x(i) + random.nextDouble(-10, 10);
+                py[k] = columns.y(i) + random.nextDouble(-10, 10);
+                pz[k] = columns.z(i) + random.nextDouble(-10, 10);
+            }
+
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class Radius {
+
+        @Param({ "5", "25", "100" })
+        public double radius;
+
+        SpatialGrid grid;
+
+        @Setup
+        public void setUp(Catalog c) {
+            grid = SpatialGrid.build(c.catalog.getColumns(), radius);
+        }
+
+    }
+
+    // Per-thread position in the query point ring
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        int advance() {
+            next = (next + 1) & (POINTS - 1);
+            return next;
+        }
+
+    }
+
+    @Benchmark
+    public Star nearest(Catalog c, Cursor at) {
+        int k = at.advance();
+        return c.catalog.getKdtree().nearest(c.px[k], c.py[k], c.pz[k], Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public int kdtreeRange(Catalog c, Radius r, Cursor at) {
+        int k = at.advance();
+        return c.catalog.getKdtree().range(c.px[k], c.py[k], c.pz[k], r.radius).size();
+    }
+
+    @Benchmark
+    public int gridRange(Catalog c, Radius r, Cursor at) {
+        int k = at.advance();
+        int[] count = new int[1];
+        r.grid.forEachWithin(c.px[k], c.py[k], c.pz[k], r.radius, i -> count[0]++);
+        return count[0];
+    }
+
+}
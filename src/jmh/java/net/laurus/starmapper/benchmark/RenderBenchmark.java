@@ -0,0 +1,85 @@
+package net.laurus.starmapper.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.laurus.starmapper.headless.HeadlessRenderer;
+import net.laurus.starmapper.headless.ViewSpec;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * One full frame of {@code StarRenderer.render} into a headless 1280x720
+ * image. The view turns slightly every frame, as when the user drags, so
+ * nothing is served from a cache of the previous frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final int WIDTH = 1280;
+
+    private static final int HEIGHT = 720;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int size;
+
+    @Param({ "0.5", "1", "4" })
+    public double zoom;
+
+    private HeadlessRenderer renderer;
+
+    private ViewSpec view;
+
+    private BufferedImage image;
+
+    private Graphics2D g;
+
+    @Setup
+    public void setUp() {
+        List<Star> stars = CatalogGenerator.of(size, 42, SpatialDistribution.UNIFORM).stars();
+        renderer = new HeadlessRenderer(new StarCatalog(stars));
+        view = new ViewSpec();
+        view.setZoom(zoom);
+        view.setRotX(0.3);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        view.setRotY(view.getRotY() + 0.001);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        renderer.render(g, view, WIDTH, HEIGHT);
+        return image;
+    }
+
+}
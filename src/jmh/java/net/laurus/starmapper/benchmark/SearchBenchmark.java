@@ -0,0 +1,59 @@
+package net.laurus.starmapper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * The control panel's search box lookup ({@link StarCatalog#findByName}),
+ * for the dimmest star and for a name that is not there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int size;
+
+    private StarCatalog catalog;
+
+    private String dimmest;
+
+    @Setup
+    public void setUp() {
+        catalog = new StarCatalog(CatalogGenerator.of(size, 42, SpatialDistribution.UNIFORM)
+                .stars());
+        // Typed the way a user might, so the case-insensitive path is taken
+        dimmest = catalog.getStars().get(size - 1).getName().toLowerCase();
+    }
+
+    @Benchmark
+    public Star hit() {
+        return catalog.findByName(dimmest);
+    }
+
+    @Benchmark
+    public Star miss() {
+        return catalog.findByName("no such star");
+    }
+
+}
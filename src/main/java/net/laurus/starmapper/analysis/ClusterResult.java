@@ -0,0 +1,45 @@
+package net.laurus.starmapper.analysis;
+
+import lombok.Value;
+
+/**
+ * Output of {@link Dbscan}: one label per catalog index, 0-based cluster ids
+ * numbered in catalog (brightest-first) order of their first member, and
+ * {@link #NOISE} for stars in no cluster.
+ */
+@Value
+public class ClusterResult {
+
+    public static final int NOISE = -1;
+
+    int[] labels;
+
+    // Members per cluster id
+    int[] sizes;
+
+    int noise;
+
+    double epsilon;
+
+    int minPoints;
+
+    long nanos;
+
+    public int getClusterCount() {
+        return sizes.length;
+    }
+
+    public String summary() {
+        int largest = 0;
+
+        for (int s : sizes)
+            largest = Math.max(largest, s);
+
+        return String
+                .format(
+                        "%d clusters (largest %d), %d noise stars; eps %.1f pc, min %d, %.0f ms",
+                        sizes.length, largest, noise, epsilon, minPoints, nanos / 1e6
+                );
+    }
+
+}
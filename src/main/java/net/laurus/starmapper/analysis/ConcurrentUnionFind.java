@@ -0,0 +1,59 @@
+package net.laurus.starmapper.analysis;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Disjoint sets over {@code 0..n-1} that many threads can union at once
+ * without locks. Roots only ever link to a smaller index, so there are no
+ * cycles, and the one CAS that links a root fails if another thread got
+ * there first (the union then retries from the new roots). Finds halve the
+ * path as they go, also by CAS, which is only ever a shortcut.
+ */
+public final class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int n) {
+        parent = new AtomicIntegerArray(n);
+
+        for (int i = 0; i < n; i++)
+            parent.set(i, i);
+    }
+
+    public int find(int x) {
+
+        while (true) {
+            int p = parent.get(x);
+            if (p == x)
+                return x;
+
+            int gp = parent.get(p);
+            if (p != gp)
+                parent.compareAndSet(x, p, gp);
+            x = gp;
+        }
+
+    }
+
+    public void union(int a, int b) {
+
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b)
+                return;
+
+            // Link the larger root under the smaller one
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+
+            if (parent.compareAndSet(a, a, b))
+                return;
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package net.laurus.starmapper.analysis;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
+import net.laurus.starmapper.model.NeighbourGraph;
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Parallel DBSCAN over the catalog. A star with at least {@code minPoints}
+ * stars (itself included) within {@code epsilon} parsecs is a core star;
+ * core stars within epsilon of each other share a cluster, and other stars
+ * join the cluster of a core star in reach, or are noise.
+ * <p>
+ * Three parallel passes, each one task per star: mark core stars, union
+ * neighbouring core stars in a {@link ConcurrentUnionFind}, and attach
+ * border stars. A final sequential pass numbers the clusters. Neighbourhoods
+ * come from a {@link SpatialGrid} with epsilon-sized cells, or from a
+ * {@link NeighbourGraph} built for the same radius.
+ */
+@Slf4j
+@UtilityClass
+public class Dbscan {
+
+    /** One epsilon-neighbourhood visit; implementations may or may not include i itself. */
+    private interface Neighbourhood {
+
+        void forEach(int i, IntConsumer action);
+
+    }
+
+    public static ClusterResult run(StarCatalog catalog, double epsilon, int minPoints) {
+        long start = System.nanoTime();
+        StarColumns columns = catalog.getColumns();
+        SpatialGrid grid = SpatialGrid.build(columns, epsilon);
+        Neighbourhood near = (i, action) -> grid
+                .forEachWithin(columns.x(i), columns.y(i), columns.z(i), epsilon, action);
+        return run(columns.getSize(), epsilon, minPoints, near, grid::inCellOrder, start);
+    }
+
+    /** Cluster using a precomputed graph; epsilon is the graph's radius. */
+    public static ClusterResult run(NeighbourGraph graph, int minPoints) {
+        Neighbourhood near = (i, action) -> {
+            for (int k = graph.start(i), end = graph.end(i); k < end; k++)
+                action.accept(graph.neighbour(k));
+        };
+        return run(
+                graph.getSize(), graph.getRadius(), minPoints, near, k -> k, System.nanoTime()
+        );
+    }
+
+    /** {@code order} maps task k to the star it handles, for locality. */
+    private static ClusterResult run(
+            int n,
+            double epsilon,
+            int minPoints,
+            Neighbourhood near,
+            IntUnaryOperator order,
+            long start
+    ) {
+        if (!(epsilon > 0) || minPoints < 1)
+            throw new IllegalArgumentException("Need epsilon > 0 and minPoints >= 1");
+
+        SpatialQueryEvent event = SpatialQueryEvent.start("dbscan", epsilon);
+
+        // Pass 1: neighbour counts (self included), which decide the core stars
+        int[] count = new int[n];
+        IntStream.range(0, n).parallel().map(order).forEach(i -> {
+            int[] c = { 1 };
+            near.forEach(i, j -> {
+                if (j != i)
+                    c[0]++;
+            });
+            count[i] = c[0];
+        });
+
+        // Pass 2: merge core neighbours; each pair is seen from both ends, so take one
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+        IntStream
+                .range(0, n)
+                .parallel()
+                .map(order)
+                .filter(i -> count[i] >= minPoints)
+                .forEach(i -> near.forEach(i, j -> {
+                    if (j < i && count[j] >= minPoints)
+                        sets.union(i, j);
+                }));
+
+        // Pass 3: roots for core stars; border stars take the lowest-index core neighbour
+        int[] root = new int[n];
+        IntStream.range(0, n).parallel().map(order).forEach(i -> {
+            if (count[i] >= minPoints) {
+                root[i] = sets.find(i);
+                return;
+            }
+
+            // Alone within epsilon: noise without another query
+            if (count[i] == 1) {
+                root[i] = ClusterResult.NOISE;
+                return;
+            }
+
+            int[] best = { Integer.MAX_VALUE };
+            near.forEach(i, j -> {
+                if (count[j] >= minPoints && j < best[0])
+                    best[0] = j;
+            });
+            root[i] = best[0] == Integer.MAX_VALUE ? ClusterResult.NOISE : sets.find(best[0]);
+        });
+
+        // Number clusters by first member in catalog order
+        int[] idOfRoot = new int[n];
+        Arrays.fill(idOfRoot, -1);
+        int[] labels = new int[n];
+        int[] sizes = new int[16];
+        int clusters = 0, noise = 0;
+
+        for (int i = 0; i < n; i++) {
+            int r = root[i];
+            if (r == ClusterResult.NOISE) {
+                labels[i] = ClusterResult.NOISE;
+                noise++;
+                continue;
+            }
+
+            if (idOfRoot[r] < 0) {
+                if (clusters == sizes.length)
+                    sizes = Arrays.copyOf(sizes, clusters * 2);
+                idOfRoot[r] = clusters++;
+            }
+
+            labels[i] = idOfRoot[r];
+            sizes[labels[i]]++;
+        }
+
+        ClusterResult result = new ClusterResult(
+                labels, Arrays.copyOf(sizes, clusters), noise, epsilon, minPoints,
+                System.nanoTime() - start
+        );
+        event.finish(clusters);
+        log.info("DBSCAN over {} stars: {}", n, result.summary());
+        return result;
+    }
+
+}
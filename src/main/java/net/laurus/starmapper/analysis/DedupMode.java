@@ -0,0 +1,18 @@
+package net.laurus.starmapper.analysis;
+
+/**
+ * What makes two catalog entries the same star for
+ * {@link SpatialJoin#duplicates}.
+ */
+public enum DedupMode {
+
+    /** Same star id. */
+    ID,
+
+    /** Within the tolerance distance of each other. */
+    POSITION,
+
+    /** Either of the above. */
+    ID_OR_POSITION
+
+}
@@ -0,0 +1,57 @@
+package net.laurus.starmapper.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Value;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+
+/**
+ * Output of {@link SpatialJoin#duplicates}: for every catalog index the index
+ * of the entry it merges into. Duplicates are merged transitively and each
+ * group is kept as its brightest (lowest-index) entry.
+ */
+@Value
+public class DuplicateResult {
+
+    // canonical[i] == i for kept entries
+    int[] canonical;
+
+    // Groups with more than one entry
+    int groups;
+
+    // Entries merged away, i.e. catalog size minus kept entries
+    int removed;
+
+    DedupMode mode;
+
+    double tolerance;
+
+    long nanos;
+
+    public boolean isKept(int i) {
+        return canonical[i] == i;
+    }
+
+    /** The kept stars, in catalog order; a new catalog can be built from them. */
+    public List<Star> merged(StarCatalog catalog) {
+        List<Star> kept = new ArrayList<>(canonical.length - removed);
+
+        for (int i = 0; i < canonical.length; i++) {
+            if (isKept(i))
+                kept.add(catalog.getStars().get(i));
+        }
+
+        return kept;
+    }
+
+    public String summary() {
+        return String
+                .format(
+                        "%d duplicate groups, %d entries merged (%s, %.3f pc), %.0f ms",
+                        groups, removed, mode, tolerance, nanos / 1e6
+                );
+    }
+
+}
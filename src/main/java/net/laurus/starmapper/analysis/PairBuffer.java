@@ -0,0 +1,72 @@
+package net.laurus.starmapper.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of star pairs in primitive arrays: two ints and one float
+ * per pair, so millions of pairs cost tens of megabytes and no objects.
+ * Not thread safe; parallel producers fill one buffer each and
+ * {@link #addAll} them.
+ */
+public final class PairBuffer {
+
+    // first and second of pair k at 2k and 2k+1
+    private int[] ends;
+
+    private float[] distances;
+
+    private int size;
+
+    public PairBuffer() {
+        this(64);
+    }
+
+    public PairBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        ends = new int[2 * capacity];
+        distances = new float[capacity];
+    }
+
+    public void add(int first, int second, float distance) {
+        ensure(size + 1);
+        ends[2 * size] = first;
+        ends[2 * size + 1] = second;
+        distances[size++] = distance;
+    }
+
+    public void addAll(PairBuffer other) {
+        ensure(size + other.size);
+        System.arraycopy(other.ends, 0, ends, 2 * size, 2 * other.size);
+        System.arraycopy(other.distances, 0, distances, size, other.size);
+        size += other.size;
+    }
+
+    private void ensure(int capacity) {
+        if (capacity <= distances.length)
+            return;
+
+        int grown = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, 2L * size));
+        ends = Arrays.copyOf(ends, 2 * grown);
+        distances = Arrays.copyOf(distances, grown);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Catalog index of the lower-indexed (brighter) star of pair {@code k}. */
+    public int first(int k) {
+        return ends[2 * k];
+    }
+
+    /** Catalog index of the other star of pair {@code k}. */
+    public int second(int k) {
+        return ends[2 * k + 1];
+    }
+
+    /** Distance in parsecs of pair {@code k}. */
+    public float distance(int k) {
+        return distances[k];
+    }
+
+}
@@ -0,0 +1,225 @@
+package net.laurus.starmapper.analysis;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.SpatialGrid.PairConsumer;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Self-join of the catalog: every pair of stars within a radius of each
+ * other. Stars are bucketed in a {@link SpatialGrid} with radius-sized cells
+ * and each cell is compared with itself and half of its neighbours, so each
+ * pair is found once. Cells are split over fork/join tasks; no per-query
+ * lists are allocated, unlike n range queries on the KDTree.
+ */
+@Slf4j
+@UtilityClass
+public class SpatialJoin {
+
+    // Grid cells are never smaller than this, so an exact-duplicate join (radius 0) works
+    private static final double MIN_CELL = 1e-3;
+
+    /**
+     * Call {@code action} with every pair within {@code radius} parsecs, from
+     * many threads at once, so it must be thread safe. Pairs come in no
+     * particular order and either way round.
+     */
+    public static void forEachPair(StarCatalog catalog, double radius, PairConsumer action) {
+        SpatialGrid grid = grid(catalog, radius);
+        ForkJoinPool
+                .commonPool()
+                .invoke(new Visit(grid, radius, action, 0, grid.cellCount(), grain(grid)));
+    }
+
+    /** Every pair within {@code radius} parsecs, each with its lower index first. */
+    public static PairBuffer pairs(StarCatalog catalog, double radius) {
+        long start = System.nanoTime();
+        SpatialQueryEvent event = SpatialQueryEvent.start("join", radius);
+        SpatialGrid grid = grid(catalog, radius);
+        PairBuffer pairs = ForkJoinPool
+                .commonPool()
+                .invoke(new Collect(grid, radius, 0, grid.cellCount(), grain(grid)));
+        event.finish(pairs.size());
+        log
+                .info(
+                        "Joined {} stars within {} pc: {} pairs in {} ms", catalog.size(), radius,
+                        pairs.size(), (System.nanoTime() - start) / 1_000_000
+                );
+        return pairs;
+    }
+
+    /**
+     * Find catalog entries that are the same star, by id, by position (within
+     * {@code tolerance} parsecs), or either. Merging is transitive.
+     */
+    public static DuplicateResult duplicates(
+            StarCatalog catalog,
+            DedupMode mode,
+            double tolerance
+    ) {
+        long start = System.nanoTime();
+        SpatialQueryEvent event = SpatialQueryEvent.start("dedup", tolerance);
+        int n = catalog.size();
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+
+        if (mode != DedupMode.POSITION) {
+            long[] byId = new long[n];
+
+            for (int i = 0; i < n; i++)
+                byId[i] = ((long) catalog.getStars().get(i).getId() << 32) | i;
+
+            Arrays.parallelSort(byId);
+
+            for (int k = 1; k < n; k++) {
+                if ((int) (byId[k] >> 32) == (int) (byId[k - 1] >> 32))
+                    sets.union((int) byId[k - 1], (int) byId[k]);
+            }
+
+        }
+
+        if (mode != DedupMode.ID)
+            forEachPair(catalog, tolerance, (i, j, dSq) -> sets.union(i, j));
+
+        // Roots are always the smallest index of their set, i.e. the brightest entry
+        int[] canonical = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> canonical[i] = sets.find(i));
+        boolean[] grouped = new boolean[n];
+        int removed = 0, groups = 0;
+
+        for (int i = 0; i < n; i++) {
+            int c = canonical[i];
+            if (c == i)
+                continue;
+
+            removed++;
+            if (!grouped[c]) {
+                grouped[c] = true;
+                groups++;
+            }
+
+        }
+
+        DuplicateResult result = new DuplicateResult(
+                canonical, groups, removed, mode, tolerance, System.nanoTime() - start
+        );
+        event.finish(removed);
+        log.info("Duplicate scan over {} stars: {}", n, result.summary());
+        return result;
+    }
+
+    private static SpatialGrid grid(StarCatalog catalog, double radius) {
+        if (!(radius >= 0))
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+
+        StarColumns columns = catalog.getColumns();
+        return SpatialGrid.build(columns, Math.max(radius, MIN_CELL));
+    }
+
+    // Cells per leaf task: several tasks per worker so uneven cells balance out
+    private static int grain(SpatialGrid grid) {
+        int tasks = 8 * ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(64, grid.cellCount() / tasks);
+    }
+
+    private static final class Visit extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SpatialGrid grid;
+
+        private final double radius;
+
+        private final PairConsumer action;
+
+        private final int from;
+
+        private final int to;
+
+        private final int grain;
+
+        Visit(SpatialGrid grid, double radius, PairConsumer action, int from, int to, int grain) {
+            this.grid = grid;
+            this.radius = radius;
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int c = from; c < to; c++)
+                    grid.forEachPairFrom(c, radius, action);
+
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                    new Visit(grid, radius, action, from, mid, grain),
+                    new Visit(grid, radius, action, mid, to, grain)
+            );
+        }
+
+    }
+
+    private static final class Collect extends RecursiveTask<PairBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SpatialGrid grid;
+
+        private final double radius;
+
+        private final int from;
+
+        private final int to;
+
+        private final int grain;
+
+        Collect(SpatialGrid grid, double radius, int from, int to, int grain) {
+            this.grid = grid;
+            this.radius = radius;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected PairBuffer compute() {
+            if (to - from <= grain) {
+                PairBuffer pairs = new PairBuffer();
+
+                for (int c = from; c < to; c++)
+                    grid.forEachPairFrom(c, radius, (i, j, dSq) -> {
+                        float d = (float) Math.sqrt(dSq);
+                        if (i < j)
+                            pairs.add(i, j, d);
+                        else
+                            pairs.add(j, i, d);
+                    });
+
+                return pairs;
+            }
+
+            int mid = (from + to) >>> 1;
+            Collect right = new Collect(grid, radius, mid, to, grain);
+            right.fork();
+            PairBuffer pairs = new Collect(grid, radius, from, mid, grain).compute();
+            pairs.addAll(right.join());
+            return pairs;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package net.laurus.starmapper.headless;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.util.CatalogGenerator;
+import net.laurus.starmapper.util.SpatialDistribution;
+
+/**
+ * Command line front end for {@link CatalogGenerator}: writes a synthetic
+ * catalog that {@code StarLoader} (and so {@code --catalog} elsewhere) reads.
+ *
+ * <pre>
+ * GenerateCatalog --count N [--out file] [--seed S] [--distribution uniform|clustered|disc]
+ *                 [--radius pc] [--threads N]
+ * </pre>
+ *
+ * The radius defaults to one giving bubble.json's density.
+ */
+@Slf4j
+public class GenerateCatalog {
+
+    public static void main(String[] args) throws Exception {
+        int count = 1_000_000;
+        Path out = null;
+        long seed = 42;
+        SpatialDistribution distribution = SpatialDistribution.UNIFORM;
+        double radius = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count":
+                    count = Integer.parseInt(args[++i].replace("_", ""));
+                    break;
+                case "--out":
+                    out = Path.of(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--distribution":
+                    distribution = SpatialDistribution.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--radius":
+                    radius = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+
+        }
+
+        if (out == null)
+            out = Path
+                    .of(
+                            String
+                                    .format(
+                                            "synthetic-%s-%d-%d.json",
+                                            distribution.name().toLowerCase(Locale.ROOT), count,
+                                            seed
+                                    )
+                    );
+
+        CatalogGenerator generator = radius > 0
+                ? new CatalogGenerator(count, seed, distribution, radius)
+                : CatalogGenerator.of(count, seed, distribution);
+        log.info("Generating {} {} stars within {} pc", count, distribution, generator.getRadius());
+        generator.write(out, threads);
+    }
+
+}
@@ -0,0 +1,168 @@
+package net.laurus.starmapper.headless;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.util.StarLoader;
+
+/**
+ * Command line batch exporter: renders many views (or a rotation sequence) of
+ * a catalog in parallel and writes one PNG per view.
+ *
+ * <pre>
+ * HeadlessExport [--catalog file|resource] [--out dir] [--size WxH] [--threads N]
+ *                [--views file] [--frames N] [key=value ...]
+ * </pre>
+ *
+ * Each line of the views file is a {@link ViewSpec} ({@code key=value} pairs,
+ * blank lines and {@code #} comments ignored). {@code --frames N} instead
+ * renders N frames spinning rotY through a full turn. Trailing
+ * {@code key=value} pairs set the base view every job starts from.
+ */
+@Slf4j
+public class HeadlessExport {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        String source = "bubble.json";
+        Path out = Path.of("export");
+        int width = 800, height = 600;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path viewsFile = null;
+        int frames = 0;
+        ViewSpec base = new ViewSpec();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--catalog":
+                    source = args[++i];
+                    break;
+                case "--out":
+                    out = Path.of(args[++i]);
+                    break;
+                case "--size":
+                    String[] wh = args[++i].toLowerCase().split("x");
+                    width = Integer.parseInt(wh[0]);
+                    height = Integer.parseInt(wh[1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--views":
+                    viewsFile = Path.of(args[++i]);
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    base.set(args[i]);
+            }
+
+        }
+
+        List<ViewSpec> views = viewsFile != null ? readViews(viewsFile, base)
+                : frames > 0 ? spin(base, frames) : List.of(named(base, "view"));
+
+        StarCatalog catalog = new StarCatalog(StarLoader.loadStarsFrom(source));
+        int failures = export(new HeadlessRenderer(catalog), views, out, width, height, threads);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Render and write every view on a pool of {@code threads} workers.
+     * Returns the number of views that failed.
+     */
+    public static int export(
+            HeadlessRenderer renderer,
+            List<ViewSpec> views,
+            Path out,
+            int width,
+            int height,
+            int threads
+    ) throws IOException, InterruptedException {
+        Files.createDirectories(out);
+        log
+                .info(
+                        "Rendering {} views at {}x{} on {} threads into {}", views.size(), width,
+                        height, threads, out
+                );
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<?>> jobs = new ArrayList<>(views.size());
+
+        for (ViewSpec view : views) {
+            jobs.add(pool.submit(() -> {
+                BufferedImage image = renderer.render(view, width, height);
+                ImageIO.write(image, "png", out.resolve(view.getName() + ".png").toFile());
+                return null;
+            }));
+        }
+
+        pool.shutdown();
+        int failures = 0;
+
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                jobs.get(i).get();
+            }
+            catch (Exception e) {
+                failures++;
+                log.error("Failed to render view {}", views.get(i).getName(), e);
+            }
+
+        }
+
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        log.info("Rendered {} views ({} failed) in {} ms", views.size() - failures, failures, ms);
+        return failures;
+    }
+
+    /** One view per non-blank, non-comment line, named view-NNNNN unless given a name. */
+    public static List<ViewSpec> readViews(Path file, ViewSpec base) throws IOException {
+        List<ViewSpec> views = new ArrayList<>();
+
+        for (String line : Files.readAllLines(file)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                continue;
+
+            ViewSpec v = ViewSpec.parse(trimmed, base);
+            views.add(v.getName() != null ? v : named(v, String.format("view-%05d", views.size())));
+        }
+
+        return views;
+    }
+
+    /** {@code frames} copies of {@code base} spinning rotY through one full turn. */
+    public static List<ViewSpec> spin(ViewSpec base, int frames) {
+        List<ViewSpec> views = new ArrayList<>(frames);
+
+        for (int f = 0; f < frames; f++) {
+            ViewSpec v = named(base, String.format("frame-%05d", f));
+            v.setRotY(base.getRotY() + 2 * Math.PI * f / frames);
+            views.add(v);
+        }
+
+        return views;
+    }
+
+    private static ViewSpec named(ViewSpec base, String name) {
+        ViewSpec v = new ViewSpec(base);
+        v.setName(name);
+        return v;
+    }
+
+}
@@ -0,0 +1,89 @@
+package net.laurus.starmapper.headless;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import lombok.Getter;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.ui.component.Camera;
+import net.laurus.starmapper.ui.render.BrightnessModel;
+import net.laurus.starmapper.ui.render.StarRenderer;
+
+/**
+ * Renders a {@link StarCatalog} into images without a display. Safe to call
+ * from many threads at once: the catalog is shared, while each thread gets its
+ * own {@link StarRenderer} since renderers keep per-frame buffers.
+ */
+public class HeadlessRenderer {
+
+    @Getter
+    private final StarCatalog catalog;
+
+    private final ThreadLocal<StarRenderer> renderers;
+
+    public HeadlessRenderer(StarCatalog catalog) {
+        this.catalog = catalog;
+        this.renderers = ThreadLocal.withInitial(() -> new StarRenderer(catalog, new Camera()));
+    }
+
+    /** Render {@code view} into a new opaque image of the given size. */
+    public BufferedImage render(ViewSpec view, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        try {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, width, height);
+            render(g, view, width, height);
+        }
+        finally {
+            g.dispose();
+        }
+
+        return image;
+    }
+
+    /** Render {@code view} onto an existing graphics context (background untouched). */
+    public void render(Graphics2D g, ViewSpec view, int width, int height) {
+        StarRenderer renderer = renderers.get();
+        apply(view, renderer);
+
+        g
+                .setRenderingHint(
+                        RenderingHints.KEY_ANTIALIASING, view.isAntialias()
+                                ? RenderingHints.VALUE_ANTIALIAS_ON
+                                : RenderingHints.VALUE_ANTIALIAS_OFF
+                );
+        double[][] rotMatrix = StarRenderer.buildRotationMatrix(view.getRotX(), view.getRotY());
+        Star selected = view.getSelected() >= 0 ? catalog.byId(view.getSelected()) : null;
+        renderer.render(g, width, height, selected, rotMatrix);
+    }
+
+    private static void apply(ViewSpec view, StarRenderer renderer) {
+        Camera cam = renderer.getCamera();
+        cam.setFocusX(view.getFocusX());
+        cam.setFocusY(view.getFocusY());
+        cam.setFocusZ(view.getFocusZ());
+        cam.setZoom(view.getZoom());
+        cam.setPanX(view.getPanX());
+        cam.setPanY(view.getPanY());
+
+        renderer.setDistanceFilter(view.getMaxDistance());
+        renderer.setRenderMode(view.getMode());
+        renderer.setDepthSorted(view.isDepthSorted());
+        renderer.setDepthFade(view.getDepthFade());
+        renderer.getLabelLayer().setEnabled(view.isLabels());
+
+        BrightnessModel b = renderer.getBrightnessModel();
+        b.setMinContribution(view.getMinContribution());
+        b.setExposure(view.getExposure());
+        b.setEnabled(view.isBrightness());
+        b.setMinPointSize(view.getMinPointSize());
+        b.setMaxPointSize(view.getMaxPointSize());
+        b.setReferencePointSize(view.getReferencePointSize());
+    }
+
+}
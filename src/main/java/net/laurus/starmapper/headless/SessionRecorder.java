@@ -0,0 +1,169 @@
+package net.laurus.starmapper.headless;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records an interactive session as one {@link ViewSpec} per painted frame,
+ * each line prefixed with {@code t=<ms since start>}. {@link SessionReplay}
+ * renders the same frames headlessly to measure frame times. Frames are
+ * formatted and written on a background thread so painting never waits on the
+ * disk; {@link #close()} drains that queue and belongs in a shutdown hook.
+ */
+@Slf4j
+public class SessionRecorder {
+
+    /** Prefix of the timestamp token on each session line */
+    public static final String TIME_KEY = "t=";
+
+    // Seconds close() waits for queued frames to reach the file
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    // Single thread, so frames reach the file in the order they were recorded
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-recorder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only written to on the writer thread once recording has started
+    private BufferedWriter out;
+
+    @Getter
+    private Path file;
+
+    private long start;
+
+    @Getter
+    private int frames;
+
+    public synchronized boolean isRecording() {
+        return out != null;
+    }
+
+    public synchronized void start(Path file) throws IOException {
+        if (writer.isShutdown())
+            throw new IOException("Session recorder is closed");
+
+        stop();
+        BufferedWriter w = Files.newBufferedWriter(file);
+        w.write("# starmapper session: t=<ms> followed by a ViewSpec per frame");
+        w.newLine();
+        this.out = w;
+        this.file = file;
+        this.start = System.nanoTime();
+        this.frames = 0;
+        log.info("Recording session to {}", file);
+    }
+
+    /**
+     * Queue a frame. The view must not change afterwards. Write failures stop
+     * the recording rather than the UI.
+     */
+    public synchronized void record(ViewSpec view) {
+        if (out == null)
+            return;
+
+        BufferedWriter w = out;
+        long t = (System.nanoTime() - start) / 1_000_000;
+        frames++;
+        writer.execute(() -> write(w, t, view));
+    }
+
+    private void write(BufferedWriter w, long t, ViewSpec view) {
+        try {
+            w.write(TIME_KEY);
+            w.write(Long.toString(t));
+            w.write(' ');
+            w.write(view.toLine());
+            w.newLine();
+        }
+        catch (IOException e) {
+            failed(w, e);
+        }
+
+    }
+
+    // Frames still queued for a writer that failed are dropped quietly
+    private synchronized void failed(BufferedWriter w, IOException e) {
+        if (out != w)
+            return;
+
+        log.warn("Session recording failed, stopping", e);
+        stop();
+    }
+
+    /** Stop recording; frames already queued are still written, then the file closes. */
+    public synchronized void stop() {
+        if (out == null)
+            return;
+
+        BufferedWriter w = out;
+        Path f = file;
+        int n = frames;
+        out = null;
+        writer.execute(() -> close(w, f, n));
+    }
+
+    private static void close(BufferedWriter w, Path file, int frames) {
+        try {
+            w.close();
+            log.info("Recorded {} frames to {}", frames, file);
+        }
+        catch (IOException e) {
+            log.warn("Failed to close session file {}", file, e);
+        }
+
+    }
+
+    /** Stop, then wait for every queued frame to reach the file. For shutdown. */
+    public void close() {
+        stop();
+        writer.shutdown();
+
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                log.warn("Session file {} not closed within {} s", file, CLOSE_TIMEOUT_SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /** Frames of a session file, in order; the timestamp is kept as the view name. */
+    public static List<ViewSpec> read(Path file, ViewSpec base) throws IOException {
+        List<ViewSpec> frames = new ArrayList<>();
+
+        for (String line : Files.readAllLines(file)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                continue;
+
+            String name = String.format("frame-%06d", frames.size());
+            if (trimmed.startsWith(TIME_KEY)) {
+                int space = trimmed.indexOf(' ');
+                String t = space > 0 ? trimmed.substring(TIME_KEY.length(), space) : "";
+                name = name + "-t" + t;
+                trimmed = space > 0 ? trimmed.substring(space + 1) : "";
+            }
+
+            ViewSpec v = ViewSpec.parse(trimmed, base);
+            v.setName(name);
+            frames.add(v);
+        }
+
+        return frames;
+    }
+
+}
@@ -0,0 +1,159 @@
+package net.laurus.starmapper.headless;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.util.FrameStats;
+import net.laurus.starmapper.util.StarLoader;
+
+/**
+ * Command line benchmark: replays a recorded session (see
+ * {@link SessionRecorder}) frame by frame against any catalog and reports
+ * frame time percentiles.
+ *
+ * <pre>
+ * SessionReplay --session file [--catalog file|resource] [--size WxH] [--warmup N]
+ *               [--passes N] [--csv file] [--budget ms] [key=value ...]
+ * </pre>
+ *
+ * Frames are rendered back to back on one thread in recorded order, so runs
+ * are repeatable. {@code --warmup N} untimed passes let the JIT settle first;
+ * {@code --csv} writes every frame time; {@code --budget} makes the exit code
+ * non-zero when p95 exceeds it. Trailing {@code key=value} pairs override
+ * every frame (e.g. {@code mode=DENSITY}).
+ */
+@Slf4j
+public class SessionReplay {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        String source = "bubble.json";
+        Path session = null;
+        Path csv = null;
+        int width = 1000, height = 800;
+        int warmup = 1, passes = 1;
+        double budgetMs = Double.NaN;
+        List<String> overrides = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--catalog":
+                    source = args[++i];
+                    break;
+                case "--session":
+                    session = Path.of(args[++i]);
+                    break;
+                case "--size":
+                    String[] wh = args[++i].toLowerCase().split("x");
+                    width = Integer.parseInt(wh[0]);
+                    height = Integer.parseInt(wh[1]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--passes":
+                    passes = Integer.parseInt(args[++i]);
+                    break;
+                case "--csv":
+                    csv = Path.of(args[++i]);
+                    break;
+                case "--budget":
+                    budgetMs = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    overrides.add(args[i]);
+            }
+
+        }
+
+        if (session == null)
+            throw new IllegalArgumentException("--session is required");
+
+        List<ViewSpec> frames = SessionRecorder.read(session, new ViewSpec());
+        for (ViewSpec frame : frames)
+            overrides.forEach(frame::set);
+
+        StarCatalog catalog = new StarCatalog(StarLoader.loadStarsFrom(source));
+        HeadlessRenderer renderer = new HeadlessRenderer(catalog);
+
+        for (int p = 0; p < warmup; p++)
+            replay(renderer, frames, width, height);
+
+        long[] times = new long[0];
+        for (int p = 0; p < passes; p++)
+            times = concat(times, replay(renderer, frames, width, height));
+
+        FrameStats stats = FrameStats.of(times);
+        log.info("{} stars, {}x{}: {}", catalog.size(), width, height, stats.summary());
+        System.out.println(stats.summary());
+
+        if (csv != null)
+            writeCsv(csv, frames, times);
+
+        boolean over = !Double.isNaN(budgetMs) && stats.getP95Ms() > budgetMs;
+        if (over)
+            log.error("p95 {} ms is over the {} ms budget", stats.getP95Ms(), budgetMs);
+        System.exit(over ? 1 : 0);
+    }
+
+    /** Render every frame once, in order, into one reused image. Returns nanos per frame. */
+    public static long[] replay(HeadlessRenderer renderer, List<ViewSpec> frames, int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        long[] times = new long[frames.size()];
+
+        try {
+            for (int f = 0; f < times.length; f++) {
+                long start = System.nanoTime();
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, w, h);
+                renderer.render(g, frames.get(f), w, h);
+                times[f] = System.nanoTime() - start;
+            }
+
+        }
+        finally {
+            g.dispose();
+        }
+
+        return times;
+    }
+
+    private static void writeCsv(Path csv, List<ViewSpec> frames, long[] times) throws IOException {
+
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write("pass,frame,name,ms");
+            out.newLine();
+
+            for (int i = 0; i < times.length; i++) {
+                int f = i % frames.size();
+                out
+                        .write(
+                                (i / frames.size()) + "," + f + "," + frames.get(f).getName() + ","
+                                        + times[i] / 1e6
+                        );
+                out.newLine();
+            }
+
+        }
+
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+}
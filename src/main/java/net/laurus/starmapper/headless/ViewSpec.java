@@ -0,0 +1,245 @@
+package net.laurus.starmapper.headless;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.laurus.starmapper.ui.component.Camera;
+import net.laurus.starmapper.ui.render.BrightnessModel;
+import net.laurus.starmapper.ui.render.RenderMode;
+import net.laurus.starmapper.ui.render.StarRenderer;
+
+/**
+ * Everything needed to reproduce one rendered view without a UI: camera
+ * focus, zoom, pan, rotation and renderer options. Parsed from whitespace
+ * separated {@code key=value} pairs, e.g.
+ * {@code name=sol zoom=0.5 rotX=0.3 maxDistance=200 mode=DENSITY}.
+ */
+@Data
+@NoArgsConstructor
+public class ViewSpec {
+
+    private String name;
+
+    private double focusX = 0;
+
+    private double focusY = 0;
+
+    private double focusZ = 0;
+
+    private double zoom = 1.0;
+
+    private double panX = 0;
+
+    private double panY = 0;
+
+    private double rotX = 0;
+
+    private double rotY = 0;
+
+    // Double.MAX_VALUE = no distance filter
+    private double maxDistance = Double.MAX_VALUE;
+
+    private RenderMode mode = RenderMode.POINTS;
+
+    private double minContribution = BrightnessModel.DEFAULT_MIN_CONTRIBUTION;
+
+    private boolean labels = true;
+
+    private boolean depthSorted = false;
+
+    private double depthFade = StarRenderer.DEFAULT_DEPTH_FADE;
+
+    private double exposure = BrightnessModel.DEFAULT_EXPOSURE;
+
+    // False draws every star at the reference size, opaque and unculled
+    private boolean brightness = true;
+
+    private int minPointSize = BrightnessModel.DEFAULT_MIN_POINT_SIZE;
+
+    private int maxPointSize = BrightnessModel.DEFAULT_MAX_POINT_SIZE;
+
+    private double referencePointSize = BrightnessModel.DEFAULT_REFERENCE_POINT_SIZE;
+
+    private boolean antialias = true;
+
+    // Id of the selected star, -1 for none
+    private int selected = -1;
+
+    public ViewSpec(ViewSpec other) {
+        this.name = other.name;
+        this.focusX = other.focusX;
+        this.focusY = other.focusY;
+        this.focusZ = other.focusZ;
+        this.zoom = other.zoom;
+        this.panX = other.panX;
+        this.panY = other.panY;
+        this.rotX = other.rotX;
+        this.rotY = other.rotY;
+        this.maxDistance = other.maxDistance;
+        this.mode = other.mode;
+        this.minContribution = other.minContribution;
+        this.labels = other.labels;
+        this.depthSorted = other.depthSorted;
+        this.depthFade = other.depthFade;
+        this.exposure = other.exposure;
+        this.brightness = other.brightness;
+        this.minPointSize = other.minPointSize;
+        this.maxPointSize = other.maxPointSize;
+        this.referencePointSize = other.referencePointSize;
+        this.antialias = other.antialias;
+        this.selected = other.selected;
+    }
+
+    /**
+     * Capture the live state of a camera and renderer. Antialiasing is a
+     * property of the graphics context, so it is left on for the caller to set.
+     */
+    public static ViewSpec of(Camera cam, StarRenderer renderer, double rotX, double rotY) {
+        ViewSpec v = new ViewSpec();
+        v.focusX = cam.getFocusX();
+        v.focusY = cam.getFocusY();
+        v.focusZ = cam.getFocusZ();
+        v.zoom = cam.getZoom();
+        v.panX = cam.getPanX();
+        v.panY = cam.getPanY();
+        v.rotX = rotX;
+        v.rotY = rotY;
+        v.maxDistance = renderer.getMaxDistance();
+        v.mode = renderer.getRenderMode();
+        BrightnessModel b = renderer.getBrightnessModel();
+        v.minContribution = b.getMinContribution();
+        v.labels = renderer.getLabelLayer().isEnabled();
+        v.depthSorted = renderer.isDepthSorted();
+        v.depthFade = renderer.getDepthFade();
+        v.exposure = b.getExposure();
+        v.brightness = b.isEnabled();
+        v.minPointSize = b.getMinPointSize();
+        v.maxPointSize = b.getMaxPointSize();
+        v.referencePointSize = b.getReferencePointSize();
+        return v;
+    }
+
+    /** Every key as {@code key=value} pairs; {@link #parse} reads it back exactly. */
+    public String toLine() {
+        StringBuilder sb = new StringBuilder(256);
+        if (name != null)
+            sb.append("name=").append(name).append(' ');
+
+        sb.append("focusX=").append(focusX);
+        sb.append(" focusY=").append(focusY);
+        sb.append(" focusZ=").append(focusZ);
+        sb.append(" zoom=").append(zoom);
+        sb.append(" panX=").append(panX);
+        sb.append(" panY=").append(panY);
+        sb.append(" rotX=").append(rotX);
+        sb.append(" rotY=").append(rotY);
+        sb.append(" maxDistance=").append(maxDistance);
+        sb.append(" mode=").append(mode);
+        sb.append(" minContribution=").append(minContribution);
+        sb.append(" labels=").append(labels);
+        sb.append(" depthSorted=").append(depthSorted);
+        sb.append(" depthFade=").append(depthFade);
+        sb.append(" exposure=").append(exposure);
+        sb.append(" brightness=").append(brightness);
+        sb.append(" minPointSize=").append(minPointSize);
+        sb.append(" maxPointSize=").append(maxPointSize);
+        sb.append(" referencePointSize=").append(referencePointSize);
+        sb.append(" antialias=").append(antialias);
+        sb.append(" selected=").append(selected);
+        return sb.toString();
+    }
+
+    /** Parse {@code key=value} pairs on top of a copy of {@code base}. */
+    public static ViewSpec parse(String line, ViewSpec base) {
+        ViewSpec v = new ViewSpec(base);
+
+        for (String token : line.trim().split("\\s+")) {
+            if (!token.isEmpty())
+                v.set(token);
+        }
+
+        return v;
+    }
+
+    /** Apply a single {@code key=value} pair. */
+    public void set(String token) {
+        int eq = token.indexOf('=');
+        if (eq <= 0)
+            throw new IllegalArgumentException("Expected key=value but got: " + token);
+
+        String key = token.substring(0, eq);
+        String value = token.substring(eq + 1);
+
+        switch (key) {
+            case "name":
+                name = value;
+                break;
+            case "focusX":
+                focusX = Double.parseDouble(value);
+                break;
+            case "focusY":
+                focusY = Double.parseDouble(value);
+                break;
+            case "focusZ":
+                focusZ = Double.parseDouble(value);
+                break;
+            case "zoom":
+                zoom = Double.parseDouble(value);
+                break;
+            case "panX":
+                panX = Double.parseDouble(value);
+                break;
+            case "panY":
+                panY = Double.parseDouble(value);
+                break;
+            case "rotX":
+                rotX = Double.parseDouble(value);
+                break;
+            case "rotY":
+                rotY = Double.parseDouble(value);
+                break;
+            case "maxDistance":
+                maxDistance = Double.parseDouble(value);
+                break;
+            case "mode":
+                mode = RenderMode.valueOf(value.toUpperCase());
+                break;
+            case "minContribution":
+                minContribution = Double.parseDouble(value);
+                break;
+            case "labels":
+                labels = Boolean.parseBoolean(value);
+                break;
+            case "depthSorted":
+                depthSorted = Boolean.parseBoolean(value);
+                break;
+            case "depthFade":
+                depthFade = Double.parseDouble(value);
+                break;
+            case "exposure":
+                exposure = Double.parseDouble(value);
+                break;
+            case "brightness":
+                brightness = Boolean.parseBoolean(value);
+                break;
+            case "minPointSize":
+                minPointSize = Integer.parseInt(value);
+                break;
+            case "maxPointSize":
+                maxPointSize = Integer.parseInt(value);
+                break;
+            case "referencePointSize":
+                referencePointSize = Double.parseDouble(value);
+                break;
+            case "antialias":
+                antialias = Boolean.parseBoolean(value);
+                break;
+            case "selected":
+                selected = Integer.parseInt(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown view key: " + key);
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.laurus.starmapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A star file parsed by {@code StarLoader}. */
+@Name("net.laurus.starmapper.CatalogLoad")
+@Label("Catalog Load")
+@Category({ "Star Mapper", "Catalog" })
+@Description("Star catalog read and parsed from JSON")
+@StackTrace(false)
+public class CatalogLoadEvent extends Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytes;
+
+    @Label("Stars")
+    int stars;
+
+    public static CatalogLoadEvent start(String source) {
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        if (event.isEnabled())
+            event.source = source;
+        event.begin();
+        return event;
+    }
+
+    public void finish(long bytes, int stars) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.stars = stars;
+            commit();
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package net.laurus.starmapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** One {@code StarRenderer.render} call; by default only frames over 20 ms. */
+@Name("net.laurus.starmapper.FrameRender")
+@Label("Frame Render")
+@Category({ "Star Mapper", "Rendering" })
+@Description("Stars rendered for one frame, live or headless")
+@Threshold("20 ms")
+@StackTrace(false)
+public class FrameRenderEvent extends Event {
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Stars Drawn")
+    @Description("Stars drawn by the points pass; -1 for the density image")
+    int starsDrawn;
+
+    public static FrameRenderEvent start(int width, int height) {
+        FrameRenderEvent event = new FrameRenderEvent();
+        if (event.isEnabled()) {
+            event.width = width;
+            event.height = height;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    public void finish(String mode, int starsDrawn) {
+        end();
+        if (shouldCommit()) {
+            this.mode = mode;
+            this.starsDrawn = starsDrawn;
+            commit();
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package net.laurus.starmapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One index built (or mapped) over the catalog. */
+@Name("net.laurus.starmapper.IndexBuild")
+@Label("Index Build")
+@Category({ "Star Mapper", "Catalog" })
+@Description("KD-tree, columns, grid, neighbour graph or other index built over the stars")
+@StackTrace(false)
+public class IndexBuildEvent extends Event {
+
+    @Label("Index")
+    String index;
+
+    @Label("Stars")
+    int stars;
+
+    public static IndexBuildEvent start(String index, int stars) {
+        IndexBuildEvent event = new IndexBuildEvent();
+        if (event.isEnabled()) {
+            event.index = index;
+            event.stars = stars;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    public void finish() {
+        commit();
+    }
+
+}
@@ -0,0 +1,41 @@
+package net.laurus.starmapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A star name lookup, as typed into the search box. */
+@Name("net.laurus.starmapper.Search")
+@Label("Star Search")
+@Category({ "Star Mapper", "Query" })
+@Description("Catalog searched for a star by name")
+@StackTrace(false)
+public class SearchEvent extends Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Found")
+    boolean found;
+
+    public static SearchEvent start(String query) {
+        SearchEvent event = new SearchEvent();
+        if (event.isEnabled())
+            event.query = query;
+        event.begin();
+        return event;
+    }
+
+    public void finish(boolean found) {
+        end();
+        if (shouldCommit()) {
+            this.found = found;
+            commit();
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package net.laurus.starmapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One spatial lookup: nearest star, range query, pick, region selection,
+ * route or join. These can run thousands of times a second, so by default
+ * only ones taking 1 ms or more are recorded; lower the threshold in the
+ * recording settings to see more.
+ */
+@Name("net.laurus.starmapper.SpatialQuery")
+@Label("Spatial Query")
+@Category({ "Star Mapper", "Query" })
+@Description("Nearest, range, pick, region, route or join query over the catalog")
+@Threshold("1 ms")
+@StackTrace(false)
+public class SpatialQueryEvent extends Event {
+
+    @Label("Type")
+    String type;
+
+    @Label("Radius (pc)")
+    @Description("Search radius or jump range; NaN where there is none")
+    double radius;
+
+    @Label("Results")
+    @Description("Matches found; -1 where the query was cancelled part way")
+    int results;
+
+    public static SpatialQueryEvent start(String type, double radius) {
+        SpatialQueryEvent event = new SpatialQueryEvent();
+        // Fields are only filled while a recording has this event enabled
+        if (event.isEnabled()) {
+            event.type = type;
+            event.radius = radius;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    public void finish(int results) {
+        end();
+        if (shouldCommit()) {
+            this.results = results;
+            commit();
+        }
+
+    }
+
+}
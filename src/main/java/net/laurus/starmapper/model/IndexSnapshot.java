@@ -0,0 +1,216 @@
+package net.laurus.starmapper.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+
+/**
+ * The lookup indexes of a {@link StarCatalog} (KD-tree layout, id index and
+ * name index) saved to one file and memory-mapped back, so a catalog seen
+ * before opens without building any of them.
+ * <p>
+ * Files are named by the catalog's content hash, so a changed catalog simply
+ * misses and is rebuilt. The header holds a format version and a CRC-32C of
+ * the payload, which is checked on load; a bad or stale file is ignored.
+ * Snapshots of other catalogs are left alone, since several catalogs may
+ * share a directory; delete old ones by hand. Each section is mapped on its
+ * own, so a file may pass 2 GB.
+ */
+@Slf4j
+@Getter
+public class IndexSnapshot {
+
+    /** System property naming a directory where index snapshots are kept */
+    public static final String DIR_PROPERTY = "starmapper.indexDir";
+
+    private static final int MAGIC = 0x534d4958; // "SMIX"
+
+    private static final int VERSION = 1;
+
+    // magic, version, content hash, size, named stars, checksum
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 8;
+
+    private static final String PREFIX = "index-";
+
+    private static final String SUFFIX = ".snap";
+
+    /** Most stars a snapshot holds: the id index section must fit one 2 GB mapping */
+    public static final int MAX_STARS = Integer.MAX_VALUE / 8;
+
+    private final long contentHash;
+
+    private final int size;
+
+    // (id << 32 | catalog index) sorted
+    private final LongBuffer idIndex;
+
+    // KDTree layout over catalog indices
+    private final IntBuffer kdOrder;
+
+    // Catalog indices of named stars, by name ignoring case then index
+    private final IntBuffer nameIndex;
+
+    public IndexSnapshot(
+            long contentHash,
+            int size,
+            LongBuffer idIndex,
+            IntBuffer kdOrder,
+            IntBuffer nameIndex
+    ) {
+        this.contentHash = contentHash;
+        this.size = size;
+        this.idIndex = idIndex;
+        this.kdOrder = kdOrder;
+        this.nameIndex = nameIndex;
+    }
+
+    /** File name for a catalog hash. */
+    public static String fileName(long contentHash) {
+        return String.format(PREFIX + "%016x" + SUFFIX, contentHash);
+    }
+
+    /**
+     * The snapshot in {@code dir} for a catalog with this hash and size, or
+     * null if there is none or it is unusable.
+     */
+    public static IndexSnapshot find(Path dir, long contentHash, int size) {
+        Path file = dir.resolve(fileName(contentHash));
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try {
+            IndexSnapshot snapshot = load(file);
+            if (snapshot.contentHash == contentHash && snapshot.size == size)
+                return snapshot;
+            log.warn("Index snapshot {} does not match the catalog, rebuilding", file);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Failed to load index snapshot {}, rebuilding", file, e);
+        }
+
+        return null;
+    }
+
+    /** Memory-map a snapshot written by {@link #save}, verifying its checksum. */
+    public static IndexSnapshot load(Path file) throws IOException {
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES)
+                throw new IOException("Not an index snapshot (or wrong version): " + file);
+
+            ByteBuffer header = ch.map(MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not an index snapshot (or wrong version): " + file);
+
+            long hash = header.getLong();
+            int n = header.getInt();
+            IndexBuildEvent event = IndexBuildEvent.start("index snapshot (mapped)", n);
+            int named = header.getInt();
+            long checksum = header.getLong();
+            long expected = HEADER_BYTES + 8L * n + 4L * n + 4L * named;
+            if (n < 0 || n > MAX_STARS || named < 0 || named > n || ch.size() != expected)
+                throw new IOException("Truncated index snapshot: " + file);
+
+            long at = HEADER_BYTES;
+            ByteBuffer ids = section(ch, MapMode.READ_ONLY, at, 8L * n);
+            at += 8L * n;
+            ByteBuffer kd = section(ch, MapMode.READ_ONLY, at, 4L * n);
+            at += 4L * n;
+            ByteBuffer names = section(ch, MapMode.READ_ONLY, at, 4L * named);
+            LongBuffer idIndex = ids.asLongBuffer();
+            IntBuffer kdOrder = kd.asIntBuffer();
+            IntBuffer nameIndex = names.asIntBuffer();
+
+            // The views above are taken first; the checksum consumes the byte buffers
+            CRC32C crc = new CRC32C();
+            crc.update(ids);
+            crc.update(kd);
+            crc.update(names);
+            if (crc.getValue() != checksum)
+                throw new IOException("Index snapshot checksum mismatch: " + file);
+
+            event.finish();
+            log.info("Mapped index snapshot {}: {} stars", file, n);
+            return new IndexSnapshot(hash, n, idIndex, kdOrder, nameIndex);
+        }
+
+    }
+
+    // One section of the file as its own mapping, so the file may pass 2 GB
+    private static MappedByteBuffer section(FileChannel ch, MapMode mode, long at, long bytes)
+            throws IOException {
+        MappedByteBuffer buf = ch.map(mode, at, bytes);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    /** Write the snapshot; written to a temporary file then renamed into place. */
+    public void save(Path file) throws IOException {
+        if (size > MAX_STARS)
+            throw new IOException("Too many stars for an index snapshot: " + size);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "index", ".tmp");
+        int named = nameIndex.remaining();
+
+        try (FileChannel ch = FileChannel
+                .open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MapMode mode = MapMode.READ_WRITE;
+            CRC32C crc = new CRC32C();
+            long at = HEADER_BYTES;
+
+            MappedByteBuffer buf = section(ch, mode, at, 8L * size);
+            for (int i = 0; i < size; i++)
+                buf.putLong(idIndex.get(i));
+            finish(buf, crc);
+            at += 8L * size;
+
+            buf = section(ch, mode, at, 4L * size);
+            for (int i = 0; i < size; i++)
+                buf.putInt(kdOrder.get(i));
+            finish(buf, crc);
+            at += 4L * size;
+
+            buf = section(ch, mode, at, 4L * named);
+            for (int i = 0; i < named; i++)
+                buf.putInt(nameIndex.get(i));
+            finish(buf, crc);
+
+            buf = section(ch, mode, 0, HEADER_BYTES);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(contentHash);
+            buf.putInt(size).putInt(named).putLong(crc.getValue());
+            buf.force();
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Saved index snapshot to {}", file);
+    }
+
+    // Add a filled section to the checksum and write it out
+    private static void finish(MappedByteBuffer buf, CRC32C crc) {
+        buf.flip();
+        crc.update(buf);
+        buf.force();
+    }
+
+}
@@ -0,0 +1,308 @@
+package net.laurus.starmapper.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+
+/**
+ * Every pair of stars within a fixed radius, in compressed sparse row form:
+ * the neighbours of catalog index {@code i} are entries
+ * {@code [start(i), end(i))} of one neighbour array (ascending), with their
+ * distances alongside as floats.
+ * <p>
+ * Built in parallel from a {@link SpatialGrid}. A graph saved with
+ * {@link #save} is memory-mapped by {@link #load}, so it is built once per
+ * catalog release and opened instantly afterwards; files are keyed by the
+ * catalog's content hash and the radius. Each section of the file is mapped
+ * on its own, so a file may pass 2 GB, but a section (and so the edge count)
+ * is capped at {@link #MAX_EDGES} entries.
+ */
+@Slf4j
+public class NeighbourGraph {
+
+    /** System property naming a directory where graphs are cached */
+    public static final String DIR_PROPERTY = "starmapper.graphDir";
+
+    private static final int MAGIC = 0x534d4e47; // "SMNG"
+
+    private static final int VERSION = 1;
+
+    // magic, version, content hash, radius, size, edges
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+
+    /** Most edges a graph may have: four-byte entries in one buffer of at most 2 GB */
+    public static final int MAX_EDGES = Integer.MAX_VALUE / 4;
+
+    @Getter
+    private final long contentHash;
+
+    @Getter
+    private final double radius;
+
+    @Getter
+    private final int size;
+
+    private final IntBuffer offsets;
+
+    private final IntBuffer neighbours;
+
+    private final FloatBuffer distances;
+
+    private NeighbourGraph(
+            long contentHash,
+            double radius,
+            int size,
+            IntBuffer offsets,
+            IntBuffer neighbours,
+            FloatBuffer distances
+    ) {
+        this.contentHash = contentHash;
+        this.radius = radius;
+        this.size = size;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.distances = distances;
+    }
+
+    /**
+     * Compute the graph for {@code radius} parsecs, one parallel task per star.
+     *
+     * @throws IllegalStateException if there would be more than {@link #MAX_EDGES} edges
+     */
+    public static NeighbourGraph build(StarCatalog catalog, double radius) {
+        long begin = System.nanoTime();
+        IndexBuildEvent event = IndexBuildEvent.start("neighbour graph", catalog.size());
+        StarColumns columns = catalog.getColumns();
+        SpatialGrid grid = SpatialGrid.build(columns, radius);
+        int n = columns.getSize();
+
+        // Pass 1: degrees, then offsets by prefix sum
+        int[] offsets = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] count = new int[1];
+            grid
+                    .forEachWithin(
+                            columns.x(i), columns.y(i), columns.z(i), radius, j -> {
+                                if (j != i)
+                                    count[0]++;
+                            }
+                    );
+            offsets[i + 1] = count[0];
+        });
+
+        long edges = 0;
+
+        for (int i = 0; i < n; i++) {
+            edges += offsets[i + 1];
+            if (edges > MAX_EDGES)
+                throw new IllegalStateException(
+                        "More than " + MAX_EDGES + " edges within " + radius + " pc"
+                );
+
+            offsets[i + 1] = (int) edges;
+        }
+
+        // Pass 2: each star fills and sorts its own row
+        int[] neighbours = new int[(int) edges];
+        float[] distances = new float[(int) edges];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] at = { offsets[i] };
+            grid
+                    .forEachWithin(
+                            columns.x(i), columns.y(i), columns.z(i), radius, j -> {
+                                if (j != i)
+                                    neighbours[at[0]++] = j;
+                            }
+                    );
+            Arrays.sort(neighbours, offsets[i], offsets[i + 1]);
+
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int j = neighbours[k];
+                double dx = columns.x(j) - columns.x(i);
+                double dy = columns.y(j) - columns.y(i);
+                double dz = columns.z(j) - columns.z(i);
+                distances[k] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+
+        });
+
+        event.finish();
+        log
+                .info(
+                        "Built neighbour graph: {} stars, {} edges within {} pc in {} ms", n,
+                        edges, radius, (System.nanoTime() - begin) / 1_000_000
+                );
+        return new NeighbourGraph(
+                catalog.getContentHash(), radius, n, IntBuffer.wrap(offsets), IntBuffer
+                        .wrap(neighbours), FloatBuffer.wrap(distances)
+        );
+    }
+
+    /**
+     * Map the cached graph for this catalog and radius from {@code dir}, or
+     * build and save it if there is none (or it is unreadable).
+     */
+    public static NeighbourGraph loadOrBuild(StarCatalog catalog, double radius, Path dir) {
+        Path file = dir.resolve(fileName(catalog.getContentHash(), radius));
+
+        if (Files.isRegularFile(file)) {
+            try {
+                NeighbourGraph graph = load(file);
+                if (graph.contentHash == catalog.getContentHash() && graph.radius == radius
+                        && graph.size == catalog.size())
+                    return graph;
+                log.warn("Neighbour graph {} does not match the catalog, rebuilding", file);
+            }
+            catch (IOException | RuntimeException e) {
+                log.warn("Failed to load neighbour graph {}, rebuilding", file, e);
+            }
+
+        }
+
+        NeighbourGraph graph = build(catalog, radius);
+
+        try {
+            graph.save(file);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Failed to save neighbour graph {}", file, e);
+        }
+
+        return graph;
+    }
+
+    /** File name for a catalog hash and radius. */
+    public static String fileName(long contentHash, double radius) {
+        return String.format("neighbours-%016x-%s.csr", contentHash, Double.toString(radius));
+    }
+
+    /** Memory-map a graph written by {@link #save}. */
+    public static NeighbourGraph load(Path file) throws IOException {
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES)
+                throw new IOException("Truncated neighbour graph: " + file);
+
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a neighbour graph (or wrong version): " + file);
+
+            long hash = header.getLong();
+            double radius = header.getDouble();
+            int n = header.getInt();
+            int edges = header.getInt();
+            if (n < 0 || n >= MAX_EDGES || edges < 0 || edges > MAX_EDGES)
+                throw new IOException("Corrupt neighbour graph header: " + file);
+
+            IndexBuildEvent event = IndexBuildEvent.start("neighbour graph (mapped)", n);
+            long at = HEADER_BYTES + 4L * (n + 1);
+            if (ch.size() != at + 8L * edges)
+                throw new IOException("Truncated neighbour graph: " + file);
+
+            MapMode mode = MapMode.READ_ONLY;
+            IntBuffer offsets = section(ch, mode, HEADER_BYTES, n + 1).asIntBuffer();
+            IntBuffer neighbours = section(ch, mode, at, edges).asIntBuffer();
+            FloatBuffer distances = section(ch, mode, at + 4L * edges, edges).asFloatBuffer();
+
+            event.finish();
+            log.info("Mapped neighbour graph {}: {} stars, {} edges", file, n, edges);
+            return new NeighbourGraph(hash, radius, n, offsets, neighbours, distances);
+        }
+
+    }
+
+    // One section of four-byte entries as its own mapping
+    private static MappedByteBuffer section(FileChannel ch, MapMode mode, long at, int entries)
+            throws IOException {
+        MappedByteBuffer buf = ch.map(mode, at, 4L * entries);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    /** Write the graph; written to a temporary file then renamed into place. */
+    public void save(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "neighbours", ".tmp");
+        int edges = edgeCount();
+        long at = HEADER_BYTES + 4L * (size + 1);
+
+        try (FileChannel ch = FileChannel
+                .open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MapMode mode = MapMode.READ_WRITE;
+            MappedByteBuffer header = ch.map(mode, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(contentHash).putDouble(radius);
+            header.putInt(size).putInt(edges);
+            header.force();
+
+            MappedByteBuffer buf = section(ch, mode, HEADER_BYTES, size + 1);
+            for (int i = 0; i <= size; i++)
+                buf.putInt(offsets.get(i));
+            buf.force();
+
+            buf = section(ch, mode, at, edges);
+            for (int k = 0; k < edges; k++)
+                buf.putInt(neighbours.get(k));
+            buf.force();
+
+            buf = section(ch, mode, at + 4L * edges, edges);
+            for (int k = 0; k < edges; k++)
+                buf.putFloat(distances.get(k));
+            buf.force();
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Saved neighbour graph to {}", file);
+    }
+
+    public int edgeCount() {
+        return offsets.get(size);
+    }
+
+    public int degree(int i) {
+        return offsets.get(i + 1) - offsets.get(i);
+    }
+
+    /** First entry of star {@code i}'s row. */
+    public int start(int i) {
+        return offsets.get(i);
+    }
+
+    /** One past the last entry of star {@code i}'s row. */
+    public int end(int i) {
+        return offsets.get(i + 1);
+    }
+
+    /** Catalog index at entry {@code k}. */
+    public int neighbour(int k) {
+        return neighbours.get(k);
+    }
+
+    /** Distance (parsecs) at entry {@code k}. */
+    public float distance(int k) {
+        return distances.get(k);
+    }
+
+}
@@ -0,0 +1,109 @@
+package net.laurus.starmapper.model;
+
+import lombok.Value;
+
+/**
+ * Aggregates over a {@link StarSelection}: count, centroid, bounding box (in
+ * catalog parsecs) and a histogram of luminosity in half-decade bins.
+ */
+@Value
+public class SelectionStats {
+
+    /** log10 luminosity at the lower edge of the first histogram bin */
+    public static final double HISTOGRAM_MIN_LOG = -2.0;
+
+    public static final double HISTOGRAM_BIN_WIDTH = 0.5;
+
+    // -2 .. 10 in log10 solar luminosities; outliers land in the end bins
+    public static final int HISTOGRAM_BINS = 24;
+
+    int count;
+
+    double centroidX, centroidY, centroidZ;
+
+    double minX, minY, minZ;
+
+    double maxX, maxY, maxZ;
+
+    int[] histogram;
+
+    /** Lower luminosity (solar units) of histogram bin {@code b}. */
+    public static double binLowerLuminosity(int b) {
+        return Math.pow(10, HISTOGRAM_MIN_LOG + b * HISTOGRAM_BIN_WIDTH);
+    }
+
+    public String summary() {
+        if (count == 0)
+            return "no stars";
+
+        return String
+                .format(
+                        "%d stars, centroid (%.1f, %.1f, %.1f), extent %.1f x %.1f x %.1f pc",
+                        count, centroidX, centroidY, centroidZ, maxX - minX, maxY - minY,
+                        maxZ - minZ
+                );
+    }
+
+    /** Mutable per-thread accumulator; merged pairwise then frozen. */
+    static final class Builder {
+
+        private int count;
+
+        private double sumX, sumY, sumZ;
+
+        private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+                minZ = Double.POSITIVE_INFINITY;
+
+        private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY,
+                maxZ = Double.NEGATIVE_INFINITY;
+
+        private final int[] histogram = new int[HISTOGRAM_BINS];
+
+        void add(double x, double y, double z, double luminosity) {
+            count++;
+            sumX += x;
+            sumY += y;
+            sumZ += z;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+
+            int bin = (int) Math
+                    .floor((Math.log10(luminosity) - HISTOGRAM_MIN_LOG) / HISTOGRAM_BIN_WIDTH);
+            histogram[Math.max(0, Math.min(HISTOGRAM_BINS - 1, bin))]++;
+        }
+
+        Builder merge(Builder o) {
+            count += o.count;
+            sumX += o.sumX;
+            sumY += o.sumY;
+            sumZ += o.sumZ;
+            minX = Math.min(minX, o.minX);
+            minY = Math.min(minY, o.minY);
+            minZ = Math.min(minZ, o.minZ);
+            maxX = Math.max(maxX, o.maxX);
+            maxY = Math.max(maxY, o.maxY);
+            maxZ = Math.max(maxZ, o.maxZ);
+
+            for (int b = 0; b < HISTOGRAM_BINS; b++)
+                histogram[b] += o.histogram[b];
+
+            return this;
+        }
+
+        SelectionStats build() {
+            if (count == 0)
+                return new SelectionStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, new int[HISTOGRAM_BINS]);
+
+            return new SelectionStats(
+                    count, sumX / count, sumY / count, sumZ / count, minX, minY, minZ, maxX, maxY,
+                    maxZ, histogram.clone()
+            );
+        }
+
+    }
+
+}
@@ -0,0 +1,321 @@
+package net.laurus.starmapper.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import lombok.Getter;
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+
+/**
+ * Uniform grid over the catalog columns for fixed-radius neighbour queries.
+ * Only occupied cells are stored: their packed keys sorted, and the catalog
+ * indices of each cell's stars contiguous in one array, so memory is O(n)
+ * whatever the catalog's extent. Cells are found through an open-addressing
+ * hash of their keys, and star coordinates are copied in cell order, so a
+ * query is a few probes per cell plus linear runs over primitive arrays.
+ * Immutable and safe to share.
+ */
+public class SpatialGrid {
+
+    // Cell coordinates are unbounded longs, folded to their low 21 bits per axis for
+    // the key. Cells 2^21 apart along every axis share a bucket, which costs a few
+    // extra distance checks but is never wrong, however large the catalog
+    private static final int AXIS_BITS = 21;
+
+    private static final int AXIS_MASK = (1 << AXIS_BITS) - 1;
+
+    // Free hash slot; real keys are non-negative
+    private static final long EMPTY = -1L;
+
+    @Getter
+    private final double cellSize;
+
+    // Stars of cell c (cells by ascending key) are items[cellStart[c]..cellStart[c+1])
+    private final int[] cellStart;
+
+    private final int[] items;
+
+    // Coordinates of items[k], so queries read them sequentially
+    private final double[] itemX;
+
+    private final double[] itemY;
+
+    private final double[] itemZ;
+
+    // Linear-probing table, at most half full: cell keys (EMPTY if free) and cell indices
+    private final long[] slotKeys;
+
+    private final int[] slotCells;
+
+    private final int mask;
+
+    /** Receives one unordered pair of catalog indices and their squared distance. */
+    @FunctionalInterface
+    public interface PairConsumer {
+
+        void accept(int i, int j, double distanceSq);
+
+    }
+
+    private SpatialGrid(
+            StarColumns columns,
+            double cellSize,
+            int[] cellStart,
+            int[] items,
+            long[] slotKeys,
+            int[] slotCells
+    ) {
+        this.cellSize = cellSize;
+        this.cellStart = cellStart;
+        this.items = items;
+        this.slotKeys = slotKeys;
+        this.slotCells = slotCells;
+        this.mask = slotKeys.length - 1;
+        this.itemX = new double[items.length];
+        this.itemY = new double[items.length];
+        this.itemZ = new double[items.length];
+
+        for (int k = 0; k < items.length; k++) {
+            itemX[k] = columns.x(items[k]);
+            itemY[k] = columns.y(items[k]);
+            itemZ[k] = columns.z(items[k]);
+        }
+
+    }
+
+    public static SpatialGrid build(StarColumns columns, double cellSize) {
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+
+        int n = columns.getSize();
+        IndexBuildEvent event = IndexBuildEvent.start("grid", n);
+        long[] keys = new long[n];
+
+        for (int i = 0; i < n; i++)
+            keys[i] = key(
+                    cell(columns.x(i), cellSize), cell(columns.y(i), cellSize), cell(
+                            columns.z(i), cellSize
+                    )
+            );
+
+        long[] sorted = keys.clone();
+        Arrays.parallelSort(sorted);
+        int cells = 0;
+
+        for (int k = 0; k < n; k++) {
+            if (k == 0 || sorted[k] != sorted[k - 1])
+                sorted[cells++] = sorted[k];
+        }
+
+        long[] cellKeys = Arrays.copyOf(sorted, cells);
+        int capacity = Integer.highestOneBit(Math.max(2, cells) * 2 - 1) << 1;
+        long[] slotKeys = new long[capacity];
+        int[] slotCells = new int[capacity];
+        int mask = capacity - 1;
+        Arrays.fill(slotKeys, EMPTY);
+
+        for (int c = 0; c < cells; c++) {
+            int slot = hash(cellKeys[c]) & mask;
+            while (slotKeys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            slotKeys[slot] = cellKeys[c];
+            slotCells[slot] = c;
+        }
+
+        // Counting sort by cell keeps each cell's stars in catalog order
+        int[] cellOf = new int[n];
+        int[] cellStart = new int[cells + 1];
+
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cellIndex(slotKeys, slotCells, mask, keys[i]);
+            cellStart[cellOf[i] + 1]++;
+        }
+
+        for (int c = 0; c < cells; c++)
+            cellStart[c + 1] += cellStart[c];
+
+        int[] fill = Arrays.copyOf(cellStart, cells);
+        int[] items = new int[n];
+
+        for (int i = 0; i < n; i++)
+            items[fill[cellOf[i]]++] = i;
+
+        SpatialGrid grid = new SpatialGrid(
+                columns, cellSize, cellStart, items, slotKeys, slotCells
+        );
+        event.finish();
+        return grid;
+    }
+
+    static long cell(double v, double cellSize) {
+        return (long) Math.floor(v / cellSize);
+    }
+
+    static long key(long cx, long cy, long cz) {
+        return ((cx & AXIS_MASK) << (2 * AXIS_BITS)) | ((cy & AXIS_MASK) << AXIS_BITS)
+                | (cz & AXIS_MASK);
+    }
+
+    public int cellCount() {
+        return cellStart.length - 1;
+    }
+
+    /**
+     * Catalog index of the {@code k}-th star in cell order. Queries made in
+     * this order touch the same few cells and stars over and over, so they
+     * mostly hit cache, where catalog (brightness) order is spatially random.
+     */
+    public int inCellOrder(int k) {
+        return items[k];
+    }
+
+    /**
+     * Call {@code action} with the catalog index of every star within
+     * {@code radius} parsecs of (x, y, z), in no particular order.
+     */
+    public void forEachWithin(double x, double y, double z, double radius, IntConsumer action) {
+        double rSq = radius * radius;
+        long x0 = cell(x - radius, cellSize), x1 = cell(x + radius, cellSize);
+        long y0 = cell(y - radius, cellSize), y1 = cell(y + radius, cellSize);
+        long z0 = cell(z - radius, cellSize), z1 = cell(z + radius, cellSize);
+
+        // Wider than the key space, folded cells would repeat: check every star instead
+        if (x1 - x0 > AXIS_MASK || y1 - y0 > AXIS_MASK || z1 - z0 > AXIS_MASK) {
+            for (int k = 0; k < items.length; k++)
+                within(k, x, y, z, rSq, action);
+
+            return;
+        }
+
+        // Cells whose box misses the sphere (e.g. most corners) are not even looked up
+        for (long cx = x0; cx <= x1; cx++) {
+            double gx = gap(x, cx);
+            double gxSq = gx * gx;
+
+            for (long cy = y0; cy <= y1; cy++) {
+                double gy = gap(y, cy);
+                double gxySq = gxSq + gy * gy;
+                if (gxySq > rSq)
+                    continue;
+
+                for (long cz = z0; cz <= z1; cz++) {
+                    double gz = gap(z, cz);
+                    if (gxySq + gz * gz > rSq)
+                        continue;
+
+                    int c = cellIndex(key(cx, cy, cz));
+                    if (c < 0)
+                        continue;
+
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++)
+                        within(k, x, y, z, rSq, action);
+
+                }
+
+            }
+
+        }
+
+    }
+
+    private void within(int k, double x, double y, double z, double rSq, IntConsumer action) {
+        double dx = itemX[k] - x;
+        double dy = itemY[k] - y;
+        double dz = itemZ[k] - z;
+        if (dx * dx + dy * dy + dz * dz <= rSq)
+            action.accept(items[k]);
+    }
+
+    /**
+     * Call {@code action} once for every pair of stars within {@code radius}
+     * of each other that has its first star in cell {@code c}. The other star
+     * is in the same cell or in one of the 13 neighbouring cells with a larger
+     * key, so running this over all cells reports every pair exactly once.
+     * Folding keeps that true: a bucket's neighbours are the same buckets
+     * whichever of its stars they are taken from. Needs
+     * {@code radius <= cellSize}.
+     */
+    public void forEachPairFrom(int c, double radius, PairConsumer action) {
+        if (radius > cellSize)
+            throw new IllegalArgumentException("Radius " + radius + " exceeds cell size");
+
+        double rSq = radius * radius;
+        int from = cellStart[c], to = cellStart[c + 1];
+
+        for (int k = from; k < to; k++) {
+            for (int l = k + 1; l < to; l++)
+                pairIfWithin(k, l, rSq, action);
+
+        }
+
+        long cx = cell(itemX[from], cellSize);
+        long cy = cell(itemY[from], cellSize);
+        long cz = cell(itemZ[from], cellSize);
+
+        for (int dx = 0; dx <= 1; dx++) {
+            for (int dy = dx == 0 ? 0 : -1; dy <= 1; dy++) {
+                for (int dz = dx == 0 && dy == 0 ? 1 : -1; dz <= 1; dz++) {
+                    int other = cellIndex(key(cx + dx, cy + dy, cz + dz));
+                    if (other < 0)
+                        continue;
+
+                    for (int k = from; k < to; k++) {
+                        for (int l = cellStart[other]; l < cellStart[other + 1]; l++)
+                            pairIfWithin(k, l, rSq, action);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+    }
+
+    private void pairIfWithin(int k, int l, double rSq, PairConsumer action) {
+        double dx = itemX[l] - itemX[k];
+        double dy = itemY[l] - itemY[k];
+        double dz = itemZ[l] - itemZ[k];
+        double dSq = dx * dx + dy * dy + dz * dz;
+        if (dSq <= rSq)
+            action.accept(items[k], items[l], dSq);
+    }
+
+    // Distance from v to cell c along one axis; 0 inside it
+    private double gap(double v, long c) {
+        double lo = c * cellSize;
+        if (v < lo)
+            return lo - v;
+
+        double hi = lo + cellSize;
+        return v > hi ? v - hi : 0;
+    }
+
+    /** Index of the occupied cell with this key, or -1. */
+    private int cellIndex(long key) {
+        return cellIndex(slotKeys, slotCells, mask, key);
+    }
+
+    private static int cellIndex(long[] slotKeys, int[] slotCells, int mask, long key) {
+        int slot = hash(key) & mask;
+
+        while (true) {
+            long k = slotKeys[slot];
+            if (k == key)
+                return slotCells[slot];
+            if (k == EMPTY)
+                return -1;
+            slot = (slot + 1) & mask;
+        }
+
+    }
+
+    // Scrambles the x/y column but adds z linearly, so the cells a query reads
+    // along z sit in neighbouring slots, usually one cache line
+    private static int hash(long key) {
+        long h = (key >>> AXIS_BITS) * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) + (int) (key & AXIS_MASK);
+    }
+
+}
@@ -0,0 +1,251 @@
+package net.laurus.starmapper.model;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+import net.laurus.starmapper.jfr.SearchEvent;
+import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.ui.component.MagnitudeIndex;
+
+/**
+ * A loaded star list together with the indexes built over it. Built once and
+ * then shared read-only, so the panel, headless renderers and background jobs
+ * can all use the same catalog without rebuilding anything.
+ * <p>
+ * Stars are held brightest first, so a star's catalog index equals its
+ * {@link MagnitudeIndex} rank and the stars surviving magnitude culling are a
+ * contiguous prefix of the {@link StarColumns}.
+ * <p>
+ * Given a snapshot directory, the KD-tree and the id and name indexes are
+ * mapped from an {@link IndexSnapshot} of the same content when there is one,
+ * and saved as one after being built when there is not.
+ */
+@Slf4j
+@Getter
+public class StarCatalog {
+
+    // Catalog order; columns are index-aligned with this list
+    private final List<Star> stars;
+
+    private final StarColumns columns;
+
+    private final KDTree kdtree;
+
+    private final MagnitudeIndex magnitudeIndex;
+
+    // 64-bit fingerprint of the star data, for keying derived on-disk artefacts
+    private final long contentHash;
+
+    // (id << 32 | catalog index) sorted, built on first id lookup
+    @Getter(AccessLevel.NONE)
+    private volatile LongBuffer idIndex;
+
+    // Catalog indices of named stars by name ignoring case, then index; built on first search
+    @Getter(AccessLevel.NONE)
+    private volatile IntBuffer nameIndex;
+
+    /** Uses the snapshot directory named by {@link IndexSnapshot#DIR_PROPERTY}, if set. */
+    public StarCatalog(List<Star> stars) {
+        this(stars, snapshotDir());
+    }
+
+    /** @param snapshotDir directory of index snapshots, or null to always build */
+    public StarCatalog(List<Star> stars, Path snapshotDir) {
+        if (stars == null || stars.isEmpty()) {
+            throw new IllegalArgumentException("Star list must not be null or empty");
+        }
+
+        List<Star> ordered = new ArrayList<>(stars);
+        ordered
+                .sort(
+                        Comparator
+                                .comparingDouble(MagnitudeIndex::luminosityOf)
+                                .reversed()
+                );
+        this.stars = Collections.unmodifiableList(ordered);
+        IndexBuildEvent event = IndexBuildEvent.start("columns", ordered.size());
+        this.columns = Boolean.getBoolean(StarColumns.COMPACT_PROPERTY)
+                ? StarColumns.compact(this.stars)
+                : StarColumns.of(this.stars);
+        event.finish();
+
+        this.magnitudeIndex = new MagnitudeIndex(this.stars);
+        this.contentHash = hash(this.stars);
+
+        IndexSnapshot snapshot = snapshotDir != null
+                ? IndexSnapshot.find(snapshotDir, contentHash, ordered.size())
+                : null;
+
+        if (snapshot != null) {
+            this.kdtree = new KDTree(this.stars, snapshot.getKdOrder());
+            this.idIndex = snapshot.getIdIndex();
+            this.nameIndex = snapshot.getNameIndex();
+        }
+        else {
+            this.kdtree = new KDTree(this.stars);
+            if (snapshotDir != null)
+                saveSnapshot(snapshotDir);
+        }
+
+    }
+
+    private static Path snapshotDir() {
+        String dir = System.getProperty(IndexSnapshot.DIR_PROPERTY);
+        return dir != null ? Path.of(dir) : null;
+    }
+
+    private void saveSnapshot(Path dir) {
+        IndexSnapshot snapshot = new IndexSnapshot(
+                contentHash, size(), buildIdIndex(), kdtree.getOrder(), buildNameIndex()
+        );
+
+        try {
+            snapshot.save(dir.resolve(IndexSnapshot.fileName(contentHash)));
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Failed to save index snapshot to {}", dir, e);
+        }
+
+    }
+
+    private static long hash(List<Star> stars) {
+        long h = 0xcbf29ce484222325L;
+
+        for (Star s : stars) {
+            h = mix(h, s.getId());
+            h = mix(h, Double.doubleToLongBits(s.getX()));
+            h = mix(h, Double.doubleToLongBits(s.getY()));
+            h = mix(h, Double.doubleToLongBits(s.getZ()));
+            h = mix(h, Double.doubleToLongBits(s.getMagnitude()));
+            h = mix(h, s.getName() != null ? s.getName().hashCode() : 0);
+            StarColour c = s.getColour();
+            if (c != null) {
+                h = mix(h, Double.doubleToLongBits(c.getRed()));
+                h = mix(h, Double.doubleToLongBits(c.getGreen()));
+                h = mix(h, Double.doubleToLongBits(c.getBlue()));
+            }
+
+        }
+
+        return h;
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0x100000001b3L;
+        return h ^ (h >>> 29);
+    }
+
+    public int size() {
+        return stars.size();
+    }
+
+    /**
+     * Catalog index of the star with the given id, or -1. If ids repeat the
+     * brightest such star wins.
+     */
+    public int indexOfId(int id) {
+        LongBuffer index = idIndex;
+        if (index == null)
+            index = buildIdIndex();
+
+        long lowest = (long) id << 32;
+        int lo = 0, hi = index.limit();
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.get(mid) < lowest)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo < index.limit() && (int) (index.get(lo) >> 32) == id ? (int) index.get(lo) : -1;
+    }
+
+    /** The star with the given id, or null. */
+    public Star byId(int id) {
+        int i = indexOfId(id);
+        return i >= 0 ? stars.get(i) : null;
+    }
+
+    /**
+     * The first star in catalog order (so the brightest) whose name equals
+     * {@code name} ignoring case, or null. A binary search of the name index.
+     * The control panel's search used to take the first match in file order
+     * instead, so where entries share a name it may now pick another, brighter
+     * one; unnamed stars, which made the old search throw, never match.
+     */
+    public Star findByName(String name) {
+        SearchEvent event = SearchEvent.start(name);
+        IntBuffer index = nameIndex;
+        if (index == null)
+            index = buildNameIndex();
+
+        int lo = 0, hi = index.limit();
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(nameAt(index, mid), name) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        Star found = lo < index.limit() && name.equalsIgnoreCase(nameAt(index, lo))
+                ? stars.get(index.get(lo))
+                : null;
+        event.finish(found != null);
+        return found;
+    }
+
+    private String nameAt(IntBuffer index, int k) {
+        return stars.get(index.get(k)).getName();
+    }
+
+    private synchronized LongBuffer buildIdIndex() {
+        if (idIndex == null) {
+            long[] index = new long[stars.size()];
+
+            for (int i = 0; i < index.length; i++)
+                index[i] = ((long) stars.get(i).getId() << 32) | i;
+
+            Arrays.sort(index);
+            idIndex = LongBuffer.wrap(index);
+        }
+
+        return idIndex;
+    }
+
+    private synchronized IntBuffer buildNameIndex() {
+        if (nameIndex == null) {
+            IndexBuildEvent event = IndexBuildEvent.start("names", stars.size());
+            Comparator<Integer> byName = Comparator
+                    .comparing(i -> stars.get(i).getName(), String.CASE_INSENSITIVE_ORDER);
+            int[] index = IntStream
+                    .range(0, stars.size())
+                    .filter(i -> stars.get(i).getName() != null)
+                    .boxed()
+                    .sorted(byName.thenComparingInt(i -> i))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            nameIndex = IntBuffer.wrap(index);
+            event.finish();
+        }
+
+        return nameIndex;
+    }
+
+}
@@ -0,0 +1,215 @@
+package net.laurus.starmapper.model;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.ui.component.MagnitudeIndex;
+
+/**
+ * Column-oriented copy of a star list: coordinates and colour held in primitive
+ * arrays, index-aligned with the source list. Bulk passes iterate these instead
+ * of chasing {@link Star} objects.
+ * <p>
+ * Coordinates are either plain doubles or, in compact mode, 32-bit fixed
+ * point offsets from the centre of the catalog's bounding box, in one
+ * power-of-two step per catalog: 12 bytes per star in place of 24, read with
+ * plain loads. The step is the box's span over 2^32, about 1e-6 pc for a
+ * catalog a few kpc across. Use {@link #x(int)} etc. to read a coordinate
+ * regardless of mode.
+ */
+@Slf4j
+@Getter
+public class StarColumns {
+
+    /** System property: set to true to build catalogs with compact coordinates */
+    public static final String COMPACT_PROPERTY = "starmapper.compactCoordinates";
+
+    /**
+     * Largest coordinate error (parsecs) compact mode may introduce. A pixel at
+     * the maximum 5x zoom is 0.02 pc, so this is well below anything visible
+     * or pickable; catalogs that would exceed it (over about 4 Mpc across)
+     * keep double coordinates.
+     */
+    public static final double MAX_COMPACT_ERROR = 1e-3;
+
+    private final int size;
+
+    // Full coordinates, or null in compact mode
+    private final double[] x;
+
+    private final double[] y;
+
+    private final double[] z;
+
+    // Compact mode: the origin, the step and each star's offset in steps, otherwise null
+    private double originX, originY, originZ;
+
+    private double quantum;
+
+    private final int[] offsetX;
+
+    private final int[] offsetY;
+
+    private final int[] offsetZ;
+
+    // Worst absolute coordinate error actually introduced by compact storage
+    private double maxError;
+
+    private final float[] red;
+
+    private final float[] green;
+
+    private final float[] blue;
+
+    // Luminosity as used for brightness (see MagnitudeIndex.luminosityOf)
+    private final double[] luminosity;
+
+    private StarColumns(int size, boolean compact) {
+        this.size = size;
+
+        if (compact) {
+            this.x = this.y = this.z = null;
+            this.offsetX = new int[size];
+            this.offsetY = new int[size];
+            this.offsetZ = new int[size];
+        }
+        else {
+            this.x = new double[size];
+            this.y = new double[size];
+            this.z = new double[size];
+            this.offsetX = this.offsetY = this.offsetZ = null;
+        }
+
+        this.red = new float[size];
+        this.green = new float[size];
+        this.blue = new float[size];
+        this.luminosity = new double[size];
+    }
+
+    public static StarColumns of(List<Star> stars) {
+        StarColumns c = new StarColumns(stars.size(), false);
+
+        for (int i = 0; i < c.size; i++) {
+            Star s = stars.get(i);
+            c.x[i] = s.getX();
+            c.y[i] = s.getY();
+            c.z[i] = s.getZ();
+            c.fill(i, s);
+        }
+
+        return c;
+    }
+
+    /**
+     * Compact columns, or full ones if the offsets would exceed
+     * {@link #MAX_COMPACT_ERROR}, which happens for catalogs over about 4 Mpc
+     * across or with non-finite coordinates. It is logged as a warning, and
+     * {@link #isCompact()} tells callers which they got.
+     */
+    public static StarColumns compact(List<Star> stars) {
+        StarColumns c = new StarColumns(stars.size(), true);
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+        for (Star s : stars) {
+            minX = Math.min(minX, s.getX());
+            maxX = Math.max(maxX, s.getX());
+            minY = Math.min(minY, s.getY());
+            maxY = Math.max(maxY, s.getY());
+            minZ = Math.min(minZ, s.getZ());
+            maxZ = Math.max(maxZ, s.getZ());
+        }
+
+        c.originX = (minX + maxX) / 2;
+        c.originY = (minY + maxY) / 2;
+        c.originZ = (minZ + maxZ) / 2;
+        // Either side, as the rounded midpoint need not be exactly central
+        double hx = Math.max(maxX - c.originX, c.originX - minX);
+        double hy = Math.max(maxY - c.originY, c.originY - minY);
+        double hz = Math.max(maxZ - c.originZ, c.originZ - minZ);
+        double halfSpan = Math.max(hx, Math.max(hy, hz));
+        c.quantum = quantumFor(halfSpan);
+
+        for (int i = 0; i < c.size; i++) {
+            Star s = stars.get(i);
+            c.offsetX[i] = c.quantise(s.getX() - c.originX);
+            c.offsetY[i] = c.quantise(s.getY() - c.originY);
+            c.offsetZ[i] = c.quantise(s.getZ() - c.originZ);
+            c.fill(i, s);
+        }
+
+        for (int i = 0; i < c.size; i++) {
+            Star s = stars.get(i);
+            double err = Math.abs(c.x(i) - s.getX());
+            err = Math.max(err, Math.abs(c.y(i) - s.getY()));
+            err = Math.max(err, Math.abs(c.z(i) - s.getZ()));
+            // NaN compares false, so catch it explicitly
+            c.maxError = Double.isNaN(err) ? Double.POSITIVE_INFINITY : Math.max(c.maxError, err);
+        }
+
+        if (!(c.maxError <= MAX_COMPACT_ERROR)) {
+            log
+                    .warn(
+                            "Compact coordinates requested for {} stars but would be off by up to"
+                                    + " {} pc (limit {}); falling back to double coordinates",
+                            c.size, c.maxError, MAX_COMPACT_ERROR
+                    );
+            return of(stars);
+        }
+
+        log
+                .info(
+                        "Compact coordinates: {} stars, step {} pc, max error {} pc", c.size,
+                        c.quantum, c.maxError
+                );
+        return c;
+    }
+
+    /**
+     * Smallest power of two step that keeps offsets up to {@code halfSpan}
+     * inside an int once rounded. A power of two makes decoding exact.
+     */
+    private static double quantumFor(double halfSpan) {
+        double least = halfSpan / (Integer.MAX_VALUE - 1);
+        if (!(least > Double.MIN_NORMAL))
+            return Double.MIN_NORMAL;
+        return Math.scalb(1.0, Math.getExponent(least) + 1);
+    }
+
+    private int quantise(double offset) {
+        return (int) Math.round(offset / quantum);
+    }
+
+    public boolean isCompact() {
+        return x == null;
+    }
+
+    public double x(int i) {
+        return x != null ? x[i] : originX + offsetX[i] * quantum;
+    }
+
+    public double y(int i) {
+        return y != null ? y[i] : originY + offsetY[i] * quantum;
+    }
+
+    public double z(int i) {
+        return z != null ? z[i] : originZ + offsetZ[i] * quantum;
+    }
+
+    private void fill(int i, Star s) {
+        luminosity[i] = MagnitudeIndex.luminosityOf(s);
+
+        // Stars without a colour are drawn white
+        StarColour col = s.getColour();
+        red[i] = col != null ? clamp(col.getRed()) : 1f;
+        green[i] = col != null ? clamp(col.getGreen()) : 1f;
+        blue[i] = col != null ? clamp(col.getBlue()) : 1f;
+    }
+
+    private static float clamp(double d) {
+        return (float) Math.max(0.0, Math.min(1.0, d));
+    }
+
+}
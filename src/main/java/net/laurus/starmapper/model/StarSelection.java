@@ -0,0 +1,89 @@
+package net.laurus.starmapper.model;
+
+import java.util.stream.IntStream;
+
+import lombok.Getter;
+
+/**
+ * A set of stars held as a bitset over catalog indices: one bit per star, so
+ * even a selection of millions costs n/8 bytes and membership is a shift and
+ * a mask. Immutable once built.
+ */
+public class StarSelection {
+
+    // Words summarised per parallel task when computing stats
+    private static final int STATS_CHUNK_WORDS = 1 << 12;
+
+    private final long[] words;
+
+    @Getter
+    private final int catalogSize;
+
+    @Getter
+    private final int count;
+
+    private StarSelection(long[] words, int catalogSize) {
+        this.words = words;
+        this.catalogSize = catalogSize;
+        int c = 0;
+
+        for (long w : words)
+            c += Long.bitCount(w);
+
+        this.count = c;
+    }
+
+    /** Wrap a bitset of {@code (catalogSize + 63) / 64} words; the array is not copied. */
+    public static StarSelection of(long[] words, int catalogSize) {
+        if (words.length != (catalogSize + 63) >>> 6)
+            throw new IllegalArgumentException("Bitset does not match a catalog of " + catalogSize);
+        return new StarSelection(words, catalogSize);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean contains(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** First selected index at or after {@code from}, or -1. */
+    public int nextSetBit(int from) {
+        if (from >= catalogSize)
+            return -1;
+
+        int w = from >>> 6;
+        long bits = words[w] & (-1L << from);
+
+        while (bits == 0) {
+            if (++w == words.length)
+                return -1;
+            bits = words[w];
+        }
+
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /** Aggregate statistics, computed in parallel straight from the bitset. */
+    public SelectionStats stats(StarColumns columns) {
+        int chunks = (words.length + STATS_CHUNK_WORDS - 1) / STATS_CHUNK_WORDS;
+
+        return IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            SelectionStats.Builder b = new SelectionStats.Builder();
+            int end = Math.min(words.length, (c + 1) * STATS_CHUNK_WORDS);
+
+            for (int w = c * STATS_CHUNK_WORDS; w < end; w++) {
+                long bits = words[w];
+                while (bits != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    b.add(columns.x(i), columns.y(i), columns.z(i), columns.getLuminosity()[i]);
+                }
+            }
+
+            return b;
+        }).reduce(SelectionStats.Builder::merge).orElseGet(SelectionStats.Builder::new).build();
+    }
+
+}
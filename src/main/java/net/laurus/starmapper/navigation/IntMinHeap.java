@@ -0,0 +1,80 @@
+package net.laurus.starmapper.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int items keyed by double priorities, in two parallel
+ * primitive arrays. There is no decrease-key: callers push an item again with
+ * the better priority and skip stale entries when they are popped.
+ */
+final class IntMinHeap {
+
+    private int[] items = new int[256];
+
+    private double[] keys = new double[256];
+
+    private int size;
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void push(int item, double key) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+
+        int k = size++;
+
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+            items[k] = items[parent];
+            keys[k] = keys[parent];
+            k = parent;
+        }
+
+        items[k] = item;
+        keys[k] = key;
+    }
+
+    /** Priority of the top item; the heap must not be empty. */
+    double peekKey() {
+        return keys[0];
+    }
+
+    /** Remove and return the item with the lowest priority; the heap must not be empty. */
+    int pop() {
+        int top = items[0];
+        int item = items[--size];
+        double key = keys[size];
+        int k = 0;
+        int half = size >>> 1;
+
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (key <= keys[child])
+                break;
+            items[k] = items[child];
+            keys[k] = keys[child];
+            k = child;
+        }
+
+        items[k] = item;
+        keys[k] = key;
+        return top;
+    }
+
+}
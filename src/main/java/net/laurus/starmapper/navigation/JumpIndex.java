@@ -0,0 +1,85 @@
+package net.laurus.starmapper.navigation;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.NeighbourGraph;
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.StarCatalog;
+
+/**
+ * The neighbour indexes route searches over one catalog read: per jump range,
+ * a {@link SpatialGrid} with the range as its cell size or, given a graph
+ * directory, the cached {@link NeighbourGraph} for that range. Both are
+ * read-only, so planners on many threads can share one of these and each
+ * index is built once; the few most recently used ranges are kept.
+ */
+@Slf4j
+public class JumpIndex {
+
+    // Jump ranges whose index is kept; the least recently used is dropped first
+    private static final int RANGES = 4;
+
+    @Getter
+    private final StarCatalog catalog;
+
+    // Where neighbour graphs are cached, or null to use grids
+    private final Path graphDir;
+
+    private final Map<Double, Neighbours> byRange = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, Neighbours> eldest) {
+            return size() > RANGES;
+        }
+
+    };
+
+    /** One range's index: the graph, or the grid when there is none. */
+    @Value
+    static class Neighbours {
+
+        SpatialGrid grid;
+
+        NeighbourGraph graph;
+
+    }
+
+    /** @param graphDir directory of cached neighbour graphs, or null to search grids */
+    public JumpIndex(StarCatalog catalog, Path graphDir) {
+        this.catalog = catalog;
+        this.graphDir = graphDir;
+    }
+
+    /** The index for {@code jumpRange}; the first caller builds it while others wait. */
+    synchronized Neighbours forRange(double jumpRange) {
+        Neighbours n = byRange.get(jumpRange);
+        if (n != null)
+            return n;
+
+        NeighbourGraph graph = graphDir != null ? graph(jumpRange) : null;
+        SpatialGrid grid = graph == null ? SpatialGrid.build(catalog.getColumns(), jumpRange)
+                : null;
+        n = new Neighbours(grid, graph);
+        byRange.put(jumpRange, n);
+        return n;
+    }
+
+    // The cached graph, or null (search a grid) when it has too many edges to hold
+    private NeighbourGraph graph(double jumpRange) {
+
+        try {
+            return NeighbourGraph.loadOrBuild(catalog, jumpRange, graphDir);
+        }
+        catch (IllegalStateException e) {
+            log.warn("No neighbour graph for {} pc, searching a grid instead", jumpRange, e);
+            return null;
+        }
+
+    }
+
+}
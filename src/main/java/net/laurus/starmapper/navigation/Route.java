@@ -0,0 +1,41 @@
+package net.laurus.starmapper.navigation;
+
+import lombok.Value;
+
+/**
+ * Result of a {@link RoutePlanner} search. The path holds catalog indices
+ * from start to goal and is empty when the goal is unreachable.
+ */
+@Value
+public class Route {
+
+    int[] path;
+
+    // Total distance along the path, parsecs
+    double distance;
+
+    // Systems taken off the open set during the search
+    int expanded;
+
+    long nanos;
+
+    public boolean isFound() {
+        return path.length > 0;
+    }
+
+    public int getJumps() {
+        return Math.max(0, path.length - 1);
+    }
+
+    public String summary() {
+        if (!isFound())
+            return String.format("no route (%d systems searched)", expanded);
+
+        return String
+                .format(
+                        "%d jumps, %.1f pc (%d systems searched in %.1f ms)", getJumps(), distance,
+                        expanded, nanos / 1e6
+                );
+    }
+
+}
@@ -0,0 +1,14 @@
+package net.laurus.starmapper.navigation;
+
+/**
+ * What {@link RoutePlanner} minimises.
+ */
+public enum RouteMode {
+
+    /** Least total distance travelled */
+    SHORTEST,
+
+    /** Least number of jumps, whatever the distance */
+    FEWEST_JUMPS
+
+}
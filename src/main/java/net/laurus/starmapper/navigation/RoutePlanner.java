@@ -0,0 +1,256 @@
+package net.laurus.starmapper.navigation;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
+import net.laurus.starmapper.model.NeighbourGraph;
+import net.laurus.starmapper.model.SpatialGrid;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * A* route search between two stars where each jump may be at most a given
+ * range. Neighbours come from a {@link SpatialGrid} with the jump range as
+ * its cell size, so expanding a system reads at most 27 cells; or, when a
+ * graph directory is given, from the cached {@link NeighbourGraph} for that
+ * range, which is then a single row read. Both are held by a
+ * {@link JumpIndex}, which planners on different threads may share.
+ * <p>
+ * Search state lives in primitive arrays sized to the catalog and reused
+ * across searches; a per-search stamp marks which entries are current, so
+ * starting a search costs nothing however large the catalog. One planner
+ * runs one search at a time.
+ */
+@Slf4j
+public class RoutePlanner {
+
+    // Expansions between cancellation checks
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final StarCatalog catalog;
+
+    private final StarColumns columns;
+
+    private final JumpIndex index;
+
+    // Neighbour index for the last jump range used, from the JumpIndex: one is set
+    private SpatialGrid grid;
+
+    private NeighbourGraph graph;
+
+    // Best known cost, parent and open/closed state per star; valid where stamp matches
+    private double[] cost;
+
+    private int[] parent;
+
+    private int[] seen;
+
+    private int[] closed;
+
+    private int stamp;
+
+    private final IntMinHeap open = new IntMinHeap();
+
+    private final IntConsumer relax = this::relax;
+
+    // The system being expanded, read by relax()
+    private int current;
+
+    private double currentCost;
+
+    private int goal;
+
+    private RouteMode mode;
+
+    private double range;
+
+    // FEWEST_JUMPS: weight that makes distance only break ties between equal jump counts
+    private double tieWeight;
+
+    public RoutePlanner(StarCatalog catalog) {
+        this(catalog, null);
+    }
+
+    /** @param graphDir directory of cached neighbour graphs, or null to search a grid */
+    public RoutePlanner(StarCatalog catalog, Path graphDir) {
+        this(new JumpIndex(catalog, graphDir));
+    }
+
+    /** A planner over a shared index; only its search state is its own. */
+    public RoutePlanner(JumpIndex index) {
+        this.index = index;
+        this.catalog = index.getCatalog();
+        this.columns = catalog.getColumns();
+    }
+
+    /**
+     * Plan between two star ids. Returns null if cancelled; an unreachable goal
+     * gives a route whose path is empty.
+     */
+    public synchronized Route plan(
+            int fromId,
+            int toId,
+            double jumpRange,
+            RouteMode mode,
+            BooleanSupplier cancelled
+    ) {
+        int from = catalog.indexOfId(fromId);
+        int to = catalog.indexOfId(toId);
+        if (from < 0 || to < 0)
+            throw new IllegalArgumentException("Unknown star id: " + (from < 0 ? fromId : toId));
+
+        return planIndices(from, to, jumpRange, mode, cancelled);
+    }
+
+    /** As {@link #plan}, with catalog indices instead of star ids. */
+    public synchronized Route planIndices(
+            int from,
+            int to,
+            double jumpRange,
+            RouteMode mode,
+            BooleanSupplier cancelled
+    ) {
+        if (!(jumpRange > 0))
+            throw new IllegalArgumentException("Jump range must be positive: " + jumpRange);
+
+        SpatialQueryEvent event = SpatialQueryEvent.start("route", jumpRange);
+        Route route = search(from, to, jumpRange, mode, cancelled);
+        event.finish(route != null ? route.getPath().length : 0);
+        return route;
+    }
+
+    private Route search(
+            int from,
+            int to,
+            double jumpRange,
+            RouteMode mode,
+            BooleanSupplier cancelled
+    ) {
+        long start = System.nanoTime();
+        prepare(jumpRange);
+        this.goal = to;
+        this.mode = mode;
+        this.range = jumpRange;
+        this.tieWeight = 1.0 / (columns.getSize() * jumpRange + 1);
+
+        open.clear();
+        visit(from, 0, -1);
+        int expanded = 0;
+
+        while (!open.isEmpty()) {
+            int n = open.pop();
+            if (closed[n] == stamp)
+                continue;
+
+            closed[n] = stamp;
+            expanded++;
+
+            if (n == to)
+                return new Route(path(to), pathDistance(to), expanded, System.nanoTime() - start);
+
+            if (expanded % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean())
+                return null;
+
+            current = n;
+            currentCost = cost[n];
+
+            if (graph != null) {
+                for (int k = graph.start(n), end = graph.end(n); k < end; k++)
+                    relax(graph.neighbour(k));
+            }
+            else {
+                grid.forEachWithin(columns.x(n), columns.y(n), columns.z(n), jumpRange, relax);
+            }
+
+        }
+
+        log.debug("No route within {} pc jumps after {} systems", jumpRange, expanded);
+        return new Route(new int[0], 0, expanded, System.nanoTime() - start);
+    }
+
+    private void prepare(double jumpRange) {
+        boolean ready = graph != null ? graph.getRadius() == jumpRange
+                : grid != null && grid.getCellSize() == jumpRange;
+        if (!ready) {
+            JumpIndex.Neighbours neighbours = index.forRange(jumpRange);
+            grid = neighbours.getGrid();
+            graph = neighbours.getGraph();
+        }
+
+        if (cost == null) {
+            int n = columns.getSize();
+            cost = new double[n];
+            parent = new int[n];
+            seen = new int[n];
+            closed = new int[n];
+        }
+
+        // Stamps start at 1 so the zeroed arrays read as "not this search"
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            stamp = 1;
+        }
+
+    }
+
+    private void relax(int m) {
+        if (m == current || closed[m] == stamp)
+            return;
+
+        double step = mode == RouteMode.SHORTEST ? distance(current, m)
+                : 1 + distance(current, m) * tieWeight;
+        double g = currentCost + step;
+        if (seen[m] != stamp || g < cost[m])
+            visit(m, g, current);
+    }
+
+    private void visit(int i, double g, int from) {
+        seen[i] = stamp;
+        cost[i] = g;
+        parent[i] = from;
+        open.push(i, g + heuristic(i));
+    }
+
+    // Admissible and consistent: no route can be shorter, or need fewer jumps
+    private double heuristic(int i) {
+        double d = distance(i, goal);
+        if (mode == RouteMode.SHORTEST)
+            return d;
+        return Math.ceil(d / range) + d * tieWeight;
+    }
+
+    private double distance(int a, int b) {
+        double dx = columns.x(a) - columns.x(b);
+        double dy = columns.y(a) - columns.y(b);
+        double dz = columns.z(a) - columns.z(b);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private int[] path(int to) {
+        int length = 0;
+
+        for (int i = to; i >= 0; i = parent[i])
+            length++;
+
+        int[] path = new int[length];
+        for (int i = to, k = length - 1; i >= 0; i = parent[i], k--)
+            path[k] = i;
+
+        return path;
+    }
+
+    private double pathDistance(int to) {
+        double d = 0;
+
+        for (int i = to; parent[i] >= 0; i = parent[i])
+            d += distance(i, parent[i]);
+
+        return d;
+    }
+
+}
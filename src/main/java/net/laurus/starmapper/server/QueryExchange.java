@@ -0,0 +1,224 @@
+package net.laurus.starmapper.server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import lombok.Getter;
+
+/**
+ * One request to the {@link QueryServer}: query string parameters, a body of
+ * points (JSON or binary) or JSON, and a response in the format the client
+ * asked for.
+ * <p>
+ * Binary bodies and responses are big-endian ({@link DataOutputStream} order)
+ * and are used when the request's {@code Content-Type}, respectively
+ * {@code Accept}, header is {@value #BINARY}.
+ */
+public class QueryExchange {
+
+    public static final String BINARY = "application/octet-stream";
+
+    public static final String JSON = "application/json";
+
+    /** Most queries (points, names or routes) in one request */
+    public static final int MAX_BATCH = 100_000;
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Getter
+    private final HttpExchange exchange;
+
+    private final Map<String, String> params = new HashMap<>();
+
+    @Getter
+    private final boolean binary;
+
+    public QueryExchange(HttpExchange exchange) {
+        this.exchange = exchange;
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0)
+                    params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        this.binary = accept != null && accept.contains(BINARY);
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    public String param(String name, String fallback) {
+        return params.getOrDefault(name, fallback);
+    }
+
+    public double param(String name, double fallback) {
+        String v = params.get(name);
+
+        try {
+            return v != null ? Double.parseDouble(v) : fallback;
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number for " + name + ": " + v);
+        }
+
+    }
+
+    public int param(String name, int fallback) {
+        String v = params.get(name);
+
+        try {
+            return v != null ? Integer.parseInt(v) : fallback;
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad integer for " + name + ": " + v);
+        }
+
+    }
+
+    private boolean binaryBody() {
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        return type != null && type.startsWith(BINARY);
+    }
+
+    /**
+     * Query points as x, y, z triples: a JSON array of {@code [x, y, z]}
+     * arrays, or a binary body of doubles.
+     */
+    public double[] points() throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if (binaryBody())
+            return binaryPoints(in);
+
+        // Streamed, so an oversized batch is refused before it is all in memory
+        try (JsonParser p = MAPPER.getFactory().createParser(in)) {
+            if (p.nextToken() != JsonToken.START_ARRAY)
+                throw new IllegalArgumentException("Expected a JSON array of [x, y, z] points");
+
+            double[] xyz = new double[3 * 64];
+            int n = 0;
+
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                checkBatch(n + 1);
+                if (p.currentToken() != JsonToken.START_ARRAY)
+                    throw new IllegalArgumentException("Point " + n + " is not [x, y, z]");
+                if (3 * n == xyz.length)
+                    xyz = Arrays.copyOf(xyz, 2 * xyz.length);
+
+                for (int a = 0; a < 3; a++) {
+                    if (p.nextToken() == null || !p.currentToken().isNumeric())
+                        throw new IllegalArgumentException("Point " + n + " is not [x, y, z]");
+                    xyz[3 * n + a] = p.getDoubleValue();
+                }
+
+                if (p.nextToken() != JsonToken.END_ARRAY)
+                    throw new IllegalArgumentException("Point " + n + " is not [x, y, z]");
+                n++;
+            }
+
+            return Arrays.copyOf(xyz, 3 * n);
+        }
+
+    }
+
+    private static double[] binaryPoints(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(24 * MAX_BATCH + 1);
+        checkBatch((body.length + 23) / 24);
+        if (body.length % 24 != 0)
+            throw new IllegalArgumentException("Binary body is not whole x, y, z doubles");
+
+        double[] xyz = new double[body.length / 8];
+        ByteBuffer.wrap(body).asDoubleBuffer().get(xyz);
+        return xyz;
+    }
+
+    /** Read and drop the request body. */
+    public void discardBody() {
+
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        catch (IOException e) {
+            // The reply that follows will fail too, and be dropped
+        }
+
+    }
+
+    /** The body as a JSON array, refused as soon as it runs past the batch limit. */
+    public JsonNode jsonArray() throws IOException {
+
+        try (JsonParser p = MAPPER.getFactory().createParser(exchange.getRequestBody())) {
+            if (p.nextToken() != JsonToken.START_ARRAY)
+                throw new IllegalArgumentException("Expected a JSON array");
+
+            ArrayNode array = MAPPER.createArrayNode();
+
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                checkBatch(array.size() + 1);
+                array.add(MAPPER.<JsonNode>readTree(p));
+            }
+
+            return array;
+        }
+
+    }
+
+    static void checkBatch(int size) {
+        if (size > MAX_BATCH)
+            throw new IllegalArgumentException("Batch larger than " + MAX_BATCH);
+    }
+
+    /** Start a 200 JSON response; the caller closes the generator. */
+    public JsonGenerator json() throws IOException {
+        return MAPPER.getFactory().createGenerator(begin(200, JSON), JsonEncoding.UTF8);
+    }
+
+    /** Start a 200 binary response; the caller closes the stream. */
+    public DataOutputStream data() throws IOException {
+        return new DataOutputStream(begin(200, BINARY));
+    }
+
+    private OutputStream begin(int status, String type) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedOutputStream(exchange.getResponseBody(), 1 << 16);
+    }
+
+    /** Send a short JSON error body and close the exchange. */
+    public void error(int status, String message) throws IOException {
+
+        try (JsonGenerator g = MAPPER
+                .getFactory()
+                .createGenerator(begin(status, JSON), JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeStringField("error", message);
+            g.writeEndObject();
+        }
+
+    }
+
+}
@@ -0,0 +1,558 @@
+package net.laurus.starmapper.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.navigation.JumpIndex;
+import net.laurus.starmapper.navigation.Route;
+import net.laurus.starmapper.navigation.RouteMode;
+import net.laurus.starmapper.navigation.RoutePlanner;
+import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.util.StarLoader;
+
+/**
+ * Headless HTTP service answering batched lookups against one shared, read-only
+ * {@link StarCatalog}, for tools that cannot use the Swing application.
+ *
+ * <pre>
+ * QueryServer [--catalog file|resource] [--bind host] [--port N] [--threads N]
+ *             [--queue N] [--index-dir dir]
+ * </pre>
+ *
+ * Endpoints (POST a batch, parameters in the query string):
+ * <ul>
+ * <li>{@code /nearest?maxDistance=d}: points, the nearest star to each</li>
+ * <li>{@code /knn?k=n&maxDistance=d}: points, the k nearest stars to each</li>
+ * <li>{@code /range?radius=r&limit=n}: points, the nearest {@code limit}
+ * stars within {@code radius} of each</li>
+ * <li>{@code /search}: a JSON array of names, the brightest star with each</li>
+ * <li>{@code /route?jumpRange=r&mode=shortest|fewest_jumps}: a JSON array of
+ * {@code {"from": id, "to": id}}, a route for each; routes not found within
+ * one shared time budget per request come back timed out</li>
+ * <li>{@code GET /metrics}: request counts, latency percentiles and queue
+ * state</li>
+ * </ul>
+ * Points are described in {@link QueryExchange}. Results are JSON unless the
+ * request accepts {@value QueryExchange#BINARY}.
+ * <p>
+ * Requests run on a fixed pool of workers with a bounded queue. When the queue
+ * is full a request is answered 503 at once, so a client sees overload and can
+ * back off instead of waiting in an ever longer line.
+ */
+@Slf4j
+public class QueryServer {
+
+    public static final int DEFAULT_PORT = 8765;
+
+    // Most results per point for knn and range
+    private static final int MAX_RESULTS = 10_000;
+
+    // Routes of one request still searching after this long are given up
+    private static final long ROUTE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Requests waiting for a 503 before the dispatcher sends them itself
+    private static final int REJECT_QUEUE = 1024;
+
+    // Set while a request is being turned away
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+    @Getter
+    private final StarCatalog catalog;
+
+    private final KDTree kdtree;
+
+    private final HttpServer server;
+
+    private final ThreadPoolExecutor workers;
+
+    // Answers turned-away requests, so reading their bodies never holds up the dispatcher
+    private final ThreadPoolExecutor rejecter;
+
+    @Getter
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    // Workers share the neighbour grids; each has its own planner for the search state
+    private final ThreadLocal<RoutePlanner> planners;
+
+    /** An endpoint: answers the request and returns how many queries it held. */
+    private interface Endpoint {
+
+        int handle(QueryExchange q) throws IOException;
+
+    }
+
+    public QueryServer(
+            StarCatalog catalog,
+            InetSocketAddress address,
+            int threads,
+            int queueCapacity
+    ) throws IOException {
+        this.catalog = catalog;
+        this.kdtree = catalog.getKdtree();
+        JumpIndex jumps = new JumpIndex(catalog, null);
+        this.planners = ThreadLocal.withInitial(() -> new RoutePlanner(jumps));
+
+        this.workers = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemons("query-worker-"),
+                this::shed
+        );
+        // If even this backs up, the dispatcher answers itself, which slows accepting
+        this.rejecter = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(REJECT_QUEUE),
+                daemons("query-reject-"), new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(workers);
+        context("/nearest", "POST", this::nearest);
+        context("/knn", "POST", this::knn);
+        context("/range", "POST", this::range);
+        context("/search", "POST", this::search);
+        context("/route", "POST", this::routes);
+        context("/metrics", "GET", this::metrics);
+    }
+
+    private static ThreadFactory daemons(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        String source = "bubble.json";
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 256;
+        Path indexDir = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--catalog":
+                    source = args[++i];
+                    break;
+                case "--bind":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                case "--index-dir":
+                    indexDir = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+
+        }
+
+        List<Star> stars = StarLoader.loadStarsFrom(source);
+        StarCatalog catalog = indexDir != null ? new StarCatalog(stars, indexDir)
+                : new StarCatalog(stars);
+        QueryServer server = new QueryServer(
+                catalog, new InetSocketAddress(host, port), Math.max(1, threads), queue
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "query-server-stop"));
+        server.start();
+    }
+
+    public void start() {
+        server.start();
+        int queue = workers.getQueue().remainingCapacity();
+        log
+                .info(
+                        "Query server on {} with {} workers, queue {}, {} stars",
+                        server.getAddress(), workers.getMaximumPoolSize(), queue, catalog.size()
+                );
+    }
+
+    /** Stop accepting, give open requests a second to finish, then stop the workers. */
+    public void stop() {
+        server.stop(1);
+        workers.shutdown();
+        rejecter.shutdown();
+        log.info("Query server stopped");
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    // Called on the dispatcher thread: the request is answered 503 without any query work
+    private void shed(Runnable request, ThreadPoolExecutor pool) {
+        if (pool.isShutdown())
+            return;
+
+        rejecter.execute(() -> {
+            SHEDDING.set(true);
+
+            try {
+                request.run();
+            }
+            finally {
+                SHEDDING.set(false);
+            }
+
+        });
+    }
+
+    private void context(String path, String method, Endpoint endpoint) {
+        String name = path.substring(1);
+
+        server.createContext(path, exchange -> {
+            QueryExchange q = new QueryExchange(exchange);
+
+            if (SHEDDING.get()) {
+                // Counted here: the pool also sheds the server's own connection work
+                metrics.rejected();
+                // Read the body first, or the client may see a reset instead of the 503
+                q.discardBody();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                reply(q, 503, "Server busy, retry later");
+                return;
+            }
+
+            long start = System.nanoTime();
+            int queries = 0;
+            boolean failed = true;
+
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    reply(q, 405, "Use " + method);
+                }
+                else {
+                    queries = endpoint.handle(q);
+                    failed = false;
+                }
+
+            }
+            catch (IllegalArgumentException | JsonProcessingException e) {
+                reply(q, 400, e.getMessage());
+            }
+            catch (IOException | RuntimeException e) {
+                log.warn("Query {} failed", name, e);
+                reply(q, 500, e.toString());
+            }
+            finally {
+                exchange.close();
+                metrics.record(name, System.nanoTime() - start, queries, failed);
+            }
+
+        });
+    }
+
+    // An error reply, unless the response was already under way (then just drop it)
+    private static void reply(QueryExchange q, int status, String message) {
+        if (q.getExchange().getResponseCode() != -1)
+            return;
+
+        try {
+            q.error(status, message);
+        }
+        catch (IOException e) {
+            log.debug("Could not send {} reply", status, e);
+        }
+        finally {
+            q.getExchange().close();
+        }
+
+    }
+
+    private int nearest(QueryExchange q) throws IOException {
+        double maxDistance = q.param("maxDistance", Double.POSITIVE_INFINITY);
+        double[] xyz = q.points();
+        int n = xyz.length / 3;
+        Star[] found = new Star[n];
+
+        for (int i = 0; i < n; i++)
+            found[i] = kdtree.nearest(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], maxDistance);
+
+        if (q.isBinary()) {
+            try (DataOutputStream out = q.data()) {
+                for (int i = 0; i < n; i++) {
+                    Star s = found[i];
+                    out.writeInt(s != null ? s.getId() : -1);
+                    out.writeFloat(s != null ? (float) distance(s, xyz, i) : Float.NaN);
+                }
+
+            }
+
+        }
+        else {
+            try (JsonGenerator g = q.json()) {
+                g.writeStartArray();
+
+                for (int i = 0; i < n; i++) {
+                    if (found[i] != null)
+                        writeStar(g, found[i], distance(found[i], xyz, i));
+                    else
+                        g.writeNull();
+                }
+
+                g.writeEndArray();
+            }
+
+        }
+
+        return n;
+    }
+
+    private int knn(QueryExchange q) throws IOException {
+        int k = q.param("k", 10);
+        if (k <= 0 || k > MAX_RESULTS)
+            throw new IllegalArgumentException("k must be 1 to " + MAX_RESULTS + ": " + k);
+
+        double maxDistance = q.param("maxDistance", Double.POSITIVE_INFINITY);
+        double[] xyz = q.points();
+        writeLists(q, xyz, i -> {
+            double x = xyz[3 * i], y = xyz[3 * i + 1], z = xyz[3 * i + 2];
+            return kdtree.nearest(x, y, z, k, maxDistance);
+        });
+        return xyz.length / 3;
+    }
+
+    private int range(QueryExchange q) throws IOException {
+        double radius = q.param("radius", Double.NaN);
+        if (!(radius > 0))
+            throw new IllegalArgumentException("radius must be positive");
+
+        int limit = q.param("limit", 1000);
+        if (limit <= 0 || limit > MAX_RESULTS)
+            throw new IllegalArgumentException("limit must be 1 to " + MAX_RESULTS + ": " + limit);
+
+        double[] xyz = q.points();
+        // Only the nearest limit stars within the radius are ever held
+        writeLists(q, xyz, i -> {
+            double x = xyz[3 * i], y = xyz[3 * i + 1], z = xyz[3 * i + 2];
+            return kdtree.nearestWithin(x, y, z, limit, radius);
+        });
+        return xyz.length / 3;
+    }
+
+    /**
+     * Per point: a JSON array of stars, or in binary a count then (id,
+     * distance) pairs. Each point's stars are queried as it is written, so
+     * one point's results are held at a time however large the batch.
+     */
+    private static void writeLists(QueryExchange q, double[] xyz, IntFunction<List<Star>> query)
+            throws IOException {
+        int n = xyz.length / 3;
+
+        if (q.isBinary()) {
+            try (DataOutputStream out = q.data()) {
+                for (int i = 0; i < n; i++) {
+                    List<Star> stars = query.apply(i);
+                    out.writeInt(stars.size());
+
+                    for (Star s : stars) {
+                        out.writeInt(s.getId());
+                        out.writeFloat((float) distance(s, xyz, i));
+                    }
+
+                }
+
+            }
+
+            return;
+        }
+
+        try (JsonGenerator g = q.json()) {
+            g.writeStartArray();
+
+            for (int i = 0; i < n; i++) {
+                g.writeStartArray();
+
+                for (Star s : query.apply(i))
+                    writeStar(g, s, distance(s, xyz, i));
+
+                g.writeEndArray();
+            }
+
+            g.writeEndArray();
+        }
+
+    }
+
+    private int search(QueryExchange q) throws IOException {
+        JsonNode names = q.jsonArray();
+        Star[] found = new Star[names.size()];
+
+        for (int i = 0; i < found.length; i++)
+            found[i] = catalog.findByName(names.get(i).asText());
+
+        if (q.isBinary()) {
+            try (DataOutputStream out = q.data()) {
+                for (Star s : found)
+                    out.writeInt(s != null ? s.getId() : -1);
+            }
+
+        }
+        else {
+            try (JsonGenerator g = q.json()) {
+                g.writeStartArray();
+
+                for (Star s : found) {
+                    if (s != null)
+                        writeStar(g, s, Double.NaN);
+                    else
+                        g.writeNull();
+                }
+
+                g.writeEndArray();
+            }
+
+        }
+
+        return found.length;
+    }
+
+    private int routes(QueryExchange q) throws IOException {
+        double jumpRange = q.param("jumpRange", Double.NaN);
+        if (!(jumpRange > 0))
+            throw new IllegalArgumentException("jumpRange must be positive");
+
+        RouteMode mode;
+
+        try {
+            mode = RouteMode.valueOf(q.param("mode", "shortest").toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown mode: " + q.param("mode", ""));
+        }
+
+        JsonNode pairs = q.jsonArray();
+        RoutePlanner planner = planners.get();
+        Route[] found = new Route[pairs.size()];
+
+        for (int i = 0; i < found.length; i++) {
+            JsonNode p = pairs.get(i);
+            if (!p.has("from") || !p.has("to"))
+                throw new IllegalArgumentException("Route " + i + " needs from and to");
+        }
+
+        // One budget for the whole batch, so a request holds its worker for at most that long
+        long deadline = System.nanoTime() + ROUTE_TIMEOUT_NANOS;
+        BooleanSupplier expired = () -> System.nanoTime() > deadline;
+
+        for (int i = 0; i < found.length && !expired.getAsBoolean(); i++) {
+            JsonNode p = pairs.get(i);
+            found[i] = planner
+                    .plan(p.get("from").asInt(), p.get("to").asInt(), jumpRange, mode, expired);
+        }
+
+        // Binary: per route the path length (-1 if timed out), the star ids, then the distance
+        if (q.isBinary()) {
+            try (DataOutputStream out = q.data()) {
+                for (Route r : found) {
+                    out.writeInt(r != null ? r.getPath().length : -1);
+                    if (r == null)
+                        continue;
+
+                    for (int index : r.getPath())
+                        out.writeInt(catalog.getStars().get(index).getId());
+
+                    out.writeDouble(r.getDistance());
+                }
+
+            }
+
+        }
+        else {
+            try (JsonGenerator g = q.json()) {
+                g.writeStartArray();
+
+                for (Route r : found)
+                    writeRoute(g, r);
+
+                g.writeEndArray();
+            }
+
+        }
+
+        return found.length;
+    }
+
+    private void writeRoute(JsonGenerator g, Route r) throws IOException {
+        g.writeStartObject();
+        g.writeBooleanField("found", r != null && r.isFound());
+        if (r == null) {
+            g.writeBooleanField("timedOut", true);
+        }
+        else {
+            g.writeNumberField("jumps", r.getJumps());
+            g.writeNumberField("distance", r.getDistance());
+            g.writeNumberField("expanded", r.getExpanded());
+            g.writeArrayFieldStart("path");
+
+            for (int index : r.getPath())
+                g.writeNumber(catalog.getStars().get(index).getId());
+
+            g.writeEndArray();
+        }
+
+        g.writeEndObject();
+    }
+
+    private int metrics(QueryExchange q) throws IOException {
+
+        try (JsonGenerator g = q.json()) {
+            metrics.write(g, workers);
+        }
+
+        return 0;
+    }
+
+    private static void writeStar(JsonGenerator g, Star s, double distance) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("id", s.getId());
+        g.writeStringField("name", s.getName());
+        g.writeNumberField("x", s.getX());
+        g.writeNumberField("y", s.getY());
+        g.writeNumberField("z", s.getZ());
+        if (!Double.isNaN(distance))
+            g.writeNumberField("distance", distance);
+        g.writeEndObject();
+    }
+
+    private static double distance(Star s, double[] xyz, int i) {
+        double dx = s.getX() - xyz[3 * i];
+        double dy = s.getY() - xyz[3 * i + 1];
+        double dz = s.getZ() - xyz[3 * i + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+}
@@ -0,0 +1,89 @@
+package net.laurus.starmapper.server;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import net.laurus.starmapper.util.FrameStats;
+import net.laurus.starmapper.util.PhaseHistogram;
+
+/**
+ * Request counters and latency histograms per endpoint, plus the number of
+ * requests turned away because the worker queue was full. Recording is
+ * lock-free, so it costs the request threads next to nothing.
+ */
+public class ServerMetrics {
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private static class Endpoint {
+
+        final PhaseHistogram latency = new PhaseHistogram();
+
+        final LongAdder errors = new LongAdder();
+
+        final LongAdder queries = new LongAdder();
+
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, n -> new Endpoint());
+    }
+
+    /** One finished request: its latency, batch size and whether it failed. */
+    public void record(String name, long nanos, int queries, boolean failed) {
+        Endpoint e = endpoint(name);
+        e.latency.record(nanos);
+        e.queries.add(queries);
+        if (failed)
+            e.errors.increment();
+    }
+
+    public void rejected() {
+        rejected.increment();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Write the metrics, and the state of {@code workers}, as one JSON object. */
+    public void write(JsonGenerator g, ThreadPoolExecutor workers) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("uptimeSeconds", (System.nanoTime() - startNanos) / 1e9);
+        g.writeNumberField("workers", workers.getMaximumPoolSize());
+        g.writeNumberField("active", workers.getActiveCount());
+        g.writeNumberField("queued", workers.getQueue().size());
+        g.writeNumberField("queueCapacity", workers.getQueue().remainingCapacity()
+                + workers.getQueue().size());
+        g.writeNumberField("rejected", rejectedCount());
+        g.writeObjectFieldStart("endpoints");
+
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint e = entry.getValue();
+            FrameStats s = e.latency.stats();
+            g.writeObjectFieldStart(entry.getKey());
+            g.writeNumberField("requests", e.latency.count());
+            g.writeNumberField("errors", e.errors.sum());
+            g.writeNumberField("queries", e.queries.sum());
+            g.writeNumberField("meanMs", s.getMeanMs());
+            g.writeNumberField("p50Ms", s.getP50Ms());
+            g.writeNumberField("p95Ms", s.getP95Ms());
+            g.writeNumberField("p99Ms", s.getP99Ms());
+            g.writeNumberField("maxMs", s.getMaxMs());
+            g.writeEndObject();
+        }
+
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+
+}
@@ -62,6 +62,18 @@ public class Camera {
         return useInertia && (velPanX != 0 || velPanY != 0);
     }
 
+    /** Copy of the current pose (focus, zoom, pan), without inertia. */
+    public Camera snapshot() {
+        Camera c = new Camera();
+        c.focusX = focusX;
+        c.focusY = focusY;
+        c.focusZ = focusZ;
+        c.zoom = zoom;
+        c.panX = panX;
+        c.panY = panY;
+        return c;
+    }
+
     /** Apply inertia velocity (pixels/sec). Only applied if useInertia is true. */
     public void addInertia(double vx, double vy) {
         if (!useInertia)
@@ -1,61 +1,143 @@
 package net.laurus.starmapper.ui.component;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
 import net.laurus.starmapper.model.Star;
 
 /**
- * Lightweight KD-tree for 3D points (only used for nearest/range queries). Not
- * highly optimized but fine for ~10k-100k points.
+ * Balanced KD-tree for 3D points (only used for nearest/range queries).
+ * <p>
+ * The tree is implicit: a permutation of point indices where the node for
+ * the range {@code [lo, hi)} is the entry at its midpoint, splitting on axis
+ * {@code depth % 3}, with its subtrees on either side. Being a single int
+ * array, the layout can be saved and memory-mapped back (see
+ * {@code IndexSnapshot}) instead of being rebuilt.
  */
 public class KDTree {
 
-    private final Node root;
+    // Nodes a cancellable range query visits between polls of its cancel flag (a power of two)
+    private static final int CANCEL_CHECK_NODES = 1 << 10;
+
+    private final List<Star> points;
+
+    // Point indices in tree layout
+    private final IntBuffer order;
 
     public KDTree(List<Star> points) {
-        this.root = build(points, 0);
+        IndexBuildEvent event = IndexBuildEvent.start("kdtree", points.size());
+        this.points = points;
+        this.order = IntBuffer.wrap(build(points));
+        event.finish();
+    }
+
+    /**
+     * Adopt a layout from {@link #getOrder()} of a tree built over the same
+     * points, e.g. one mapped from disk.
+     */
+    public KDTree(List<Star> points, IntBuffer order) {
+        if (order.remaining() != points.size())
+            throw new IllegalArgumentException(
+                    "Layout has " + order.remaining() + " entries for " + points.size() + " points"
+            );
+
+        this.points = points;
+        this.order = order.slice();
+    }
+
+    private static int[] build(List<Star> points) {
+        int n = points.size();
+        int[] order = new int[n];
+        double[][] coords = new double[3][n];
+
+        for (int i = 0; i < n; i++) {
+            Star s = points.get(i);
+            order[i] = i;
+            coords[0][i] = s.getX();
+            coords[1][i] = s.getY();
+            coords[2][i] = s.getZ();
+        }
+
+        split(order, coords, 0, n, 0);
+        return order;
     }
 
-    private static class Node {
+    // Put the median of [lo, hi) on the current axis at the midpoint, then recurse
+    private static void split(int[] order, double[][] coords, int lo, int hi, int depth) {
+        if (hi - lo < 2)
+            return;
 
-        Star star;
+        int mid = (lo + hi) >>> 1;
+        select(order, coords[depth % 3], lo, hi, mid);
+        split(order, coords, lo, mid, depth + 1);
+        split(order, coords, mid + 1, hi, depth + 1);
+    }
 
-        Node left, right;
+    // Quickselect with a three-way partition, so runs of equal coordinates stay linear
+    private static void select(int[] order, double[] key, int lo, int hi, int k) {
+        while (hi - lo > 1) {
+            double pivot = medianOfThree(
+                    key[order[lo]], key[order[(lo + hi) >>> 1]], key[order[hi - 1]]
+            );
+            int lt = lo, i = lo, gt = hi;
 
-        int axis;
+            while (i < gt) {
+                double v = key[order[i]];
+                if (v < pivot)
+                    swap(order, lt++, i++);
+                else if (v > pivot)
+                    swap(order, i, --gt);
+                else
+                    i++;
+            }
 
-        Node(Star s, int axis) {
-            this.star = s;
-            this.axis = axis;
+            if (k < lt)
+                hi = lt;
+            else if (k >= gt)
+                lo = gt;
+            else
+                return;
         }
 
     }
 
-    private Node build(List<Star> pts, int depth) {
-        if (pts == null || pts.isEmpty())
-            return null;
-        int axis = depth % 3;
-        pts.sort(Comparator.comparingDouble(s -> getCoord(s, axis)));
-        int mid = pts.size() / 2;
-        Node n = new Node(pts.get(mid), axis);
-        n.left = build(new ArrayList<>(pts.subList(0, mid)), depth + 1);
-        n.right = build(new ArrayList<>(pts.subList(mid + 1, pts.size())), depth + 1);
-        return n;
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
     }
 
     private static double getCoord(Star s, int axis) {
         return (axis == 0) ? s.getX() : (axis == 1) ? s.getY() : s.getZ();
     }
 
+    /** The tree layout: point indices, read-only. */
+    public IntBuffer getOrder() {
+        return order.asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return order.capacity();
+    }
+
     /**
      * Nearest neighbour to (x,y,z) within optional maxDist (use
      * Double.POSITIVE_INFINITY if none)
      */
     public Star nearest(double x, double y, double z, double maxDist) {
+        SpatialQueryEvent event = SpatialQueryEvent.start("nearest", maxDist);
         NearestState st = new NearestState(maxDist * maxDist);
-        searchNearest(root, x, y, z, st);
+        searchNearest(0, size(), 0, x, y, z, st);
+        event.finish(st.best != null ? 1 : 0);
         return st.best;
     }
 
@@ -72,59 +154,252 @@ public class KDTree {
 
     }
 
-    private void searchNearest(Node node, double x, double y, double z, NearestState st) {
-        if (node == null)
+    private void searchNearest(
+            int lo,
+            int hi,
+            int depth,
+            double x,
+            double y,
+            double z,
+            NearestState st
+    ) {
+        if (lo >= hi)
             return;
-        double dx = node.star.getX() - x;
-        double dy = node.star.getY() - y;
-        double dz = node.star.getZ() - z;
+        int mid = (lo + hi) >>> 1;
+        Star star = points.get(order.get(mid));
+        double dx = star.getX() - x;
+        double dy = star.getY() - y;
+        double dz = star.getZ() - z;
         double distSq = dx * dx + dy * dy + dz * dz;
 
         if (distSq < st.bestSq) {
             st.bestSq = distSq;
-            st.best = node.star;
+            st.best = star;
+        }
+
+        int axis = depth % 3;
+        double deltaAxis = getCoord(star, axis) - (axis == 0 ? x : (axis == 1 ? y : z));
+        // Near side first; the far side only if it could hold something closer
+        if (deltaAxis > 0) {
+            searchNearest(lo, mid, depth + 1, x, y, z, st);
+            if (deltaAxis * deltaAxis < st.bestSq)
+                searchNearest(mid + 1, hi, depth + 1, x, y, z, st);
+        }
+        else {
+            searchNearest(mid + 1, hi, depth + 1, x, y, z, st);
+            if (deltaAxis * deltaAxis < st.bestSq)
+                searchNearest(lo, mid, depth + 1, x, y, z, st);
         }
 
-        int axis = node.axis;
-        double deltaAxis = getAxisVal(node.star, axis) - (axis == 0 ? x : (axis == 1 ? y : z));
-        Node first = (deltaAxis > 0) ? node.left : node.right;
-        Node second = (deltaAxis > 0) ? node.right : node.left;
-        if (first != null)
-            searchNearest(first, x, y, z, st);
-        if (second != null && deltaAxis * deltaAxis < st.bestSq)
-            searchNearest(second, x, y, z, st);
     }
 
-    private double getAxisVal(Star s, int axis) {
-        return (axis == 0) ? s.getX() : (axis == 1) ? s.getY() : s.getZ();
+    /** The {@code k} nearest stars to (x,y,z) closer than maxDist, nearest first. */
+    public List<Star> nearest(double x, double y, double z, int k, double maxDist) {
+        return knn("knn", x, y, z, k, maxDist, maxDist * maxDist);
     }
 
-    /** Range query: return stars with squared distance <= rSq */
-    public List<Star> range(double cx, double cy, double cz, double r) {
-        double rSq = r * r;
-        List<Star> out = new ArrayList<>();
-        rangeSearch(root, cx, cy, cz, rSq, out);
+    /**
+     * The {@code k} nearest stars within {@code r}, nearest first: the head of
+     * {@link #range(double, double, double, double)} sorted by distance, with
+     * the same inclusive bound, but never holding more than {@code k} stars.
+     */
+    public List<Star> nearestWithin(double x, double y, double z, int k, double r) {
+        // Squared distances below the next double up are exactly those at most r * r
+        return knn("range-knn", x, y, z, k, r, Math.nextUp(r * r));
+    }
+
+    private List<Star> knn(
+            String type,
+            double x,
+            double y,
+            double z,
+            int k,
+            double maxDist,
+            double maxSq
+    ) {
+        if (k <= 0)
+            throw new IllegalArgumentException("k must be positive: " + k);
+
+        SpatialQueryEvent event = SpatialQueryEvent.start(type, maxDist);
+        KnnState st = new KnnState(Math.min(k, size()), maxSq);
+        searchKnn(0, size(), 0, x, y, z, st);
+        List<Star> out = st.drain();
+        event.finish(out.size());
         return out;
     }
 
-    private void
-            rangeSearch(Node node, double cx, double cy, double cz, double rSq, List<Star> out) {
-        if (node == null)
+    // Max-heap on squared distance of the best k so far; its root bounds the search
+    private static class KnnState {
+
+        final double[] distSq;
+
+        final Star[] stars;
+
+        final double maxSq;
+
+        int count;
+
+        KnnState(int k, double maxSq) {
+            this.distSq = new double[k];
+            this.stars = new Star[k];
+            this.maxSq = maxSq;
+        }
+
+        double bound() {
+            return count < distSq.length ? maxSq : distSq[0];
+        }
+
+        void offer(double d, Star s) {
+            if (distSq.length == 0 || d >= bound())
+                return;
+
+            int i;
+            if (count < distSq.length) {
+                // Sift up from the new leaf
+                i = count++;
+                while (i > 0 && distSq[(i - 1) / 2] < d) {
+                    int parent = (i - 1) / 2;
+                    distSq[i] = distSq[parent];
+                    stars[i] = stars[parent];
+                    i = parent;
+                }
+
+            }
+            else {
+                // Replace the root and sift down
+                i = 0;
+                while (true) {
+                    int c = 2 * i + 1;
+                    if (c >= count)
+                        break;
+                    if (c + 1 < count && distSq[c + 1] > distSq[c])
+                        c++;
+                    if (distSq[c] <= d)
+                        break;
+                    distSq[i] = distSq[c];
+                    stars[i] = stars[c];
+                    i = c;
+                }
+
+            }
+
+            distSq[i] = d;
+            stars[i] = s;
+        }
+
+        // Nearest first
+        List<Star> drain() {
+            Integer[] order = new Integer[count];
+
+            for (int i = 0; i < count; i++)
+                order[i] = i;
+
+            Arrays.sort(order, (a, b) -> Double.compare(distSq[a], distSq[b]));
+            List<Star> out = new ArrayList<>(count);
+
+            for (Integer i : order)
+                out.add(stars[i]);
+
+            return out;
+        }
+
+    }
+
+    private void searchKnn(int lo, int hi, int depth, double x, double y, double z, KnnState st) {
+        if (lo >= hi)
             return;
-        double dx = node.star.getX() - cx;
-        double dy = node.star.getY() - cy;
-        double dz = node.star.getZ() - cz;
+        int mid = (lo + hi) >>> 1;
+        Star star = points.get(order.get(mid));
+        double dx = star.getX() - x;
+        double dy = star.getY() - y;
+        double dz = star.getZ() - z;
+        st.offer(dx * dx + dy * dy + dz * dz, star);
+
+        int axis = depth % 3;
+        double deltaAxis = getCoord(star, axis) - (axis == 0 ? x : (axis == 1 ? y : z));
+        if (deltaAxis > 0) {
+            searchKnn(lo, mid, depth + 1, x, y, z, st);
+            if (deltaAxis * deltaAxis < st.bound())
+                searchKnn(mid + 1, hi, depth + 1, x, y, z, st);
+        }
+        else {
+            searchKnn(mid + 1, hi, depth + 1, x, y, z, st);
+            if (deltaAxis * deltaAxis < st.bound())
+                searchKnn(lo, mid, depth + 1, x, y, z, st);
+        }
+
+    }
+
+    /**
+     * Range query: every star within {@code r} (squared distance at most
+     * {@code r * r}), in no particular order. Both sides of a split are
+     * searched whenever the sphere crosses it, whichever side the centre is on.
+     */
+    public List<Star> range(double cx, double cy, double cz, double r) {
+        return range(cx, cy, cz, r, () -> false);
+    }
+
+    /**
+     * As {@link #range(double, double, double, double)}, but polls
+     * {@code cancelled} every {@value #CANCEL_CHECK_NODES} nodes visited and
+     * returns null as soon as it turns true, so a superseded query stops
+     * mid-traversal instead of gathering its whole result first.
+     */
+    public List<Star> range(double cx, double cy, double cz, double r, BooleanSupplier cancelled) {
+        SpatialQueryEvent event = SpatialQueryEvent.start("range", r);
+        RangeState st = new RangeState(cx, cy, cz, r * r, cancelled);
+        boolean done = rangeSearch(0, size(), 0, st);
+        event.finish(done ? st.out.size() : -1);
+        return done ? st.out : null;
+    }
+
+    private static class RangeState {
+
+        final double cx, cy, cz, rSq;
+
+        final BooleanSupplier cancelled;
+
+        final List<Star> out = new ArrayList<>();
+
+        int visited;
+
+        RangeState(double cx, double cy, double cz, double rSq, BooleanSupplier cancelled) {
+            this.cx = cx;
+            this.cy = cy;
+            this.cz = cz;
+            this.rSq = rSq;
+            this.cancelled = cancelled;
+        }
+
+    }
+
+    // False once cancelled; the caller then unwinds without visiting more nodes
+    private boolean rangeSearch(int lo, int hi, int depth, RangeState st) {
+        if (lo >= hi)
+            return true;
+        if ((++st.visited & (CANCEL_CHECK_NODES - 1)) == 0 && st.cancelled.getAsBoolean())
+            return false;
+
+        int mid = (lo + hi) >>> 1;
+        Star star = points.get(order.get(mid));
+        double dx = star.getX() - st.cx;
+        double dy = star.getY() - st.cy;
+        double dz = star.getZ() - st.cz;
         double dsq = dx * dx + dy * dy + dz * dz;
-        if (dsq <= rSq)
-            out.add(node.star);
-        int axis = node.axis;
-        double delta = (axis == 0 ? cx - node.star.getX()
-                : axis == 1 ? cy - node.star.getY()
-                : cz - node.star.getZ());
-        if (delta <= 0)
-            rangeSearch(node.left, cx, cy, cz, rSq, out);
-        if (Math.abs(delta) <= Math.sqrt(rSq))
-            rangeSearch(node.right, cx, cy, cz, rSq, out);
+        if (dsq <= st.rSq)
+            st.out.add(star);
+        int axis = depth % 3;
+        double delta = (axis == 0 ? st.cx : axis == 1 ? st.cy : st.cz) - getCoord(star, axis);
+        // Near side always; the far side only if the sphere crosses the split
+        if (delta <= 0) {
+            return rangeSearch(lo, mid, depth + 1, st)
+                    && (delta * delta > st.rSq || rangeSearch(mid + 1, hi, depth + 1, st));
+        }
+        else {
+            return rangeSearch(mid + 1, hi, depth + 1, st)
+                    && (delta * delta > st.rSq || rangeSearch(lo, mid, depth + 1, st));
+        }
+
     }
 
 }
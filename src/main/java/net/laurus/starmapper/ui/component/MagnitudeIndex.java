@@ -0,0 +1,193 @@
+package net.laurus.starmapper.ui.component;
+
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Getter;
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+import net.laurus.starmapper.model.Star;
+
+/**
+ * Stars ordered by descending luminosity (JSON "N"). Render passes walk the
+ * array from the brightest star and stop at the first star too faint to be
+ * visible, so faint stars are skipped in bulk rather than one by one.
+ * <p>
+ * The order is cut into bands of consecutive ranks, each with a coarse
+ * occupancy grid of where its stars are. A band whose stars are all too far
+ * from the eye for their luminosity is skipped even when the eye is inside
+ * the catalog, which it usually is.
+ */
+public class MagnitudeIndex {
+
+    private final Star[] ordered;
+
+    private final double[] luminosity;
+
+    // Cells per axis of each band's occupancy grid, and the most bands kept
+    private static final int GRID = 16;
+
+    private static final int MAX_BANDS = 4096;
+
+    private static final int MIN_BAND_SIZE = 256;
+
+    private final int bandSize;
+
+    // GRID^3 bits per band: which cells hold at least one of its stars
+    private final long[] bandCells;
+
+    private final double gridMinX, gridMinY, gridMinZ, cellSize;
+
+    // Bounding sphere of the catalog, used for conservative distance bounds
+    @Getter
+    private final double centreX, centreY, centreZ, radius;
+
+    public MagnitudeIndex(List<Star> stars) {
+        int n = stars.size();
+        IndexBuildEvent event = IndexBuildEvent.start("magnitude", n);
+        Integer[] order = new Integer[n];
+        double[] lum = new double[n];
+        double sx = 0, sy = 0, sz = 0;
+
+        for (int i = 0; i < n; i++) {
+            Star s = stars.get(i);
+            order[i] = i;
+            lum[i] = luminosityOf(s);
+            sx += s.getX();
+            sy += s.getY();
+            sz += s.getZ();
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(lum[b], lum[a]));
+
+        ordered = new Star[n];
+        luminosity = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            ordered[i] = stars.get(order[i]);
+            luminosity[i] = lum[order[i]];
+        }
+
+        centreX = n > 0 ? sx / n : 0;
+        centreY = n > 0 ? sy / n : 0;
+        centreZ = n > 0 ? sz / n : 0;
+
+        double maxSq = 0;
+        for (Star s : stars) {
+            double dx = s.getX() - centreX;
+            double dy = s.getY() - centreY;
+            double dz = s.getZ() - centreZ;
+            maxSq = Math.max(maxSq, dx * dx + dy * dy + dz * dz);
+        }
+
+        radius = Math.sqrt(maxSq);
+
+        // The grid is the bounding cube of the bounding sphere
+        gridMinX = centreX - radius;
+        gridMinY = centreY - radius;
+        gridMinZ = centreZ - radius;
+        cellSize = Math.max(2 * radius / GRID, 1e-9);
+        bandSize = Math.max(MIN_BAND_SIZE, (n + MAX_BANDS - 1) / MAX_BANDS);
+        int words = GRID * GRID * GRID / 64;
+        bandCells = new long[((n + bandSize - 1) / bandSize) * words];
+
+        for (int i = 0; i < n; i++) {
+            Star s = ordered[i];
+            int cell = (cell(s.getZ(), gridMinZ) * GRID + cell(s.getY(), gridMinY)) * GRID
+                    + cell(s.getX(), gridMinX);
+            bandCells[(i / bandSize) * words + (cell >>> 6)] |= 1L << cell;
+        }
+
+        event.finish();
+    }
+
+    private int cell(double v, double min) {
+        return Math.max(0, Math.min(GRID - 1, (int) ((v - min) / cellSize)));
+    }
+
+    /** Luminosity used for brightness; missing or invalid values count as solar. */
+    public static double luminosityOf(Star s) {
+        double n = s.getMagnitude();
+        return n > 0 && Double.isFinite(n) ? n : 1.0;
+    }
+
+    public int size() {
+        return ordered.length;
+    }
+
+    public Star get(int i) {
+        return ordered[i];
+    }
+
+    public double luminosity(int i) {
+        return luminosity[i];
+    }
+
+    /**
+     * Number of leading stars that can be visible from an eye at world
+     * position (ex, ey, ez), where a star of luminosity L is visible within
+     * {@code reach * sqrt(L)} parsecs, and never when that is below
+     * {@code minReach}. Whole bands are ruled out using their occupancy grids.
+     */
+    public int visiblePrefix(double ex, double ey, double ez, double reach, double minReach) {
+        int n = ordered.length;
+
+        // Faintest band first; the first band that may show a star ends the prefix
+        for (int b = (n - 1) / bandSize; b >= 0; b--) {
+            double r = reach * Math.sqrt(luminosity[b * bandSize]);
+            if (r >= minReach && bandWithin(b, ex, ey, ez, r))
+                return Math.min(n, (b + 1) * bandSize);
+        }
+
+        return 0;
+    }
+
+    // Whether any occupied cell of band b comes within r of (ex, ey, ez)
+    private boolean bandWithin(int b, double ex, double ey, double ez, double r) {
+        int x0 = cell(ex - r, gridMinX), x1 = cell(ex + r, gridMinX);
+        int y0 = cell(ey - r, gridMinY), y1 = cell(ey + r, gridMinY);
+        int z0 = cell(ez - r, gridMinZ), z1 = cell(ez + r, gridMinZ);
+        int base = b * (GRID * GRID * GRID / 64);
+        double rSq = r * r;
+
+        for (int z = z0; z <= z1; z++) {
+            double dz = gap(ez, gridMinZ + z * cellSize);
+            for (int y = y0; y <= y1; y++) {
+                double dy = gap(ey, gridMinY + y * cellSize);
+                for (int x = x0; x <= x1; x++) {
+                    int cell = (z * GRID + y) * GRID + x;
+                    if ((bandCells[base + (cell >>> 6)] & (1L << cell)) == 0)
+                        continue;
+
+                    double dx = gap(ex, gridMinX + x * cellSize);
+                    if (dx * dx + dy * dy + dz * dz <= rSq)
+                        return true;
+                }
+
+            }
+
+        }
+
+        return false;
+    }
+
+    // Distance from v to the cell [lo, lo + cellSize] along one axis
+    private double gap(double v, double lo) {
+        return v < lo ? lo - v : v > lo + cellSize ? v - lo - cellSize : 0;
+    }
+
+    /** Number of leading stars whose luminosity is at least {@code minLuminosity}. */
+    public int visiblePrefix(double minLuminosity) {
+        int lo = 0, hi = luminosity.length;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (luminosity[mid] >= minLuminosity)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+}
@@ -2,7 +2,7 @@ package net.laurus.starmapper.ui.component;
 
 public class Projection {
 
-    private static final double CAMERA_DISTANCE = 800;
+    public static final double CAMERA_DISTANCE = 800;
 
     /**
      * Project a 3D point (already rotated and relative to camera focus) into 2D
@@ -7,6 +7,7 @@ import javax.swing.JFrame;
 import javax.swing.Timer;
 
 import lombok.Getter;
+import net.laurus.starmapper.headless.SessionRecorder;
 import net.laurus.starmapper.model.Star;
 import net.laurus.starmapper.ui.panel.StarControlPanel;
 import net.laurus.starmapper.ui.panel.StarMapPanel;
@@ -39,6 +40,10 @@ public class StarMapperFrame extends JFrame {
 
         rotationTimer.start();
 
+        // Closing the window exits the VM; let a session recording finish its file first
+        SessionRecorder recorder = starMapPanel.getSessionRecorder();
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "session-recorder-close"));
+
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1000, 800);
         setLocationRelativeTo(null);
@@ -0,0 +1,113 @@
+package net.laurus.starmapper.ui.input;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.SwingUtilities;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs pick queries off the EDT, last request wins. Each instance is one
+ * channel (hover, selection): a new request replaces one that has not started
+ * and cancels one that is running, so however fast requests arrive only the
+ * newest is worked on. Results are delivered on the EDT, and only if no newer
+ * request has been made by then. Channels share one picker thread unless
+ * given their own executor, which long jobs such as route planning need so
+ * they never hold up picks.
+ *
+ * @param <T> result type, e.g. the picked star
+ */
+@Slf4j
+public class AsyncPicker<T> {
+
+    // Default for all channels; picks are short and only the newest per channel is queued
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "star-picker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ExecutorService executor;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** A channel on the shared picker thread. */
+    public AsyncPicker() {
+        this(WORKER);
+    }
+
+    /** A channel whose queries run on {@code executor}. */
+    public AsyncPicker(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queue {@code query}, which receives a cancellation check and returns the
+     * result (e.g. the picked star, or null). {@code onResult} runs on the EDT.
+     */
+    public void submit(Function<BooleanSupplier, T> query, Consumer<T> onResult) {
+        long gen = generation.incrementAndGet();
+        pending.set(() -> run(gen, query, onResult));
+        schedule();
+    }
+
+    /** Drop any queued or running request without delivering a result. */
+    public void cancel() {
+        generation.incrementAndGet();
+        pending.set(null);
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this::drain);
+    }
+
+    private void drain() {
+
+        try {
+            Runnable next;
+            while ((next = pending.getAndSet(null)) != null)
+                next.run();
+        }
+        finally {
+            scheduled.set(false);
+        }
+
+        // A request may have slipped in between the last poll and clearing the flag
+        if (pending.get() != null)
+            schedule();
+    }
+
+    private void run(long gen, Function<BooleanSupplier, T> query, Consumer<T> onResult) {
+        BooleanSupplier superseded = () -> generation.get() != gen;
+        T result;
+
+        try {
+            result = query.apply(superseded);
+        }
+        catch (RuntimeException e) {
+            log.warn("Pick failed", e);
+            return;
+        }
+
+        if (superseded.getAsBoolean())
+            return;
+
+        SwingUtilities.invokeLater(() -> {
+            if (!superseded.getAsBoolean())
+                onResult.accept(result);
+        });
+    }
+
+}
@@ -10,7 +10,8 @@ import net.laurus.starmapper.model.Star;
 import net.laurus.starmapper.ui.render.StarRenderer;
 
 /**
- * Handles hover tooltips
+ * Handles hover tooltips. Picking runs on a background thread so hovering over
+ * dense regions never stalls the UI.
  */
 @Slf4j
 @Getter
@@ -23,6 +24,11 @@ public class HoverHandler {
 
     private Point lastMousePos = new Point(0, 0);
 
+    // Range query and projection run off the EDT; only the newest position is picked
+    private final AsyncPicker<Star> picker = new AsyncPicker<>();
+
+    private Star hovered;
+
     public HoverHandler(StarInputHandler starInputHandler) {
         this.starInputHandler = starInputHandler;
     }
@@ -43,57 +49,24 @@ public class HoverHandler {
 
     private void updateHover(int sx, int sy) {
         var panel = starInputHandler.getPanel();
-        var renderer = starInputHandler.getRenderer();
-
-        Star center = panel.getSelectedStar() != null ? panel.getSelectedStar()
-                : panel.getStars().get(0);
-
-        if (center == null) {
-            panel.setToolTipText(null);
-            return;
-        }
+        PickContext ctx = PickContext.capture(starInputHandler);
 
-        double probeParsecs = Math.max(5.0, renderer.getMaxDistance() * 0.1);
-        var near = renderer
-                .getKdtree()
-                .range(center.getX(), center.getY(), center.getZ(), probeParsecs);
-
-        if (near.isEmpty()) {
+        if (ctx.isEmpty()) {
+            picker.cancel();
             panel.setToolTipText(null);
             return;
         }
 
-        double bestSq = Double.POSITIVE_INFINITY;
-        Star best = null;
-        double[][] rotMatrix = StarRenderer
-                .buildRotationMatrix(
-                        starInputHandler.getRotationHandler().getRotX(), starInputHandler
-                                .getRotationHandler()
-                                .getRotY()
-                );
-
-        for (Star s : near) {
-            int[] p = renderer
-                    .projectStarToScreen(s, center, rotMatrix, panel.getWidth(), panel.getHeight());
-            double dx = p[0] - sx;
-            double dy = p[1] - sy;
-            double dsq = dx * dx + dy * dy;
-
-            if (dsq < bestSq) {
-                bestSq = dsq;
-                best = s;
-            }
-
-        }
-
-        if (best != null && bestSq < StarRenderer.SELECTION_RADIUS * 4) {
-            panel.setToolTipText(best.getName() + " (id=" + best.getId() + ")");
-        }
-        else {
-            panel.setToolTipText(null);
-        }
+        double probeParsecs = Math.max(5.0, ctx.getMaxDistance() * 0.1);
+        double maxSq = StarRenderer.SELECTION_RADIUS * 4;
+        picker.submit(cancelled -> ctx.nearest(sx, sy, probeParsecs, maxSq, cancelled), best -> {
+            String tip = best != null ? best.getName() + " (id=" + best.getId() + ")" : null;
+            panel.setToolTipText(tip);
 
-        log.debug("Hover update: {}", best != null ? best.getName() : "none");
+            if (best != hovered)
+                log.trace("Hover: {}", best != null ? best.getName() : "none");
+            hovered = best;
+        });
     }
 
 }
@@ -0,0 +1,99 @@
+package net.laurus.starmapper.ui.input;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.ui.component.Camera;
+
+/**
+ * Coalesces continuous input. Drag and wheel handlers add raw deltas per event
+ * and the panel's update tick applies the sum once and repaints, so a 1000 Hz
+ * mouse costs a few additions per event rather than a camera update, repaint
+ * request and log line each. Painting itself only reads the camera. Everything
+ * here runs on the EDT.
+ */
+@Slf4j
+public class InputPipeline {
+
+    // Interval between debug summaries of coalescing
+    private static final long LOG_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final StarInputHandler starInputHandler;
+
+    private int panDx, panDy;
+
+    private int rotateDx, rotateDy;
+
+    // Sum of wheel rotation; zoom scales by 1.1 per notch
+    private double wheel;
+
+    // Sampled counters, logged at most once per LOG_INTERVAL_NANOS
+    private int events, frames;
+
+    private long lastLog = System.nanoTime();
+
+    public InputPipeline(StarInputHandler starInputHandler) {
+        this.starInputHandler = starInputHandler;
+    }
+
+    public void addPan(int dx, int dy) {
+        panDx += dx;
+        panDy += dy;
+        events++;
+    }
+
+    public void addRotation(int dx, int dy) {
+        rotateDx += dx;
+        rotateDy += dy;
+        events++;
+    }
+
+    public void addWheel(double rotation) {
+        wheel += rotation;
+        events++;
+    }
+
+    /**
+     * Apply everything accumulated since the last tick and repaint if the
+     * camera moved. Call from the update loop, never from painting.
+     */
+    public void applyPending() {
+        if (panDx == 0 && panDy == 0 && rotateDx == 0 && rotateDy == 0 && wheel == 0)
+            return;
+
+        Camera cam = starInputHandler.getPanel().getCamera();
+        cam.setPanX(cam.getPanX() + panDx);
+        cam.setPanY(cam.getPanY() + panDy);
+
+        if (rotateDx != 0 || rotateDy != 0)
+            starInputHandler.getRotationHandler().rotateBy(rotateDy * 0.01, rotateDx * 0.01);
+
+        if (wheel != 0) {
+            double zoom = cam.getZoom() * Math.pow(1.1, -wheel);
+            cam.setZoom(Math.max(0.01, Math.min(1000, zoom)));
+        }
+
+        panDx = panDy = rotateDx = rotateDy = 0;
+        wheel = 0;
+        frames++;
+        logSample();
+        starInputHandler.getPanel().repaint();
+    }
+
+    private void logSample() {
+        long now = System.nanoTime();
+        if (now - lastLog < LOG_INTERVAL_NANOS)
+            return;
+
+        if (log.isDebugEnabled()) {
+            Camera cam = starInputHandler.getPanel().getCamera();
+            log
+                    .debug(
+                            "Input: {} events in {} frames; pan=({}, {}) zoom={}", events, frames,
+                            cam.getPanX(), cam.getPanY(), cam.getZoom()
+                    );
+        }
+
+        events = frames = 0;
+        lastLog = now;
+    }
+
+}
@@ -8,7 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 import net.laurus.starmapper.ui.component.Camera;
 
 /**
- * Handles pan input and inertia
+ * Handles pan input and inertia. Drag deltas go through the
+ * {@link InputPipeline} and are applied once per frame.
  */
 @Slf4j
 @Getter
@@ -57,14 +58,14 @@ public class PanHandler {
         velY = dy / dt;
         lastDragTime = now;
 
-        Camera cam = starInputHandler.getPanel().getCamera();
-        cam.setPanX(cam.getPanX() + dx);
-        cam.setPanY(cam.getPanY() + dy);
-
+        starInputHandler.getInputPipeline().addPan(dx, dy);
         lastX = e.getX();
         lastY = e.getY();
-        starInputHandler.getPanel().repaint();
-        log.debug("Panned: panX={}, panY={}", cam.getPanX(), cam.getPanY());
+    }
+
+    /** True while the pan button is held down. */
+    public boolean isPanning() {
+        return pressedButton == MouseEvent.BUTTON3;
     }
 
     public void tick() {
@@ -0,0 +1,123 @@
+package net.laurus.starmapper.ui.input;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import lombok.Value;
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.ui.component.Camera;
+import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.ui.render.StarRenderer;
+import net.laurus.starmapper.ui.render.ViewTransform;
+import net.laurus.starmapper.util.FramePhase;
+import net.laurus.starmapper.util.FrameProfiler;
+
+/**
+ * Everything a pick needs, copied on the EDT so the query can run on another
+ * thread while the user keeps moving the camera.
+ */
+@Value
+public class PickContext {
+
+    KDTree kdtree;
+
+    // Candidates are gathered around this point: the selection, else the camera focus
+    double[] center;
+
+    // Same mapping the renderer used, so picks land where stars are drawn
+    ViewTransform view;
+
+    double maxDistance;
+
+    FrameProfiler profiler;
+
+    /** Snapshot the handler's panel, renderer and rotation. Call on the EDT. */
+    public static PickContext capture(StarInputHandler handler) {
+        var panel = handler.getPanel();
+        var renderer = handler.getRenderer();
+        Camera cam = renderer.getCamera();
+        Star selected = panel.getSelectedStar();
+        double[] center = selected != null
+                ? new double[] { selected.getX(), selected.getY(), selected.getZ() }
+                : new double[] { cam.getFocusX(), cam.getFocusY(), cam.getFocusZ() };
+        double[][] rot = StarRenderer
+                .buildRotationMatrix(
+                        handler.getRotationHandler().getRotX(), handler
+                                .getRotationHandler()
+                                .getRotY()
+                );
+        ViewTransform view = ViewTransform.of(cam, rot, panel.getWidth(), panel.getHeight());
+        return new PickContext(
+                renderer.getKdtree(), center, view, renderer.getMaxDistance(), renderer
+                        .getProfiler()
+        );
+    }
+
+    /** True when there is nothing to pick from. */
+    public boolean isEmpty() {
+        return kdtree.size() == 0;
+    }
+
+    /**
+     * Star within {@code radiusParsecs} of the centre whose screen position is
+     * closest to (sx, sy) and nearer than {@code maxScreenDistSq}, or null.
+     * Gives up (returning null) as soon as {@code cancelled} turns true.
+     */
+    public Star nearest(
+            int sx,
+            int sy,
+            double radiusParsecs,
+            double maxScreenDistSq,
+            BooleanSupplier cancelled
+    ) {
+        long start = profiler.begin();
+        SpatialQueryEvent event = SpatialQueryEvent.start("pick", radiusParsecs);
+        Star best = search(sx, sy, radiusParsecs, maxScreenDistSq, cancelled);
+        event.finish(best != null ? 1 : 0);
+        profiler.record(FramePhase.PICK, start);
+        return best;
+
+    }
+
+    private Star search(
+            int sx,
+            int sy,
+            double radiusParsecs,
+            double maxScreenDistSq,
+            BooleanSupplier cancelled
+    ) {
+        if (isEmpty())
+            return null;
+
+        List<Star> candidates = kdtree
+                .range(center[0], center[1], center[2], radiusParsecs, cancelled);
+        if (candidates == null)
+            return null;
+
+        double[] p = new double[ViewTransform.OUT_SIZE];
+        double bestSq = maxScreenDistSq;
+        Star best = null;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            // Checking every star would cost more than the projection itself
+            if ((i & 1023) == 0 && cancelled.getAsBoolean())
+                return null;
+
+            Star s = candidates.get(i);
+            view.project(s.getX(), s.getY(), s.getZ(), p);
+            double dx = (int) p[ViewTransform.SCREEN_X] - sx;
+            double dy = (int) p[ViewTransform.SCREEN_Y] - sy;
+            double dsq = dx * dx + dy * dy;
+
+            if (dsq < bestSq) {
+                bestSq = dsq;
+                best = s;
+            }
+
+        }
+
+        return best;
+    }
+
+}
@@ -37,17 +37,24 @@ public class RotationHandler {
         int dx = e.getX() - lastX;
         int dy = e.getY() - lastY;
 
-        if (pressedButton == MouseEvent.BUTTON2) { // middle
-            rotY += dx * 0.01;
-            rotX += dy * 0.01;
-            starInputHandler.getPanel().repaint();
-            log.debug("Rotation updated: rotX={}, rotY={}", rotX, rotY);
-        }
+        if (pressedButton == MouseEvent.BUTTON2) // middle
+            starInputHandler.getInputPipeline().addRotation(dx, dy);
 
         lastX = e.getX();
         lastY = e.getY();
     }
 
+    /** True while the rotate button is held down. */
+    public boolean isRotating() {
+        return pressedButton == MouseEvent.BUTTON2;
+    }
+
+    /** Add to the rotation without repainting; the caller is already painting. */
+    void rotateBy(double dRotX, double dRotY) {
+        rotX += dRotX;
+        rotY += dRotY;
+    }
+
     public void resetRotation() {
         rotX = 0;
         rotY = 0;
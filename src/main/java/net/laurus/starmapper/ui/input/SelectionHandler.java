@@ -1,23 +1,57 @@
 package net.laurus.starmapper.ui.input;
 
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
 import java.awt.event.MouseEvent;
 
 import lombok.Getter;
 import lombok.Setter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.SelectionStats;
 import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarSelection;
+import net.laurus.starmapper.ui.render.RegionSelector;
 import net.laurus.starmapper.ui.render.StarRenderer;
 
 /**
- * Handles selection input
+ * Handles selection input. A click picks one star; a left drag selects every
+ * star inside a box, or inside a freehand lasso with shift held. Picks and
+ * region queries run in the background and are applied on the EDT when they
+ * complete.
  */
 @Slf4j
 @Getter
 @Setter
 public class SelectionHandler {
 
+    // Drags shorter than this (pixels) are left to the click handler
+    private static final int MIN_DRAG = 4;
+
+    // Lasso points closer than this to the previous one are dropped
+    private static final int LASSO_STEP = 3;
+
+    private static final Color REGION_COLOR = new Color(80, 220, 255, 200);
+
     private final StarInputHandler starInputHandler;
 
+    // A newer click supersedes a pick still in flight
+    private final AsyncPicker<Star> picker = new AsyncPicker<>();
+
+    // Likewise for region queries
+    private final AsyncPicker<RegionResult> regionPicker = new AsyncPicker<>();
+
+    // Region being dragged out, in screen pixels, or null
+    private Polygon dragRegion;
+
+    private boolean lasso;
+
+    private int pressX, pressY;
+
+    private boolean pressed;
+
     public SelectionHandler(StarInputHandler starInputHandler) {
         this.starInputHandler = starInputHandler;
     }
@@ -27,45 +61,148 @@ public class SelectionHandler {
             return;
 
         var panel = starInputHandler.getPanel();
-        var renderer = starInputHandler.getRenderer();
+        // A plain click also ends any region selection
+        regionPicker.cancel();
+        if (panel.getMultiSelection() != null)
+            panel.setMultiSelection(null, null);
+
+        PickContext ctx = PickContext.capture(starInputHandler);
+        if (ctx.isEmpty())
+            return;
+
+        int sx = e.getX(), sy = e.getY();
+        double radiusParsecs = Math.max(5.0, Math.min(1000.0, ctx.getMaxDistance()));
+        double maxSq = StarRenderer.SELECTION_RADIUS * StarRenderer.SELECTION_RADIUS;
+        picker.submit(cancelled -> ctx.nearest(sx, sy, radiusParsecs, maxSq, cancelled), best -> {
+            panel.setSelectedStar(best);
+            if (best != null)
+                panel.repaint();
+            log.debug("Selected star: {}", best != null ? best.getName() : "none");
+        });
+    }
+
+    public void onMousePressed(MouseEvent e) {
+        if (e.getButton() != MouseEvent.BUTTON1)
+            return;
+
+        pressed = true;
+        pressX = e.getX();
+        pressY = e.getY();
+        lasso = e.isShiftDown();
+        dragRegion = null;
+    }
+
+    /** True once a left drag has moved far enough to be a region selection. */
+    public boolean isDragging() {
+        return dragRegion != null;
+    }
+
+    public void onMouseDragged(MouseEvent e) {
+        if (!pressed)
+            return;
 
-        Star center = panel.getSelectedStar() != null ? panel.getSelectedStar()
-                : panel.getStars().get(0);
-        if (center == null)
+        int x = e.getX(), y = e.getY();
+        if (dragRegion == null) {
+            if (Math.abs(x - pressX) < MIN_DRAG && Math.abs(y - pressY) < MIN_DRAG)
+                return;
+
+            dragRegion = new Polygon();
+            dragRegion.addPoint(pressX, pressY);
+        }
+
+        if (lasso) {
+            int last = dragRegion.npoints - 1;
+            if (Math.abs(x - dragRegion.xpoints[last]) >= LASSO_STEP
+                    || Math.abs(y - dragRegion.ypoints[last]) >= LASSO_STEP)
+                dragRegion.addPoint(x, y);
+        }
+        else {
+            dragRegion = box(pressX, pressY, x, y);
+        }
+
+        starInputHandler.getPanel().repaint();
+    }
+
+    public void onMouseReleased(MouseEvent e) {
+        if (e.getButton() != MouseEvent.BUTTON1 || !pressed)
             return;
 
-        double radiusParsecs = Math.max(5.0, Math.min(1000.0, renderer.getMaxDistance()));
-        var candidates = renderer
-                .getKdtree()
-                .range(center.getX(), center.getY(), center.getZ(), radiusParsecs);
+        pressed = false;
+        Polygon region = dragRegion;
+        dragRegion = null;
+        if (region == null)
+            return;
 
-        double bestSq = StarRenderer.SELECTION_RADIUS * StarRenderer.SELECTION_RADIUS;
-        Star best = null;
-        double[][] rotMatrix = StarRenderer
+        var panel = starInputHandler.getPanel();
+        double[][] rot = StarRenderer
                 .buildRotationMatrix(
                         starInputHandler.getRotationHandler().getRotX(), starInputHandler
                                 .getRotationHandler()
                                 .getRotY()
                 );
+        RegionSelector selector = RegionSelector
+                .capture(starInputHandler.getRenderer(), panel.getWidth(), panel.getHeight(), rot);
+        var columns = starInputHandler.getRenderer().getColumns();
 
-        for (Star s : candidates) {
-            int[] p = renderer
-                    .projectStarToScreen(s, center, rotMatrix, panel.getWidth(), panel.getHeight());
-            double dx = p[0] - e.getX();
-            double dy = p[1] - e.getY();
-            double dsq = dx * dx + dy * dy;
+        regionPicker.submit(cancelled -> {
+            long start = System.nanoTime();
+            StarSelection selection = selector.select(region);
+            if (cancelled.getAsBoolean())
+                return null;
 
-            if (dsq < bestSq) {
-                bestSq = dsq;
-                best = s;
-            }
+            SelectionStats stats = selection.stats(columns);
+            log
+                    .debug(
+                            "Region of {} points: {} in {} ms", region.npoints, stats
+                                    .summary(), (System.nanoTime() - start) / 1_000_000
+                    );
+            return new RegionResult(selection, stats);
+        }, result -> {
+            if (result != null)
+                panel.setMultiSelection(result.getSelection(), result.getStats());
+        });
+        panel.repaint();
+    }
 
-        }
+    /** Draw the region being dragged out, if any. */
+    public void paintOverlay(Graphics2D g) {
+        Polygon region = dragRegion;
+        if (region == null)
+            return;
+
+        g.setColor(REGION_COLOR);
+        var stroke = g.getStroke();
+        g
+                .setStroke(
+                        new BasicStroke(
+                                1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, new float[] {
+                                        4f, 4f
+                                }, 0f
+                        )
+                );
+        g.drawPolygon(region);
+        g.setStroke(stroke);
+    }
+
+    private static Polygon box(int x0, int y0, int x1, int y1) {
+        int left = Math.min(x0, x1), right = Math.max(x0, x1);
+        int top = Math.min(y0, y1), bottom = Math.max(y0, y1);
+        return new Polygon(
+                new int[] {
+                        left, right, right, left
+                }, new int[] {
+                        top, top, bottom, bottom
+                }, 4
+        );
+    }
+
+    @Value
+    static class RegionResult {
+
+        StarSelection selection;
+
+        SelectionStats stats;
 
-        panel.setSelectedStar(best);
-        if (best != null)
-            panel.repaint();
-        log.debug("Selected star: {}", best != null ? best.getName() : "none");
     }
 
 }
@@ -32,6 +32,8 @@ public class StarInputHandler {
 
     private final HoverHandler hoverHandler;
 
+    private final InputPipeline inputPipeline;
+
     public StarInputHandler(StarMapPanel panel, StarRenderer renderer) {
         if (panel == null || renderer == null)
             throw new IllegalArgumentException("Panel and renderer must not be null");
@@ -41,6 +43,7 @@ public class StarInputHandler {
 
         ToolTipManager.sharedInstance().registerComponent(panel);
 
+        inputPipeline = new InputPipeline(this);
         rotationHandler = new RotationHandler(this);
         panHandler = new PanHandler(this);
         zoomHandler = new ZoomHandler(this);
@@ -57,12 +60,14 @@ public class StarInputHandler {
             public void mousePressed(MouseEvent e) {
                 panHandler.onMousePressed(e);
                 rotationHandler.onMousePressed(e);
+                selectionHandler.onMousePressed(e);
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
                 panHandler.onMouseReleased(e);
                 rotationHandler.onMouseReleased(e);
+                selectionHandler.onMouseReleased(e);
             }
 
             @Override
@@ -76,8 +81,13 @@ public class StarInputHandler {
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                rotationHandler.onMouseDragged(e);
-                panHandler.onMouseDragged(e);
+                // Only the handler owning the pressed button sees the drag
+                if (panHandler.isPanning())
+                    panHandler.onMouseDragged(e);
+                else if (rotationHandler.isRotating())
+                    rotationHandler.onMouseDragged(e);
+                else if (selectionHandler.isPressed())
+                    selectionHandler.onMouseDragged(e);
             }
 
             @Override
@@ -5,10 +5,9 @@ import java.awt.event.MouseWheelEvent;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import net.laurus.starmapper.ui.component.Camera;
 
 /**
- * Handles zoom input
+ * Handles zoom input, coalesced per frame by the {@link InputPipeline}
  */
 @Slf4j
 @Getter
@@ -22,14 +21,7 @@ public class ZoomHandler {
     }
 
     public void onMouseWheelMoved(MouseWheelEvent e) {
-        double delta = -e.getPreciseWheelRotation();
-        Camera cam = starInputHandler.getPanel().getCamera();
-        double zoom = cam.getZoom();
-        zoom *= Math.pow(1.1, delta);
-        zoom = Math.max(0.01, Math.min(1000, zoom));
-        cam.setZoom(zoom);
-        starInputHandler.getPanel().repaint();
-        log.debug("Zoom changed: {}", zoom);
+        starInputHandler.getInputPipeline().addWheel(e.getPreciseWheelRotation());
     }
 
 }
@@ -1,12 +1,15 @@
 package net.laurus.starmapper.ui.panel;
 
 import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
@@ -17,12 +20,29 @@ import javax.swing.event.DocumentListener;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.analysis.ClusterResult;
+import net.laurus.starmapper.headless.SessionRecorder;
+import net.laurus.starmapper.model.SelectionStats;
 import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.navigation.Route;
+import net.laurus.starmapper.navigation.RouteMode;
+import net.laurus.starmapper.ui.render.ProjectionKernel;
+import net.laurus.starmapper.ui.render.RenderMode;
 
 @Slf4j
 @Getter
 public class StarControlPanel extends JPanel {
 
+    /** System property naming the file "Record Session" writes to */
+    public static final String SESSION_FILE_PROPERTY = "starmapper.sessionFile";
+
+    private static final String SESSION_FILE = "starmapper-session.txt";
+
+    /** System property naming the file "Dump Frame Profile" writes to */
+    public static final String PROFILE_FILE_PROPERTY = "starmapper.profileFile";
+
+    private static final String PROFILE_FILE = "starmapper-frame-profile.json";
+
     private final JSlider zoomSlider;
 
     private final JCheckBox rotateCheck;
@@ -33,6 +53,43 @@ public class StarControlPanel extends JPanel {
 
     private final JSlider distanceFilterSlider;
 
+    private final JSlider brightnessCutoffSlider;
+
+    private final JComboBox<RenderMode> renderModeCombo;
+
+    private final JCheckBox labelsCheck;
+
+    private final JCheckBox depthSortCheck;
+
+    private final JCheckBox progressiveCheck;
+
+    private final JCheckBox tileCacheCheck;
+
+    private final JCheckBox adaptiveQualityCheck;
+
+    private final JCheckBox simdCheck;
+
+    private final JCheckBox recordSessionCheck;
+
+    private final JCheckBox frameHudCheck;
+
+    private final JLabel multiSelectionLabel;
+
+    private final JTextField jumpRangeField;
+
+    private final JComboBox<RouteMode> routeModeCombo;
+
+    private final JLabel routeLabel;
+
+    // Route start, picked with "Set Start" from the selected star
+    private Star routeStart;
+
+    private final JTextField clusterEpsilonField;
+
+    private final JTextField clusterMinPointsField;
+
+    private final JLabel clusterLabel;
+
     private final JButton zoomToFitButton;
 
     private final JButton centerStarButton;
@@ -113,17 +170,14 @@ public class StarControlPanel extends JPanel {
                 if (text.isEmpty())
                     return;
 
-                stars
-                        .stream()
-                        .filter(s -> s.getName().equalsIgnoreCase(text))
-                        .findFirst()
-                        .ifPresent(star ->
-                        {
-                            starMapPanel.setSelectedStar(star);
-                            starMapPanel.getCamera().setFocusX(star.getX());
-                            starMapPanel.getCamera().setFocusY(star.getY());
-                            starMapPanel.getCamera().setFocusZ(star.getZ());
-                        });
+                Star star = starMapPanel.getCatalog().findByName(text);
+                if (star == null)
+                    return;
+
+                starMapPanel.setSelectedStar(star);
+                starMapPanel.getCamera().setFocusX(star.getX());
+                starMapPanel.getCamera().setFocusY(star.getY());
+                starMapPanel.getCamera().setFocusZ(star.getZ());
             }
 
         });
@@ -141,6 +195,268 @@ public class StarControlPanel extends JPanel {
         add(new JLabel("Distance Filter"));
         add(distanceFilterSlider);
 
+        // ------------------------------ BRIGHTNESS CUTOFF ------------------------------
+        // Slider units are thousandths of the minimum apparent brightness
+        double cutoff = starMapPanel.getRenderer().getBrightnessModel().getMinContribution();
+        brightnessCutoffSlider = new JSlider(0, 100, (int) Math.round(cutoff * 1000));
+        brightnessCutoffSlider.setPaintTicks(true);
+        brightnessCutoffSlider.setMajorTickSpacing(25);
+        brightnessCutoffSlider.setMinorTickSpacing(5);
+        brightnessCutoffSlider.addChangeListener(e -> {
+            starMapPanel
+                    .getRenderer()
+                    .getBrightnessModel()
+                    .setMinContribution(brightnessCutoffSlider.getValue() / 1000.0);
+            starMapPanel.repaint();
+        });
+        add(new JLabel("Faint Star Cutoff"));
+        add(brightnessCutoffSlider);
+
+        // ------------------------------ RENDER MODE ------------------------------
+        renderModeCombo = new JComboBox<>(RenderMode.values());
+        renderModeCombo.setSelectedItem(starMapPanel.getRenderer().getRenderMode());
+        renderModeCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        renderModeCombo.addActionListener(e -> {
+            starMapPanel
+                    .getRenderer()
+                    .setRenderMode((RenderMode) renderModeCombo.getSelectedItem());
+            starMapPanel.repaint();
+        });
+        add(new JLabel("Render Mode"));
+        add(renderModeCombo);
+
+        // ------------------------------ LABELS ------------------------------
+        labelsCheck = new JCheckBox("Show Labels");
+        labelsCheck.setSelected(starMapPanel.getRenderer().getLabelLayer().isEnabled());
+        labelsCheck.addActionListener(e -> {
+            starMapPanel.getRenderer().getLabelLayer().setEnabled(labelsCheck.isSelected());
+            starMapPanel.repaint();
+        });
+        add(labelsCheck);
+
+        // ------------------------------ DEPTH SORT ------------------------------
+        depthSortCheck = new JCheckBox("Depth Sort");
+        depthSortCheck.setSelected(starMapPanel.getRenderer().isDepthSorted());
+        depthSortCheck.addActionListener(e -> {
+            starMapPanel.getRenderer().setDepthSorted(depthSortCheck.isSelected());
+            starMapPanel.repaint();
+        });
+        add(depthSortCheck);
+
+        // ------------------------------ PROGRESSIVE ------------------------------
+        progressiveCheck = new JCheckBox("Progressive Rendering");
+        progressiveCheck.setSelected(starMapPanel.getRenderer().isProgressive());
+        progressiveCheck.addActionListener(e -> {
+            starMapPanel.getRenderer().setProgressive(progressiveCheck.isSelected());
+            starMapPanel.repaint();
+        });
+        add(progressiveCheck);
+
+        // ------------------------------ TILE CACHE ------------------------------
+        tileCacheCheck = new JCheckBox("Tile Cache (Panning)");
+        tileCacheCheck.setSelected(starMapPanel.getTilePyramid().isEnabled());
+        tileCacheCheck.addActionListener(e -> {
+            starMapPanel.getTilePyramid().setEnabled(tileCacheCheck.isSelected());
+            starMapPanel.repaint();
+        });
+        add(tileCacheCheck);
+
+        // ------------------------------ ADAPTIVE QUALITY ------------------------------
+        adaptiveQualityCheck = new JCheckBox("Adaptive Quality (16 ms)");
+        adaptiveQualityCheck.setSelected(starMapPanel.getQualityController().isEnabled());
+        adaptiveQualityCheck.addActionListener(e -> {
+            starMapPanel.getQualityController().setEnabled(adaptiveQualityCheck.isSelected());
+            starMapPanel.repaint();
+        });
+        add(adaptiveQualityCheck);
+
+        // ------------------------------ SIMD PROJECTION ------------------------------
+        // Only selectable when the JVM was started with the Vector API module
+        simdCheck = new JCheckBox("SIMD Projection");
+        simdCheck.setEnabled(ProjectionKernel.isVectorAvailable());
+        ProjectionKernel current = starMapPanel.getRenderer().getProjectionKernel();
+        simdCheck.setSelected(current != ProjectionKernel.scalar());
+        simdCheck.addActionListener(e -> {
+            ProjectionKernel k = simdCheck.isSelected() ? ProjectionKernel.vector()
+                    : ProjectionKernel.scalar();
+            starMapPanel.getRenderer().setProjectionKernel(k);
+            starMapPanel.repaint();
+        });
+        add(simdCheck);
+
+        // ------------------------------ SESSION RECORDING ------------------------------
+        // Replay the file headlessly with SessionReplay to benchmark frame times
+        recordSessionCheck = new JCheckBox("Record Session");
+        recordSessionCheck.addActionListener(e -> {
+            SessionRecorder recorder = starMapPanel.getSessionRecorder();
+
+            if (!recordSessionCheck.isSelected()) {
+                recorder.stop();
+                return;
+            }
+
+            try {
+                recorder.start(Path.of(System.getProperty(SESSION_FILE_PROPERTY, SESSION_FILE)));
+            }
+            catch (IOException ex) {
+                log.error("Could not start session recording", ex);
+                recordSessionCheck.setSelected(false);
+            }
+
+        });
+        add(recordSessionCheck);
+
+        // ------------------------------ FRAME HUD ------------------------------
+        // Per-phase timings on screen; the profiler only runs while this is ticked
+        frameHudCheck = new JCheckBox("Frame HUD");
+        frameHudCheck
+                .addActionListener(e -> starMapPanel.setHudVisible(frameHudCheck.isSelected()));
+        add(frameHudCheck);
+
+        JButton dumpProfileBtn = new JButton("Dump Frame Profile");
+        dumpProfileBtn.addActionListener(e -> {
+            Path file = Path.of(System.getProperty(PROFILE_FILE_PROPERTY, PROFILE_FILE));
+
+            try {
+                starMapPanel.getRenderer().getProfiler().writeJson(file);
+            }
+            catch (IOException ex) {
+                log.error("Could not write frame profile to {}", file, ex);
+            }
+
+        });
+        add(dumpProfileBtn);
+
+        // ------------------------------ MULTI-SELECTION ------------------------------
+        // Left drag on the map selects a box, shift + left drag a lasso; click clears
+        multiSelectionLabel = new JLabel("Region: none");
+        starMapPanel.addPropertyChangeListener("multiSelection", e -> {
+            SelectionStats stats = starMapPanel.getMultiSelectionStats();
+            String text = stats != null ? stats.getCount() + " stars" : "none";
+            multiSelectionLabel.setText("Region: " + text);
+            multiSelectionLabel.setToolTipText(stats != null ? stats.summary() : null);
+        });
+        add(multiSelectionLabel);
+
+        // ------------------------------ ROUTE PLANNER ------------------------------
+        // Select a star and "Set Start", then select another and "Route to Selected"
+        JPanel routePanel = new JPanel();
+        routePanel.setLayout(new BoxLayout(routePanel, BoxLayout.Y_AXIS));
+        routePanel.setBorder(BorderFactory.createTitledBorder("Route"));
+
+        jumpRangeField = new JTextField("25");
+        jumpRangeField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 25));
+        routePanel.add(new JLabel("Jump Range (pc)"));
+        routePanel.add(jumpRangeField);
+
+        routeModeCombo = new JComboBox<>(RouteMode.values());
+        routeModeCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, 25));
+        routePanel.add(routeModeCombo);
+
+        routeLabel = new JLabel("No start");
+        starMapPanel.addPropertyChangeListener("route", e -> {
+            Route r = starMapPanel.getRoute();
+            String text = r == null ? "" : r.isFound() ? r.getJumps() + " jumps" : "No route";
+            routeLabel.setText(text);
+            routeLabel.setToolTipText(r != null ? r.summary() : null);
+        });
+
+        JButton routeStartBtn = new JButton("Set Start");
+        routeStartBtn.addActionListener(e -> {
+            routeStart = starMapPanel.getSelectedStar();
+            routeLabel.setText(routeStart != null ? "From " + routeStart.getName() : "No start");
+        });
+        routePanel.add(routeStartBtn);
+
+        JButton routeToBtn = new JButton("Route to Selected");
+        routeToBtn.addActionListener(e -> {
+            Star target = starMapPanel.getSelectedStar();
+            if (routeStart == null || target == null)
+                return;
+
+            try {
+                double range = Double.parseDouble(jumpRangeField.getText().trim());
+                // The planner would reject it off the EDT, leaving "Planning..." up for good
+                if (!(range > 0) || Double.isInfinite(range)) {
+                    routeLabel.setText("Bad jump range");
+                    return;
+                }
+
+                starMapPanel
+                        .planRoute(
+                                routeStart, target, range, (RouteMode) routeModeCombo
+                                        .getSelectedItem()
+                        );
+                routeLabel.setText("Planning...");
+            }
+            catch (IllegalArgumentException ex) {
+                routeLabel.setText("Bad jump range");
+            }
+
+        });
+        routePanel.add(routeToBtn);
+
+        JButton clearRouteBtn = new JButton("Clear Route");
+        clearRouteBtn.addActionListener(e -> starMapPanel.setRoute(null));
+        routePanel.add(clearRouteBtn);
+
+        routePanel.add(routeLabel);
+        add(routePanel);
+
+        // ------------------------------ CLUSTERS ------------------------------
+        // DBSCAN in the background; stars are then coloured by cluster, noise dimmed
+        JPanel clusterPanel = new JPanel();
+        clusterPanel.setLayout(new BoxLayout(clusterPanel, BoxLayout.Y_AXIS));
+        clusterPanel.setBorder(BorderFactory.createTitledBorder("Clusters"));
+
+        clusterEpsilonField = new JTextField("10");
+        clusterEpsilonField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 25));
+        clusterPanel.add(new JLabel("Radius (pc)"));
+        clusterPanel.add(clusterEpsilonField);
+
+        clusterMinPointsField = new JTextField("5");
+        clusterMinPointsField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 25));
+        clusterPanel.add(new JLabel("Min Stars"));
+        clusterPanel.add(clusterMinPointsField);
+
+        clusterLabel = new JLabel("Not clustered");
+        starMapPanel.addPropertyChangeListener("clusters", e -> {
+            ClusterResult c = starMapPanel.getClusters();
+            clusterLabel.setText(c != null ? c.getClusterCount() + " clusters" : "Not clustered");
+            clusterLabel.setToolTipText(c != null ? c.summary() : null);
+        });
+        starMapPanel.addPropertyChangeListener("clusterError", e -> {
+            clusterLabel.setText("Clustering failed");
+            clusterLabel.setToolTipText(String.valueOf(e.getNewValue()));
+        });
+
+        JButton clusterBtn = new JButton("Find Clusters");
+        clusterBtn.addActionListener(e -> {
+            try {
+                double eps = Double.parseDouble(clusterEpsilonField.getText().trim());
+                int min = Integer.parseInt(clusterMinPointsField.getText().trim());
+                // DBSCAN would reject these off the EDT, leaving "Clustering..." up for good
+                if (!(eps > 0) || Double.isInfinite(eps) || min < 1) {
+                    clusterLabel.setText("Bad parameters");
+                    return;
+                }
+
+                starMapPanel.findClusters(eps, min);
+                clusterLabel.setText("Clustering...");
+            }
+            catch (IllegalArgumentException ex) {
+                clusterLabel.setText("Bad parameters");
+            }
+
+        });
+        clusterPanel.add(clusterBtn);
+
+        JButton clearClustersBtn = new JButton("Clear Clusters");
+        clearClustersBtn.addActionListener(e -> starMapPanel.setClusters(null));
+        clusterPanel.add(clearClustersBtn);
+        clusterPanel.add(clusterLabel);
+        add(clusterPanel);
+
         // ------------------------------ ZOOM TO FIT ------------------------------
         zoomToFitButton = new JButton("Zoom to Fit Cluster");
         zoomToFitButton
@@ -3,19 +3,45 @@ package net.laurus.starmapper.ui.panel;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.analysis.ClusterResult;
+import net.laurus.starmapper.analysis.Dbscan;
+import net.laurus.starmapper.headless.HeadlessRenderer;
+import net.laurus.starmapper.headless.SessionRecorder;
+import net.laurus.starmapper.headless.ViewSpec;
+import net.laurus.starmapper.model.NeighbourGraph;
+import net.laurus.starmapper.model.SelectionStats;
 import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
+import net.laurus.starmapper.model.StarSelection;
+import net.laurus.starmapper.navigation.Route;
+import net.laurus.starmapper.navigation.RouteMode;
+import net.laurus.starmapper.navigation.RoutePlanner;
 import net.laurus.starmapper.ui.component.Camera;
 import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.ui.input.AsyncPicker;
 import net.laurus.starmapper.ui.input.RotationHandler;
 import net.laurus.starmapper.ui.input.StarInputHandler;
+import net.laurus.starmapper.ui.render.FrameHud;
+import net.laurus.starmapper.ui.render.QualityController;
 import net.laurus.starmapper.ui.render.StarRenderer;
+import net.laurus.starmapper.ui.render.TileCache;
+import net.laurus.starmapper.ui.render.TilePyramid;
+import net.laurus.starmapper.util.FramePhase;
+import net.laurus.starmapper.util.FrameProfiler;
 
 /**
  * Main panel: delegates input, rendering, selection, and camera handling
@@ -23,6 +49,22 @@ import net.laurus.starmapper.ui.render.StarRenderer;
 @Slf4j
 public class StarMapPanel extends JPanel {
 
+    /** System property naming a directory for the on-disk tile cache */
+    public static final String TILE_CACHE_PROPERTY = "starmapper.tileCache";
+
+    // 256 tiles of 256x256 ARGB = 64 MB
+    private static final int TILE_CACHE_SIZE = 256;
+
+    // Routes can take seconds, so they get their own thread rather than the picker's
+    private static final ExecutorService ROUTE_WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "route-planner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Getter
+    private final StarCatalog catalog;
+
     private final List<Star> stars;
 
     @Getter
@@ -32,6 +74,29 @@ public class StarMapPanel extends JPanel {
     @Setter
     private Star selectedStar;
 
+    // Box or lasso selection, highlighted by the renderer; null when there is none
+    @Getter
+    private StarSelection multiSelection;
+
+    @Getter
+    private SelectionStats multiSelectionStats;
+
+    // Jump-range routes between stars, planned off the EDT
+    @Getter
+    private final RoutePlanner routePlanner;
+
+    private final AsyncPicker<Route> routeWorker = new AsyncPicker<>(ROUTE_WORKER);
+
+    @Getter
+    private Route route;
+
+    // Cluster labels being used as the colour mode, or null
+    @Getter
+    private ClusterResult clusters;
+
+    // Bumped per clustering request so only the newest result is applied
+    private final AtomicLong clusterGeneration = new AtomicLong();
+
     @Getter
     private final StarInputHandler inputHandler;
 
@@ -41,45 +106,143 @@ public class StarMapPanel extends JPanel {
     @Getter
     private final KDTree kdtree;
 
-    public StarMapPanel(List<Star> stars) {
+    @Getter
+    private final TilePyramid tilePyramid;
 
-        if (stars == null || stars.isEmpty()) {
-            throw new IllegalArgumentException("Star list must not be null or empty");
-        }
+    @Getter
+    private final QualityController qualityController;
 
-        this.stars = stars;
-        this.kdtree = new KDTree(stars);
+    // A delayed repaint at reduced quality once the view is still, so the level can climb
+    private final Timer qualityProbe = new Timer(250, e -> repaint());
+
+    // Per-phase timing overlay; showing it turns the renderer's profiler on
+    @Getter
+    private boolean hudVisible;
+
+    // Writes a ViewSpec per painted frame while recording, for SessionReplay
+    @Getter
+    private final SessionRecorder sessionRecorder = new SessionRecorder();
+
+    public StarMapPanel(List<Star> stars) {
+        this(new StarCatalog(stars));
+    }
+
+    public StarMapPanel(StarCatalog catalog) {
+        this.catalog = catalog;
+        this.stars = catalog.getStars();
+        this.kdtree = catalog.getKdtree();
         setBackground(java.awt.Color.BLACK);
 
         // Enable camera inertia by default off
         camera.setUseInertia(false);
 
         // Initialize renderer
-        renderer = new StarRenderer(this.stars, this.camera, this.kdtree);
+        renderer = new StarRenderer(catalog, this.camera);
+        qualityController = new QualityController(renderer);
+        String graphDir = System.getProperty(NeighbourGraph.DIR_PROPERTY);
+        routePlanner = new RoutePlanner(catalog, graphDir != null ? Path.of(graphDir) : null);
+        renderer.setOnDistanceIndexReady(this::repaint);
+        // Progressive frames continue on the next paint, whether or not a timer is running
+        renderer.setOnRefine(this::repaint);
+
+        // Tile pyramid for cheap panning of the unrotated view; optional disk cache
+        String tileDir = System.getProperty(TILE_CACHE_PROPERTY);
+        TileCache tileCache = new TileCache(
+                TILE_CACHE_SIZE, tileDir != null ? Path.of(tileDir) : null
+        );
+        int tileThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        tilePyramid = new TilePyramid(
+                new HeadlessRenderer(catalog), tileCache, tileThreads, this::repaint
+        );
 
         // Initialize input handler (modular)
         inputHandler = new StarInputHandler(this, renderer);
 
         // Enable tooltips
         setToolTipText("");
+        qualityProbe.setRepeats(false);
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        FrameProfiler profiler = renderer.getProfiler();
+        long frame = profiler.beginFrame();
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
         Object aa = g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d
+                .setRenderingHint(
+                        RenderingHints.KEY_ANTIALIASING, qualityController.isAntialiasing()
+                                ? RenderingHints.VALUE_ANTIALIAS_ON
+                                : RenderingHints.VALUE_ANTIALIAS_OFF
+                );
 
         // Build rotation matrix from modular rotation handler
         RotationHandler rotHandler = inputHandler.getRotationHandler();
         double[][] rotMatrix = StarRenderer
                 .buildRotationMatrix(rotHandler.getRotX(), rotHandler.getRotY());
 
-        // Render stars
-        renderer.render(g2d, getWidth(), getHeight(), selectedStar, rotMatrix);
+        if (sessionRecorder.isRecording())
+            recordFrame(rotHandler);
+
+        // Render stars, from tiles while panning the unrotated view
+        if (paintFromTiles(g2d, rotHandler))
+            renderer.renderOverlay(g2d, getWidth(), getHeight(), selectedStar, rotMatrix);
+        else
+            renderer.render(g2d, getWidth(), getHeight(), selectedStar, rotMatrix);
+
+        long t = profiler.begin();
+        inputHandler.getSelectionHandler().paintOverlay(g2d);
+        profiler.lap(FramePhase.OVERLAY, t);
+        profiler.endFrame(frame);
+
+        if (hudVisible)
+            FrameHud.paint(g2d, profiler.snapshot());
 
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, aa);
+        qualityController.frameRendered(System.nanoTime() - start);
+
+        // Frames are fast again at reduced quality: while the camera moves the update
+        // loop keeps painting; once it stops, paint again after a delay
+        boolean still = !camera.isMoving() && !inputHandler.getPanHandler().isPanning();
+        if (still && qualityController.wantsRefresh())
+            qualityProbe.restart();
+    }
+
+    private void recordFrame(RotationHandler rotHandler) {
+        ViewSpec view = ViewSpec.of(camera, renderer, rotHandler.getRotX(), rotHandler.getRotY());
+        view.setAntialias(qualityController.isAntialiasing());
+        view.setSelected(selectedStar != null ? selectedStar.getId() : -1);
+        sessionRecorder.record(view);
+    }
+
+    /**
+     * Composite tiles while the view is being panned. Idle frames render live
+     * (with labels) and warm the tile cache around the current view instead.
+     */
+    private boolean paintFromTiles(Graphics2D g2d, RotationHandler rotHandler) {
+        // Tiles are drawn in catalog colours, so cluster colouring renders live
+        if (!tilePyramid.isEnabled() || renderer.useDensity() || clusters != null)
+            return false;
+
+        ViewSpec view = ViewSpec.of(camera, renderer, rotHandler.getRotX(), rotHandler.getRotY());
+        view.setAntialias(qualityController.isAntialiasing());
+        if (!TilePyramid.supports(view))
+            return false;
+
+        if (!inputHandler.getPanHandler().isPanning() && !camera.isMoving()) {
+            tilePyramid.prefetch(view, getWidth(), getHeight(), 1);
+            return false;
+        }
+
+        return tilePyramid.draw(g2d, view, getWidth(), getHeight());
+    }
+
+    public void setHudVisible(boolean visible) {
+        hudVisible = visible;
+        renderer.getProfiler().setEnabled(visible);
+        repaint();
     }
 
     /** Reset rotation using modular input handler */
@@ -96,6 +259,92 @@ public class StarMapPanel extends JPanel {
         log.debug("Distance filter set to {}", parsecs);
     }
 
+    /**
+     * Replace the multi-selection (null clears it). Fires a
+     * {@code "multiSelection"} property change for listeners such as the
+     * control panel.
+     */
+    public void setMultiSelection(StarSelection selection, SelectionStats stats) {
+        StarSelection old = multiSelection;
+        multiSelection = selection;
+        multiSelectionStats = stats;
+        renderer.setHighlighted(selection);
+        repaint();
+        firePropertyChange("multiSelection", old, selection);
+        log.debug("Multi-selection: {}", stats != null ? stats.summary() : "cleared");
+    }
+
+    /**
+     * Plan a route between two stars in the background; the result replaces
+     * the current route when it arrives. A newer request supersedes this one.
+     */
+    public void planRoute(Star from, Star to, double jumpRange, RouteMode mode) {
+        int fromId = from.getId(), toId = to.getId();
+        routeWorker
+                .submit(
+                        cancelled -> routePlanner.plan(fromId, toId, jumpRange, mode, cancelled),
+                        r -> {
+                            if (r != null)
+                                setRoute(r);
+                        }
+                );
+    }
+
+    /**
+     * Run DBSCAN in the background and colour stars by cluster when done. Uses
+     * the cached neighbour graph for {@code epsilon} when a graph directory is
+     * configured. If the latest run fails, fires {@code "clusterError"} with
+     * the failure's message.
+     */
+    public void findClusters(double epsilon, int minPoints) {
+        long gen = clusterGeneration.incrementAndGet();
+        String graphDir = System.getProperty(NeighbourGraph.DIR_PROPERTY);
+
+        CompletableFuture.supplyAsync(() -> {
+            if (graphDir == null)
+                return Dbscan.run(catalog, epsilon, minPoints);
+            return Dbscan
+                    .run(
+                            NeighbourGraph.loadOrBuild(catalog, epsilon, Path.of(graphDir)),
+                            minPoints
+                    );
+        }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            boolean latest = clusterGeneration.get() == gen;
+            if (error == null) {
+                if (latest)
+                    setClusters(result);
+                return;
+            }
+
+            log.error("Clustering failed", error);
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            if (latest)
+                firePropertyChange("clusterError", null, cause.getMessage());
+        }));
+    }
+
+    /** Colour by these clusters (null restores star colours); fires {@code "clusters"}. */
+    public void setClusters(ClusterResult result) {
+        if (result == null)
+            clusterGeneration.incrementAndGet();
+
+        ClusterResult old = clusters;
+        clusters = result;
+        renderer.setClusterLabels(result != null ? result.getLabels() : null);
+        repaint();
+        firePropertyChange("clusters", old, result);
+    }
+
+    /** Replace the drawn route (null clears it) and fire a {@code "route"} property change. */
+    public void setRoute(Route route) {
+        Route old = this.route;
+        this.route = route;
+        renderer.setRoute(route);
+        repaint();
+        firePropertyChange("route", old, route);
+        log.debug("Route: {}", route != null ? route.summary() : "cleared");
+    }
+
     /** Zoom to fit selected cluster or distance filter */
     public void zoomToFitSelected(double radiusParsecs) {
         renderer.zoomToFitSelected(selectedStar, radiusParsecs, getWidth(), getHeight());
@@ -112,6 +361,8 @@ public class StarMapPanel extends JPanel {
      * from your animation loop or Swing timer.
      */
     public void update(double deltaSeconds) {
+        // Apply drag and wheel input gathered since the last tick; repaints if it moved
+        inputHandler.getInputPipeline().applyPending();
 
         if (camera.isUseInertia() && camera.isMoving()) {
             camera.update(deltaSeconds);
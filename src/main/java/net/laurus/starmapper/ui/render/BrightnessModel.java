@@ -0,0 +1,87 @@
+package net.laurus.starmapper.ui.render;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Maps a star's luminosity (JSON "N", solar units) and its distance from the
+ * eye to an apparent brightness, point size and alpha. Stars whose apparent
+ * brightness falls below {@link #minContribution} are culled.
+ */
+@Getter
+@Setter
+public class BrightnessModel {
+
+    /** Closest eye distance (parsecs) used, avoids blow-ups for stars at the eye */
+    public static final double MIN_DISTANCE = 1.0;
+
+    public static final double DEFAULT_MIN_CONTRIBUTION = 0.005;
+
+    public static final double DEFAULT_EXPOSURE = 4000.0;
+
+    public static final int DEFAULT_MIN_POINT_SIZE = 1;
+
+    public static final int DEFAULT_MAX_POINT_SIZE = 8;
+
+    public static final double DEFAULT_REFERENCE_POINT_SIZE = 3.0;
+
+    // Scales flux so a median bubble star (~60 L at ~500 pc) reads as ~1.0
+    private double exposure = DEFAULT_EXPOSURE;
+
+    // Apparent brightness below which a star contributes no visible pixel
+    private double minContribution = DEFAULT_MIN_CONTRIBUTION;
+
+    private int minPointSize = DEFAULT_MIN_POINT_SIZE;
+
+    private int maxPointSize = DEFAULT_MAX_POINT_SIZE;
+
+    // Point size of a star with apparent brightness 1.0
+    private double referencePointSize = DEFAULT_REFERENCE_POINT_SIZE;
+
+    private boolean enabled = true;
+
+    /** Apparent brightness from luminosity and squared eye distance (parsecs^2). */
+    public double apparentBrightness(double luminosity, double distanceSq) {
+        return exposure * luminosity / Math.max(distanceSq, MIN_DISTANCE * MIN_DISTANCE);
+    }
+
+    public boolean isVisible(double brightness) {
+        return !enabled || brightness >= minContribution;
+    }
+
+    /**
+     * Faintest luminosity that can still be visible when no star is closer to
+     * the eye than {@code minDistance} parsecs. Used for bulk culling.
+     */
+    public double luminosityCutoff(double minDistance) {
+        if (!enabled)
+            return 0;
+        double d = Math.max(minDistance, MIN_DISTANCE);
+        return minContribution * d * d / exposure;
+    }
+
+    /**
+     * Apparent parsecs per square root of luminosity within which a star
+     * stays visible (infinite with culling off). Stars are never visible at
+     * all when this reach is under {@link #MIN_DISTANCE}.
+     */
+    public double reachPerSqrtLuminosity() {
+        if (!enabled || minContribution <= 0)
+            return Double.POSITIVE_INFINITY;
+        return Math.sqrt(exposure / minContribution);
+    }
+
+    public int pointSize(double brightness) {
+        if (!enabled)
+            return (int) referencePointSize;
+        int size = (int) Math.round(referencePointSize * Math.pow(brightness, 0.25));
+        return Math.max(minPointSize, Math.min(maxPointSize, size));
+    }
+
+    public int alpha(double brightness) {
+        if (!enabled || brightness >= 1.0)
+            return 255;
+        return (int) Math.max(40, 255 * Math.sqrt(brightness));
+    }
+
+}
@@ -0,0 +1,191 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Renders the catalog as a density image. Each worker projects a chunk of
+ * stars and bins them into its own float RGB accumulation buffer at screen
+ * resolution; the buffers are then summed row by row in parallel, log tone
+ * mapped and written into a single image, so cost is one pass over primitive
+ * columns regardless of how many stars share a pixel. Merging and tone mapping
+ * clear the buffers as they read them, ready for the next frame.
+ */
+public class DensityRenderer {
+
+    // Below this many stars per chunk the fork/join overhead is not worth it
+    private static final int MIN_CHUNK = 1 << 15;
+
+    private final StarColumns columns;
+
+    /** Multiplier applied before log tone mapping; higher lifts sparse regions */
+    @Getter
+    @Setter
+    private double exposure = 4.0;
+
+    private int width, height;
+
+    // Per worker, [pixel * 3 + channel]; all zero between frames. The first
+    // also holds the merged sum for tone mapping
+    private float[][] buffers = new float[0][];
+
+    private BufferedImage image;
+
+    public DensityRenderer(StarColumns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Bin all stars within {@code maxDistanceSq} (scaled units, measured from
+     * the focus) and return the tone mapped image. The image is reused across
+     * calls and only valid until the next one.
+     */
+    public BufferedImage render(
+            ViewTransform view,
+            int width,
+            int height,
+            double focusX,
+            double focusY,
+            double focusZ,
+            double maxDistanceSq
+    ) {
+        int n = columns.getSize();
+        int threads = ForkJoinPool.getCommonPoolParallelism() + 1;
+        int chunks = Math.max(1, Math.min(threads, n / MIN_CHUNK));
+        int per = (n + chunks - 1) / chunks;
+        ensureBuffers(width, height, chunks);
+
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * per, to = Math.min(n, from + per);
+            bin(view, buffers[c], from, to, focusX, focusY, focusZ, maxDistanceSq);
+        });
+
+        float max = merge(chunks);
+        toneMap(max);
+        return image;
+    }
+
+    /** Estimated stars per covered pixel for a catalog of the given radius. */
+    public static double starsPerPixel(int starCount, double radiusParsecs, double zoom) {
+        double r = Math.max(1, radiusParsecs * StarRenderer.COORD_SCALE * zoom);
+        return starCount / (Math.PI * r * r);
+    }
+
+    private void ensureBuffers(int w, int h, int workers) {
+        if (w != width || h != height) {
+            width = w;
+            height = h;
+            buffers = new float[0][];
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        if (buffers.length >= workers)
+            return;
+
+        // Grows to at most one buffer per pool thread; existing ones are all zero
+        float[][] grown = Arrays.copyOf(buffers, workers);
+
+        for (int c = buffers.length; c < workers; c++)
+            grown[c] = new float[w * h * 3];
+
+        buffers = grown;
+    }
+
+    /** Add the colour of every star in from..to that lands on screen to its pixel in acc. */
+    private void bin(
+            ViewTransform view,
+            float[] acc,
+            int from,
+            int to,
+            double fx,
+            double fy,
+            double fz,
+            double maxDistanceSq
+    ) {
+        float[] rs = columns.getRed(), gs = columns.getGreen(), bs = columns.getBlue();
+        double scale = StarRenderer.COORD_SCALE;
+        double[] p = new double[ViewTransform.OUT_SIZE];
+
+        for (int i = from; i < to; i++) {
+            double wx = columns.x(i), wy = columns.y(i), wz = columns.z(i);
+            double dx = (wx - fx) * scale;
+            double dy = (wy - fy) * scale;
+            double dz = (wz - fz) * scale;
+            if (dx * dx + dy * dy + dz * dz > maxDistanceSq)
+                continue;
+
+            view.project(wx, wy, wz, p);
+            int sx = (int) p[ViewTransform.SCREEN_X];
+            int sy = (int) p[ViewTransform.SCREEN_Y];
+            if (sx < 0 || sy < 0 || sx >= width || sy >= height)
+                continue;
+
+            int o = (sy * width + sx) * 3;
+            acc[o] += rs[i];
+            acc[o + 1] += gs[i];
+            acc[o + 2] += bs[i];
+        }
+
+    }
+
+    /**
+     * Sum the first {@code workers} buffers into the first, a band of rows per
+     * task, clearing the others. Returns the peak channel value.
+     */
+    private float merge(int workers) {
+        float[] sum = buffers[0];
+
+        double max = IntStream.range(0, height).parallel().mapToDouble(row -> {
+            int from = row * width * 3, to = from + width * 3;
+
+            for (int c = 1; c < workers; c++) {
+                float[] acc = buffers[c];
+
+                for (int o = from; o < to; o++) {
+                    sum[o] += acc[o];
+                    acc[o] = 0f;
+                }
+
+            }
+
+            float peak = 0f;
+
+            for (int o = from; o < to; o++)
+                peak = Math.max(peak, sum[o]);
+
+            return peak;
+        }).max().orElse(0);
+        return (float) max;
+    }
+
+    private void toneMap(float max) {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        float[] acc = buffers[0];
+        double norm = max > 0 ? 255.0 / Math.log1p(max * exposure) : 0;
+
+        IntStream.range(0, height).parallel().forEach(row -> {
+            for (int px = row * width, end = px + width; px < end; px++) {
+                int o = px * 3;
+                // Empty pixels (the common case) stay transparent and skip the logs
+                if (acc[o] == 0f && acc[o + 1] == 0f && acc[o + 2] == 0f) {
+                    pixels[px] = 0;
+                    continue;
+                }
+
+                int r = (int) (Math.log1p(acc[o] * exposure) * norm);
+                int g = (int) (Math.log1p(acc[o + 1] * exposure) * norm);
+                int b = (int) (Math.log1p(acc[o + 2] * exposure) * norm);
+                pixels[px] = 0xFF000000 | r << 16 | g << 8 | b;
+                acc[o] = acc[o + 1] = acc[o + 2] = 0f;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,103 @@
+package net.laurus.starmapper.ui.render;
+
+import java.util.Arrays;
+
+/**
+ * Orders a frame's {@link ProjectedStars} far-to-near with an LSD radix sort
+ * on 16-bit quantised depth. Works purely on reusable int buffers, so sorting
+ * is linear in the number of visible stars and allocation-free once warm.
+ */
+public class DepthSorter {
+
+    private static final int KEY_BITS = 16;
+
+    private static final int RADIX_BITS = 8;
+
+    private static final int BUCKETS = 1 << RADIX_BITS;
+
+    private static final int KEY_MAX = (1 << KEY_BITS) - 1;
+
+    private int[] keys = new int[0];
+
+    private int[] order = new int[0];
+
+    private int[] tmp = new int[0];
+
+    private final int[] counts = new int[BUCKETS];
+
+    private float minDepth, maxDepth;
+
+    /**
+     * Sort the slots of {@code stars} by descending depth. The returned array
+     * is owned by the sorter; only its first {@code stars.size()} entries are
+     * meaningful and it is overwritten by the next call.
+     */
+    public int[] sort(ProjectedStars stars) {
+        int n = stars.size();
+        ensureCapacity(n);
+
+        minDepth = Float.POSITIVE_INFINITY;
+        maxDepth = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < n; i++) {
+            float d = stars.depth(i);
+            minDepth = Math.min(minDepth, d);
+            maxDepth = Math.max(maxDepth, d);
+        }
+
+        float range = maxDepth - minDepth;
+        float quant = range > 0 ? KEY_MAX / range : 0;
+
+        // Far stars get small keys so an ascending sort draws them first
+        for (int i = 0; i < n; i++) {
+            keys[i] = (int) ((maxDepth - stars.depth(i)) * quant);
+            order[i] = i;
+        }
+
+        for (int shift = 0; shift < KEY_BITS; shift += RADIX_BITS) {
+            pass(n, shift);
+        }
+
+        return order;
+    }
+
+    /** Relative depth of a value from the last sort: 0 = nearest, 1 = farthest. */
+    public float normalisedDepth(float depth) {
+        float range = maxDepth - minDepth;
+        return range > 0 ? (depth - minDepth) / range : 0f;
+    }
+
+    private void pass(int n, int shift) {
+        Arrays.fill(counts, 0);
+
+        for (int i = 0; i < n; i++) {
+            counts[(keys[order[i]] >>> shift) & (BUCKETS - 1)]++;
+        }
+
+        int sum = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            int c = counts[b];
+            counts[b] = sum;
+            sum += c;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int slot = order[i];
+            tmp[counts[(keys[slot] >>> shift) & (BUCKETS - 1)]++] = slot;
+        }
+
+        int[] swap = order;
+        order = tmp;
+        tmp = swap;
+    }
+
+    private void ensureCapacity(int n) {
+        if (keys.length >= n)
+            return;
+        int cap = Math.max(n, keys.length * 2);
+        keys = new int[cap];
+        order = new int[cap];
+        tmp = new int[cap];
+    }
+
+}
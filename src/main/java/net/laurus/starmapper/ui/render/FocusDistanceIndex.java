@@ -0,0 +1,248 @@
+package net.laurus.starmapper.ui.render;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.laurus.starmapper.jfr.IndexBuildEvent;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Catalog indices sorted by squared distance to one camera focus, so the stars
+ * passing a distance filter are a prefix found by binary search. Built off the
+ * paint thread whenever the focus changes.
+ * <p>
+ * The sort is a stable LSD radix sort on the exact bits of each squared
+ * distance (non-negative doubles order like their bits), so ties keep catalog
+ * order and no fix-up pass is needed. Its scratch buffers belong to the
+ * building thread and are reused across builds; each index only allocates the
+ * order and distances it keeps.
+ * <p>
+ * {@link #select} turns a prefix back into catalog (brightest-first) order so
+ * render passes keep their usual draw order; that part keeps per-renderer
+ * state and is not thread-safe.
+ */
+public class FocusDistanceIndex {
+
+    // One low-priority builder for the whole process; builds are rare (focus changes)
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "focus-distance-index");
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    // Radix digit: 4 passes for a 64-bit key, 2 for a catalog index
+    private static final int DIGIT_BITS = 16;
+
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+
+    // Below this a selection is sorted by comparison; the digit histogram isn't worth it
+    private static final int SMALL_SELECTION = 1 << 10;
+
+    // Per building thread (in practice just BUILDER): sort buffers kept between builds
+    private static final ThreadLocal<SortBuffers> BUFFERS = ThreadLocal
+            .withInitial(SortBuffers::new);
+
+    private final double focusX, focusY, focusZ;
+
+    // Catalog indices by ascending distance, and the bits of their squared (scaled) distances
+    private final int[] order;
+
+    private final long[] distanceBits;
+
+    // order[0..selected) in catalog order, plus scratch for sorting it; grown on demand
+    private int[] selection = new int[0];
+
+    private int[] selectionScratch = new int[0];
+
+    private int[] selectionCounts;
+
+    private int selected = -1;
+
+    private FocusDistanceIndex(double fx, double fy, double fz, int[] order, long[] distanceBits) {
+        this.focusX = fx;
+        this.focusY = fy;
+        this.focusZ = fz;
+        this.order = order;
+        this.distanceBits = distanceBits;
+    }
+
+    private static final class SortBuffers {
+
+        long[] keys = new long[0];
+
+        int[] values = new int[0];
+
+        final int[] counts = new int[1 << DIGIT_BITS];
+
+        void ensure(int n) {
+            if (keys.length >= n)
+                return;
+
+            keys = new long[n];
+            values = new int[n];
+        }
+
+    }
+
+    /**
+     * Sort the catalog by distance to the focus. Distances are computed exactly
+     * as the projection kernels do, so prefixes agree with their filter test.
+     */
+    public static FocusDistanceIndex build(StarColumns columns, double fx, double fy, double fz) {
+        int n = columns.getSize();
+        IndexBuildEvent event = IndexBuildEvent.start("focus distance", n);
+        double scale = StarRenderer.COORD_SCALE;
+        long[] keys = new long[n];
+        int[] order = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            double dx = (columns.x(i) - fx) * scale;
+            double dy = (columns.y(i) - fy) * scale;
+            double dz = (columns.z(i) - fz) * scale;
+            // A sum of squares is never negative (nor -0.0), so its bits sort like its value
+            keys[i] = Double.doubleToRawLongBits(dx * dx + dy * dy + dz * dz);
+            order[i] = i;
+        }
+
+        SortBuffers buffers = BUFFERS.get();
+        buffers.ensure(n);
+        sort(keys, order, n, buffers);
+
+        event.finish();
+        return new FocusDistanceIndex(fx, fy, fz, order, keys);
+    }
+
+    // Stable LSD radix sort of (key, value) pairs by unsigned key; passes over a constant digit
+    private static void sort(long[] keys, int[] values, int n, SortBuffers buffers) {
+        long[] srcKeys = keys, dstKeys = buffers.keys;
+        int[] srcValues = values, dstValues = buffers.values;
+        int[] counts = buffers.counts;
+
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < n; i++)
+                counts[(int) (srcKeys[i] >>> shift) & DIGIT_MASK]++;
+
+            if (n == 0 || counts[(int) (srcKeys[0] >>> shift) & DIGIT_MASK] == n)
+                continue;
+
+            for (int d = 0, sum = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int at = counts[(int) (srcKeys[i] >>> shift) & DIGIT_MASK]++;
+                dstKeys[at] = srcKeys[i];
+                dstValues[at] = srcValues[i];
+            }
+
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            int[] tv = srcValues;
+            srcValues = dstValues;
+            dstValues = tv;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+
+    }
+
+    public static CompletableFuture<FocusDistanceIndex> buildAsync(
+            StarColumns columns,
+            double fx,
+            double fy,
+            double fz
+    ) {
+        return CompletableFuture.supplyAsync(() -> build(columns, fx, fy, fz), BUILDER);
+    }
+
+    public boolean isFor(double fx, double fy, double fz) {
+        return fx == focusX && fy == focusY && fz == focusZ;
+    }
+
+    /** Number of stars within the (scaled) squared distance, i.e. the prefix length. */
+    public int countWithin(double maxDistanceSq) {
+        int lo = 0, hi = distanceBits.length;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.longBitsToDouble(distanceBits[mid]) <= maxDistanceSq)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    /** Catalog index of the {@code k}-th nearest star. Read-only, safe on any thread. */
+    public int orderAt(int k) {
+        return order[k];
+    }
+
+    /**
+     * Catalog indices of the nearest {@code count} stars in ascending (i.e.
+     * brightest-first) order. Only the prefix is touched: it is copied out and
+     * radix sorted, so the cost follows {@code count}, not the catalog. The
+     * returned array is owned by this index; use its first {@code count} entries.
+     */
+    public int[] select(int count) {
+        if (count == selected)
+            return selection;
+
+        if (selection.length < count) {
+            int capacity = Math.min(order.length, Math.max(count, 2 * selection.length));
+            selection = new int[capacity];
+            selectionScratch = new int[capacity];
+        }
+
+        System.arraycopy(order, 0, selection, 0, count);
+        if (count < SMALL_SELECTION)
+            Arrays.sort(selection, 0, count);
+        else
+            sortIndices(count);
+
+        selected = count;
+        return selection;
+    }
+
+    // Two stable 16-bit passes over non-negative ints end back in selection
+    private void sortIndices(int count) {
+        if (selectionCounts == null)
+            selectionCounts = new int[1 << DIGIT_BITS];
+
+        int[] src = selection, dst = selectionScratch, counts = selectionCounts;
+
+        for (int shift = 0; shift < Integer.SIZE; shift += DIGIT_BITS) {
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < count; i++)
+                counts[(src[i] >>> shift) & DIGIT_MASK]++;
+
+            for (int d = 0, sum = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+
+            for (int i = 0; i < count; i++)
+                dst[counts[(src[i] >>> shift) & DIGIT_MASK]++] = src[i];
+
+            int[] t = src;
+            src = dst;
+            dst = t;
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import lombok.experimental.UtilityClass;
+import net.laurus.starmapper.util.FramePhase;
+import net.laurus.starmapper.util.FrameProfile;
+import net.laurus.starmapper.util.FrameStats;
+
+/**
+ * Text overlay of a {@link FrameProfile}: fps, p50/p95 per phase, stars drawn
+ * and culled, and allocation, in a translucent box in the top-left corner.
+ */
+@UtilityClass
+public class FrameHud {
+
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    private static final Color TEXT = new Color(160, 255, 160);
+
+    private static final int MARGIN = 8;
+
+    private static final int PADDING = 6;
+
+    public static void paint(Graphics2D g, FrameProfile profile) {
+        List<String> lines = lines(profile);
+        g.setFont(FONT);
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+
+        for (String line : lines)
+            width = Math.max(width, fm.stringWidth(line));
+
+        int lineHeight = fm.getHeight();
+        g.setColor(BACKGROUND);
+        g
+                .fillRect(
+                        MARGIN, MARGIN, width + 2 * PADDING, lines.size() * lineHeight
+                                + 2 * PADDING
+                );
+        g.setColor(TEXT);
+        int y = MARGIN + PADDING + fm.getAscent();
+
+        for (String line : lines) {
+            g.drawString(line, MARGIN + PADDING, y);
+            y += lineHeight;
+        }
+
+    }
+
+    private static List<String> lines(FrameProfile profile) {
+        List<String> lines = new ArrayList<>();
+        double fps = profile.getFramesPerSecond();
+        lines.add(String.format(Locale.ROOT, "%5.1f fps     p50 / p95 ms", fps));
+
+        for (Map.Entry<FramePhase, FrameStats> e : profile.getPhases().entrySet()) {
+            FrameStats s = e.getValue();
+            if (s.getFrames() == 0)
+                continue;
+
+            lines
+                    .add(
+                            String
+                                    .format(
+                                            Locale.ROOT, "%-8s %7.2f / %6.2f",
+                                            e.getKey().name().toLowerCase(Locale.ROOT),
+                                            s.getP50Ms(), s.getP95Ms()
+                                    )
+                    );
+        }
+
+        if (profile.getStarsDrawn() >= 0)
+            lines
+                    .add(
+                            String
+                                    .format(
+                                            "drawn %d, culled %d", profile.getStarsDrawn(),
+                                            profile.getStarsCulled()
+                                    )
+                    );
+
+        if (profile.getAllocatedBytesPerFrame() >= 0)
+            lines
+                    .add(
+                            String
+                                    .format(
+                                            Locale.ROOT, "alloc %d KB/frame, %.1f MB/s",
+                                            profile.getAllocatedBytesPerFrame() / 1024,
+                                            profile.getAllocationMbPerSecond()
+                                    )
+                    );
+
+        return lines;
+    }
+
+}
@@ -0,0 +1,352 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.ui.component.MagnitudeIndex;
+
+/**
+ * Labels the highest-priority visible stars without overlaps. Candidates are
+ * ranked by apparent brightness (which already folds in nearness) and placed
+ * greedily against a screen-space occupancy grid. Placements are reused while
+ * the camera only pans or moves slightly, and glyph layouts are cached per name.
+ */
+public class LabelLayer {
+
+    // Occupancy grid cell size in pixels
+    private static final int CELL = 8;
+
+    // Gap between a star and its label
+    private static final int GAP = 6;
+
+    // Candidates considered per label slot
+    private static final int CANDIDATES_PER_LABEL = 4;
+
+    private static final int GLYPH_CACHE_SIZE = 2048;
+
+    // Views closer than this (matrix/zoom delta) keep the previous placement
+    private static final double REUSE_TOLERANCE = 0.02;
+
+    // Force a fresh placement after this many reused frames
+    private static final int MAX_REUSE_FRAMES = 30;
+
+    private static final Color LABEL_COLOUR = new Color(200, 200, 200);
+
+    @Getter
+    @Setter
+    private boolean enabled = true;
+
+    @Getter
+    @Setter
+    private int maxLabels = 25;
+
+    private final Map<String, Glyphs> glyphs = new LinkedHashMap<>(256, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Glyphs> eldest) {
+            return size() > GLYPH_CACHE_SIZE;
+        }
+
+    };
+
+    private Font glyphFont;
+
+    private FontRenderContext glyphContext;
+
+    private int ascent, descent;
+
+    private long[] occupancy = new long[0];
+
+    private int gridCols, gridRows;
+
+    private int[] heap = new int[0];
+
+    // Previous placement: magnitude ranks and the anchor chosen for each
+    private int placedCount;
+
+    private int[] placedRank = new int[0];
+
+    private byte[] placedAnchor = new byte[0];
+
+    private ViewTransform placedView;
+
+    private Star placedSelection;
+
+    private double placedFilterSq;
+
+    private int reuseFrames;
+
+    private final double[] scratch = new double[ViewTransform.OUT_SIZE];
+
+    private static final class Glyphs {
+
+        final GlyphVector vector;
+
+        final int width;
+
+        Glyphs(GlyphVector vector) {
+            this.vector = vector;
+            this.width = (int) Math.ceil(vector.getLogicalBounds().getWidth());
+        }
+
+    }
+
+    /** Drop the cached placement so the next frame places labels from scratch. */
+    public void invalidate() {
+        placedView = null;
+    }
+
+    public void render(
+            Graphics2D g,
+            ViewTransform view,
+            ProjectedStars visible,
+            MagnitudeIndex index,
+            Star selected,
+            double filterSq
+    ) {
+        if (!enabled || maxLabels <= 0)
+            return;
+
+        prepareGlyphs(g);
+
+        boolean reuse = reuseFrames < MAX_REUSE_FRAMES && selected == placedSelection
+                && filterSq == placedFilterSq && view.isCloseTo(placedView, REUSE_TOLERANCE);
+
+        if (reuse) {
+            reuseFrames++;
+        }
+        else {
+            place(view, visible, index, selected);
+            placedView = view;
+            placedSelection = selected;
+            placedFilterSq = filterSq;
+            reuseFrames = 0;
+        }
+
+        drawPlaced(g, view, index);
+    }
+
+    /**
+     * Draw the labels placed by the last {@link #render} call at their stars'
+     * positions in {@code view}, without placing them again.
+     */
+    public void renderPlaced(Graphics2D g, ViewTransform view, MagnitudeIndex index) {
+        if (!enabled || maxLabels <= 0 || placedView == null)
+            return;
+
+        prepareGlyphs(g);
+        drawPlaced(g, view, index);
+    }
+
+    private void drawPlaced(Graphics2D g, ViewTransform view, MagnitudeIndex index) {
+        g.setColor(LABEL_COLOUR);
+
+        for (int i = 0; i < placedCount; i++) {
+            Star s = index.get(placedRank[i]);
+            // Re-project so reused placements follow the camera
+            view.project(s.getX(), s.getY(), s.getZ(), scratch);
+            int x = (int) scratch[ViewTransform.SCREEN_X];
+            int y = (int) scratch[ViewTransform.SCREEN_Y];
+            if (x < 0 || y < 0 || x >= view.getWidth() || y >= view.getHeight())
+                continue;
+
+            Glyphs gl = glyphsFor(s.getName());
+            int a = placedAnchor[i];
+            g.drawGlyphVector(gl.vector, anchorX(a, x, gl.width), anchorY(a, y));
+        }
+
+    }
+
+    private void
+            place(ViewTransform view, ProjectedStars visible, MagnitudeIndex index, Star selected) {
+        resetGrid(view.getWidth(), view.getHeight());
+        placedCount = 0;
+
+        // The selected star is labelled by the renderer; keep its label clear
+        if (selected != null && selected.getName() != null) {
+            view.project(selected.getX(), selected.getY(), selected.getZ(), scratch);
+            int x = (int) scratch[ViewTransform.SCREEN_X];
+            int y = (int) scratch[ViewTransform.SCREEN_Y];
+            int w = glyphsFor(selected.getName()).width;
+            mark(anchorX(0, x, w), anchorY(0, y) - ascent, w, ascent + descent);
+        }
+
+        int candidates = topCandidates(visible, maxLabels * CANDIDATES_PER_LABEL);
+        if (placedRank.length < maxLabels) {
+            placedRank = new int[maxLabels];
+            placedAnchor = new byte[maxLabels];
+        }
+
+        // topCandidates leaves the heap ordered brightest first
+        for (int c = 0; c < candidates && placedCount < maxLabels; c++) {
+            int slot = heap[c];
+            Star s = index.get(visible.rank(slot));
+            if (s == selected || s.getName() == null)
+                continue;
+
+            int w = glyphsFor(s.getName()).width;
+            int h = ascent + descent;
+            int x = visible.x(slot), y = visible.y(slot);
+
+            for (byte a = 0; a < 4; a++) {
+                int left = anchorX(a, x, w);
+                int top = anchorY(a, y) - ascent;
+                if (isFree(left, top, w, h)) {
+                    mark(left, top, w, h);
+                    placedRank[placedCount] = visible.rank(slot);
+                    placedAnchor[placedCount] = a;
+                    placedCount++;
+                    break;
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * Select the {@code limit} brightest slots with a bounded min-heap, then
+     * sort them brightest first into the head of {@link #heap}.
+     */
+    private int topCandidates(ProjectedStars visible, int limit) {
+        if (heap.length < limit)
+            heap = new int[limit];
+
+        int size = 0;
+
+        for (int i = 0; i < visible.size(); i++) {
+            if (size < limit) {
+                heap[size] = i;
+                siftUp(visible, size++);
+            }
+            else if (visible.brightness(i) > visible.brightness(heap[0])) {
+                heap[0] = i;
+                siftDown(visible, 0, size);
+            }
+
+        }
+
+        // Heap sort in place: popping the minimum to the back yields descending order
+        for (int end = size - 1; end > 0; end--) {
+            int t = heap[0];
+            heap[0] = heap[end];
+            heap[end] = t;
+            siftDown(visible, 0, end);
+        }
+
+        return size;
+    }
+
+    private void siftUp(ProjectedStars v, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (v.brightness(heap[i]) >= v.brightness(heap[parent]))
+                return;
+            int t = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = t;
+            i = parent;
+        }
+
+    }
+
+    private void siftDown(ProjectedStars v, int i, int size) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, min = i;
+            if (l < size && v.brightness(heap[l]) < v.brightness(heap[min]))
+                min = l;
+            if (r < size && v.brightness(heap[r]) < v.brightness(heap[min]))
+                min = r;
+            if (min == i)
+                return;
+            int t = heap[i];
+            heap[i] = heap[min];
+            heap[min] = t;
+            i = min;
+        }
+
+    }
+
+    // Anchors: 0 = NE, 1 = SE, 2 = NW, 3 = SW (returns the text baseline origin)
+    private int anchorX(int anchor, int x, int width) {
+        return anchor < 2 ? x + GAP : x - GAP - width;
+    }
+
+    private int anchorY(int anchor, int y) {
+        return (anchor & 1) == 0 ? y - GAP : y + GAP + ascent;
+    }
+
+    private void resetGrid(int width, int height) {
+        gridCols = (width + CELL - 1) / CELL;
+        gridRows = (height + CELL - 1) / CELL;
+        int words = (gridCols * gridRows + 63) >>> 6;
+        if (occupancy.length < words)
+            occupancy = new long[words];
+        else
+            Arrays.fill(occupancy, 0, words, 0L);
+    }
+
+    private boolean isFree(int left, int top, int w, int h) {
+        int c0 = left / CELL, c1 = (left + w) / CELL;
+        int r0 = top / CELL, r1 = (top + h) / CELL;
+        // Labels must stay fully on screen
+        if (left < 0 || top < 0 || c1 >= gridCols || r1 >= gridRows)
+            return false;
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int bit = r * gridCols + c;
+                if ((occupancy[bit >>> 6] & (1L << bit)) != 0)
+                    return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    private void mark(int left, int top, int w, int h) {
+        int c0 = Math.max(0, left / CELL), c1 = Math.min(gridCols - 1, (left + w) / CELL);
+        int r0 = Math.max(0, top / CELL), r1 = Math.min(gridRows - 1, (top + h) / CELL);
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int bit = r * gridCols + c;
+                occupancy[bit >>> 6] |= 1L << bit;
+            }
+
+        }
+
+    }
+
+    private void prepareGlyphs(Graphics2D g) {
+        Font font = g.getFont();
+        FontRenderContext frc = g.getFontRenderContext();
+        if (font.equals(glyphFont) && frc.equals(glyphContext))
+            return;
+
+        glyphs.clear();
+        glyphFont = font;
+        glyphContext = frc;
+        LineMetrics lm = font.getLineMetrics("Hg", frc);
+        ascent = (int) Math.ceil(lm.getAscent());
+        descent = (int) Math.ceil(lm.getDescent());
+        invalidate();
+    }
+
+    private Glyphs glyphsFor(String name) {
+        return glyphs
+                .computeIfAbsent(name, n -> new Glyphs(glyphFont.createGlyphVector(glyphContext, n)));
+    }
+
+}
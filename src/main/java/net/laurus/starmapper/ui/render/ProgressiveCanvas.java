@@ -0,0 +1,74 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Offscreen canvas that accumulates a progressively rendered view across
+ * frames. Holds how far through the visible prefix drawing has got, and is
+ * reset whenever the view or the render settings change.
+ */
+class ProgressiveCanvas {
+
+    private BufferedImage image;
+
+    private Graphics2D graphics;
+
+    private ViewTransform view;
+
+    private long settings;
+
+    // Next column to draw and the end of the visible prefix for this view
+    int next;
+
+    int total;
+
+    // Whether the depth-sorted redraw has been done after completion
+    boolean finalPass;
+
+    boolean matches(ViewTransform v, long settingsKey) {
+        return image != null && settingsKey == settings && v.sameAs(view);
+    }
+
+    /** Start over for a new view: clear (or resize) the canvas and reset progress. */
+    void reset(ViewTransform v, long settingsKey, int visible, Graphics2D hintsFrom) {
+        int w = Math.max(1, v.getWidth()), h = Math.max(1, v.getHeight());
+        if (image == null || image.getWidth() != w || image.getHeight() != h) {
+            if (graphics != null)
+                graphics.dispose();
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            graphics = image.createGraphics();
+        }
+
+        graphics.setRenderingHints(hintsFrom.getRenderingHints());
+        graphics.setFont(hintsFrom.getFont());
+        clear();
+
+        view = v;
+        settings = settingsKey;
+        next = 0;
+        total = visible;
+        finalPass = false;
+    }
+
+    void clear() {
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        // Chunks arrive brightest first; painting behind keeps the brightest on top
+        graphics.setComposite(AlphaComposite.DstOver);
+    }
+
+    boolean isComplete() {
+        return image != null && next >= total;
+    }
+
+    BufferedImage image() {
+        return image;
+    }
+
+    Graphics2D graphics() {
+        return graphics;
+    }
+
+}
@@ -0,0 +1,74 @@
+package net.laurus.starmapper.ui.render;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive buffers holding the stars that survived culling in the
+ * current frame, in draw order. Reused across frames so a render pass does not
+ * allocate per star.
+ */
+public class ProjectedStars {
+
+    private int size;
+
+    // Rank of the star in the renderer's MagnitudeIndex
+    private int[] rank = new int[1024];
+
+    private int[] x = new int[1024];
+
+    private int[] y = new int[1024];
+
+    private float[] brightness = new float[1024];
+
+    private float[] depth = new float[1024];
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int starRank, int sx, int sy, double apparentBrightness, double eyeDepth) {
+        if (size == rank.length)
+            grow();
+
+        rank[size] = starRank;
+        x[size] = sx;
+        y[size] = sy;
+        brightness[size] = (float) apparentBrightness;
+        depth[size] = (float) eyeDepth;
+        size++;
+    }
+
+    private void grow() {
+        int cap = rank.length * 2;
+        rank = Arrays.copyOf(rank, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        brightness = Arrays.copyOf(brightness, cap);
+        depth = Arrays.copyOf(depth, cap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int rank(int i) {
+        return rank[i];
+    }
+
+    public int x(int i) {
+        return x[i];
+    }
+
+    public int y(int i) {
+        return y[i];
+    }
+
+    public float brightness(int i) {
+        return brightness[i];
+    }
+
+    public float depth(int i) {
+        return depth[i];
+    }
+
+}
@@ -0,0 +1,103 @@
+package net.laurus.starmapper.ui.render;
+
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Bulk cull-and-project step of the points pass: distance filter, rotation,
+ * perspective divide, screen bounds test and brightness cutoff over a range
+ * of {@link StarColumns}, appending survivors to a {@link ProjectedStars}.
+ * <p>
+ * Two implementations exist: a scalar one and one written against
+ * {@code jdk.incubator.vector}. The vector kernel is only available when the
+ * JVM is started with {@code --add-modules jdk.incubator.vector}.
+ */
+public interface ProjectionKernel {
+
+    /** System property selecting the kernel: "vector" or "scalar" */
+    String KERNEL_PROPERTY = "starmapper.projectionKernel";
+
+    /**
+     * Project columns {@code [from, to)}. Keeps stars within
+     * {@code maxDistanceSq} of the camera focus (scaled units), on screen
+     * (with a margin for point size) and bright enough for {@code brightness}.
+     * Returns the number of stars appended to {@code out}.
+     */
+    int project(
+            StarColumns columns,
+            int from,
+            int to,
+            ViewTransform view,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    );
+
+    /**
+     * As {@link #project}, but over the catalog indices
+     * {@code indices[from..to)} (ascending, e.g. a {@link FocusDistanceIndex}
+     * selection). Slots are still appended in catalog order.
+     */
+    int projectIndexed(
+            StarColumns columns,
+            int[] indices,
+            int from,
+            int to,
+            ViewTransform view,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    );
+
+    /** Short name for logs and UI. */
+    String name();
+
+    static ProjectionKernel scalar() {
+        return ScalarProjectionKernel.INSTANCE;
+    }
+
+    /** The vector kernel, or the scalar one if the incubator module is absent. */
+    static ProjectionKernel vector() {
+        return Holder.VECTOR != null ? Holder.VECTOR : scalar();
+    }
+
+    static boolean isVectorAvailable() {
+        return Holder.VECTOR != null;
+    }
+
+    /** Kernel chosen by {@link #KERNEL_PROPERTY}, preferring vector when available. */
+    static ProjectionKernel defaultKernel() {
+        String choice = System.getProperty(KERNEL_PROPERTY, "vector");
+        return "scalar".equalsIgnoreCase(choice) ? scalar() : vector();
+    }
+
+    /** Lazily probes for the incubator module so the scalar path never links it. */
+    @Slf4j
+    final class Holder {
+
+        static final ProjectionKernel VECTOR = load();
+
+        private Holder() {
+        }
+
+        private static ProjectionKernel load() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                log.info("jdk.incubator.vector not present, using scalar projection");
+                return null;
+            }
+
+            try {
+                ProjectionKernel k = new VectorProjectionKernel();
+                log.info("Vector projection kernel available ({})", k.name());
+                return k;
+            }
+            catch (LinkageError e) {
+                log.warn("Vector projection kernel unavailable, using scalar", e);
+                return null;
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package net.laurus.starmapper.ui.render;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds frame time near a target by stepping through quality levels. Level 0
+ * is the user's own settings; each further level raises the magnitude cutoff,
+ * drops labels, switches to density rendering sooner and finally turns off
+ * antialiasing. A smoothed frame time must leave a dead band around the target
+ * before the level moves, and a level that proved too slow is not retried for
+ * a while, so the picture does not flicker between two levels.
+ */
+@Slf4j
+public class QualityController {
+
+    public static final long DEFAULT_TARGET_NANOS = 16_000_000L;
+
+    // Per level: cutoff multiplier, label fraction, density threshold multiplier, antialiasing
+    private static final double[] CUTOFF_SCALE = {
+            1.0, 2.0, 4.0, 8.0, 16.0
+    };
+
+    private static final double[] LABEL_SCALE = {
+            1.0, 0.6, 0.3, 0.0, 0.0
+    };
+
+    private static final double[] DENSITY_SCALE = {
+            1.0, 0.75, 0.5, 0.35, 0.25
+    };
+
+    private static final boolean[] ANTIALIAS = {
+            true, true, true, false, false
+    };
+
+    public static final int MAX_LEVEL = CUTOFF_SCALE.length - 1;
+
+    // Step down above HIGH * target, up below LOW * target
+    private static final double HIGH = 1.2;
+
+    private static final double LOW = 0.6;
+
+    // Weight of the newest frame in the smoothed frame time
+    private static final double SMOOTHING = 0.2;
+
+    // Frames to wait after a change before judging the new level
+    private static final int SETTLE_FRAMES = 8;
+
+    // Frames a level that was too slow stays off limits
+    private static final int RETRY_FRAMES = 120;
+
+    private final StarRenderer renderer;
+
+    @Getter
+    private boolean enabled = false;
+
+    @Getter
+    @Setter
+    private long targetNanos = DEFAULT_TARGET_NANOS;
+
+    @Getter
+    private int level = 0;
+
+    @Getter
+    private double smoothedNanos;
+
+    private long lastNanos;
+
+    private long frame;
+
+    private long lastChangeFrame;
+
+    // Up-steps to this level or above are blocked until retryFrame
+    private int ceiling = MAX_LEVEL + 1;
+
+    private long retryFrame;
+
+    // The user's settings, and what this controller last wrote over them
+    private double baseCutoff, appliedCutoff;
+
+    private int baseLabels, appliedLabels;
+
+    private double baseDensity, appliedDensity;
+
+    public QualityController(StarRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled == this.enabled)
+            return;
+
+        if (enabled)
+            captureBase();
+
+        this.enabled = enabled;
+        level = 0;
+        smoothedNanos = 0;
+        ceiling = MAX_LEVEL + 1;
+        lastChangeFrame = frame;
+        apply();
+    }
+
+    /** Whether points and labels should be antialiased at the current level. */
+    public boolean isAntialiasing() {
+        return ANTIALIAS[level];
+    }
+
+    /**
+     * True while quality is reduced and the latest frame (or the average) was
+     * fast enough that more frames could raise it, e.g. once the camera stops
+     * moving. Also true right after a change, before the new level has been
+     * measured. False while the next level up is blocked as recently too slow:
+     * that wait counts frames, and only real frames should run it down.
+     */
+    public boolean wantsRefresh() {
+        double fast = LOW * targetNanos;
+        return enabled && level > 0 && canStepUp()
+                && (smoothedNanos == 0 || smoothedNanos < fast || lastNanos < fast);
+    }
+
+    /** Feed the wall time of a finished frame and adjust the level. */
+    public void frameRendered(long nanos) {
+        if (!enabled)
+            return;
+
+        frame++;
+        lastNanos = nanos;
+        smoothedNanos = smoothedNanos == 0 ? nanos
+                : smoothedNanos + SMOOTHING * (nanos - smoothedNanos);
+
+        if (frame - lastChangeFrame < SETTLE_FRAMES)
+            return;
+
+        if (smoothedNanos > HIGH * targetNanos && level < MAX_LEVEL) {
+            // This level is too slow for now; don't come straight back to it
+            ceiling = level;
+            retryFrame = frame + RETRY_FRAMES;
+            changeLevel(level + 1);
+        }
+        else if (smoothedNanos < LOW * targetNanos && level > 0 && canStepUp()) {
+            changeLevel(level - 1);
+        }
+
+    }
+
+    private boolean canStepUp() {
+        return level - 1 > ceiling || frame >= retryFrame;
+    }
+
+    private void changeLevel(int next) {
+        log
+                .debug(
+                        "Quality level {} -> {} (frame {} ms, target {} ms)", level, next,
+                        smoothedNanos / 1e6, targetNanos / 1e6
+                );
+        level = next;
+        lastChangeFrame = frame;
+        // Judge the new level on its own frames rather than the old average
+        smoothedNanos = 0;
+        apply();
+    }
+
+    private void captureBase() {
+        baseCutoff = appliedCutoff = renderer.getBrightnessModel().getMinContribution();
+        baseLabels = appliedLabels = renderer.getLabelLayer().getMaxLabels();
+        baseDensity = appliedDensity = renderer.getAutoDensityThreshold();
+    }
+
+    private void apply() {
+        BrightnessModel brightness = renderer.getBrightnessModel();
+        LabelLayer labels = renderer.getLabelLayer();
+
+        // Anything changed behind our back (e.g. a slider) becomes the new base
+        if (brightness.getMinContribution() != appliedCutoff)
+            baseCutoff = brightness.getMinContribution();
+
+        if (labels.getMaxLabels() != appliedLabels)
+            baseLabels = labels.getMaxLabels();
+
+        if (renderer.getAutoDensityThreshold() != appliedDensity)
+            baseDensity = renderer.getAutoDensityThreshold();
+
+        int l = enabled ? level : 0;
+        appliedCutoff = baseCutoff * CUTOFF_SCALE[l];
+        appliedLabels = (int) Math.round(baseLabels * LABEL_SCALE[l]);
+        appliedDensity = baseDensity * DENSITY_SCALE[l];
+        brightness.setMinContribution(appliedCutoff);
+        labels.setMaxLabels(appliedLabels);
+        renderer.setAutoDensityThreshold(appliedDensity);
+    }
+
+}
@@ -0,0 +1,169 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import net.laurus.starmapper.jfr.SpatialQueryEvent;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.model.StarSelection;
+
+/**
+ * Resolves a screen-space region (a box or a lasso polygon) to every star
+ * within the distance filter whose projected centre falls inside it,
+ * regardless of brightness. The view is captured on the paint thread;
+ * {@link #select} can then run on any thread and splits the point-in-polygon
+ * test over the common pool.
+ */
+public final class RegionSelector {
+
+    // Stars per parallel task; a multiple of 64 so scan tasks own whole bitset words
+    private static final int CHUNK = 1 << 14;
+
+    private final StarColumns columns;
+
+    private final ViewTransform view;
+
+    private final double maxDistanceSq;
+
+    // Ready distance index for this focus, or null to scan every column
+    private final FocusDistanceIndex index;
+
+    private RegionSelector(
+            StarColumns columns,
+            ViewTransform view,
+            double maxDistanceSq,
+            FocusDistanceIndex index
+    ) {
+        this.columns = columns;
+        this.view = view;
+        this.maxDistanceSq = maxDistanceSq;
+        this.index = index;
+    }
+
+    /** Snapshot the renderer's current view. Call on the paint thread. */
+    public static RegionSelector capture(
+            StarRenderer renderer,
+            int width,
+            int height,
+            double[][] rotMatrix
+    ) {
+        return new RegionSelector(
+                renderer.getColumns(), ViewTransform
+                        .of(renderer.getCamera(), rotMatrix, width, height), renderer
+                                .getMaxDistanceSq(), renderer.readyDistanceIndex()
+        );
+    }
+
+    /** Stars inside {@code region} (screen pixels, even-odd rule). */
+    public StarSelection select(Polygon region) {
+        int n = columns.getSize();
+        long[] words = new long[(n + 63) >>> 6];
+        if (region.npoints < 3)
+            return StarSelection.of(words, n);
+
+        SpatialQueryEvent event = SpatialQueryEvent.start("region", Double.NaN);
+        Rectangle bounds = region.getBounds();
+
+        if (index != null) {
+            // Only the prefix nearest the focus can pass the filter; its indices are
+            // scattered, so tasks return hits and the bits are set afterwards
+            int within = index.countWithin(maxDistanceSq);
+            int chunks = (within + CHUNK - 1) / CHUNK;
+            int[][] hits = new int[chunks][];
+
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int end = Math.min(within, (c + 1) * CHUNK);
+                hits[c] = scanNearest(c * CHUNK, end, region, bounds);
+            });
+
+            for (int[] chunk : hits) {
+                for (int i : chunk)
+                    words[i >>> 6] |= 1L << i;
+            }
+
+        }
+        else {
+            int chunks = (n + CHUNK - 1) / CHUNK;
+            IntStream
+                    .range(0, chunks)
+                    .parallel()
+                    .forEach(c -> scanColumns(
+                            c * CHUNK, Math.min(n, (c + 1) * CHUNK), region, bounds, words
+                    ));
+        }
+
+        StarSelection selection = StarSelection.of(words, n);
+        event.finish(selection.getCount());
+        return selection;
+    }
+
+    private void scanColumns(int from, int to, Polygon region, Rectangle bounds, long[] words) {
+        double[] p = new double[ViewTransform.OUT_SIZE];
+
+        for (int i = from; i < to; i++) {
+            if (inside(i, region, bounds, p))
+                words[i >>> 6] |= 1L << i;
+        }
+
+    }
+
+    private int[] scanNearest(int from, int to, Polygon region, Rectangle bounds) {
+        double[] p = new double[ViewTransform.OUT_SIZE];
+        int[] out = new int[Math.min(to - from, 256)];
+        int count = 0;
+
+        for (int k = from; k < to; k++) {
+            int i = index.orderAt(k);
+            if (!inside(i, region, bounds, p))
+                continue;
+
+            if (count == out.length)
+                out = Arrays.copyOf(out, Math.min(to - from, count * 2));
+            out[count++] = i;
+        }
+
+        return Arrays.copyOf(out, count);
+    }
+
+    // Same filter and truncated screen position as the projection kernels
+    private boolean inside(int i, Polygon region, Rectangle bounds, double[] p) {
+        double wx = columns.x(i), wy = columns.y(i), wz = columns.z(i);
+        double dx = (wx - view.focusX) * StarRenderer.COORD_SCALE;
+        double dy = (wy - view.focusY) * StarRenderer.COORD_SCALE;
+        double dz = (wz - view.focusZ) * StarRenderer.COORD_SCALE;
+        if (dx * dx + dy * dy + dz * dz > maxDistanceSq)
+            return false;
+
+        view.project(wx, wy, wz, p);
+        double sx = p[ViewTransform.SCREEN_X], sy = p[ViewTransform.SCREEN_Y];
+        if (!(sx >= bounds.x && sy >= bounds.y && sx < bounds.x + bounds.width
+                && sy < bounds.y + bounds.height))
+            return false;
+
+        return contains(region, (int) sx, (int) sy);
+    }
+
+    /**
+     * Even-odd crossing test. Unlike {@link Polygon#contains} this allocates
+     * nothing and only reads the polygon, so it is safe to share across tasks.
+     */
+    static boolean contains(Polygon region, int x, int y) {
+        int[] xs = region.xpoints, ys = region.ypoints;
+        int n = region.npoints;
+        boolean in = false;
+
+        for (int a = 0, b = n - 1; a < n; b = a++) {
+            if ((ys[a] > y) != (ys[b] > y)) {
+                double cross = xs[a] + (double) (y - ys[a]) * (xs[b] - xs[a]) / (ys[b] - ys[a]);
+                if (x < cross)
+                    in = !in;
+            }
+
+        }
+
+        return in;
+    }
+
+}
@@ -0,0 +1,17 @@
+package net.laurus.starmapper.ui.render;
+
+/**
+ * How {@link StarRenderer} draws the catalog.
+ */
+public enum RenderMode {
+
+    /** One point per star, sized by apparent brightness */
+    POINTS,
+
+    /** Colour-weighted star density, log tone mapped into a single image */
+    DENSITY,
+
+    /** Density when stars outnumber the pixels they cover, points otherwise */
+    AUTO
+
+}
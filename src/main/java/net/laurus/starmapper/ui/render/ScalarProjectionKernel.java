@@ -0,0 +1,92 @@
+package net.laurus.starmapper.ui.render;
+
+import net.laurus.starmapper.model.StarColumns;
+
+/**
+ * Reference {@link ProjectionKernel}: one star at a time through
+ * {@link ViewTransform#project}.
+ */
+final class ScalarProjectionKernel implements ProjectionKernel {
+
+    static final ScalarProjectionKernel INSTANCE = new ScalarProjectionKernel();
+
+    private ScalarProjectionKernel() {
+    }
+
+    @Override
+    public int project(
+            StarColumns columns,
+            int from,
+            int to,
+            ViewTransform view,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    ) {
+        return run(columns, null, from, to, view, maxDistanceSq, brightness, out);
+    }
+
+    @Override
+    public int projectIndexed(
+            StarColumns columns,
+            int[] indices,
+            int from,
+            int to,
+            ViewTransform view,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    ) {
+        return run(columns, indices, from, to, view, maxDistanceSq, brightness, out);
+    }
+
+    // Stars from..to, or indices[from..to) when indices is given
+    private int run(
+            StarColumns columns,
+            int[] indices,
+            int from,
+            int to,
+            ViewTransform view,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    ) {
+        double[] lum = columns.getLuminosity();
+        double scale = StarRenderer.COORD_SCALE;
+        double ppu = view.parsecsPerUnit();
+        double margin = brightness.getMaxPointSize() + 1;
+        double[] p = new double[ViewTransform.OUT_SIZE];
+        int before = out.size();
+
+        for (int k = from; k < to; k++) {
+            int i = indices != null ? indices[k] : k;
+            double wx = columns.x(i), wy = columns.y(i), wz = columns.z(i);
+            double dx = (wx - view.focusX) * scale;
+            double dy = (wy - view.focusY) * scale;
+            double dz = (wz - view.focusZ) * scale;
+            if (dx * dx + dy * dy + dz * dz > maxDistanceSq)
+                continue;
+
+            view.project(wx, wy, wz, p);
+            double sx = p[ViewTransform.SCREEN_X], sy = p[ViewTransform.SCREEN_Y];
+            if (sx < -margin || sy < -margin || sx >= view.width + margin
+                    || sy >= view.height + margin)
+                continue;
+
+            double eyeSq = p[ViewTransform.EYE_DIST_SQ] * ppu * ppu;
+            double b = brightness.apparentBrightness(lum[i], eyeSq);
+            if (!brightness.isVisible(b))
+                continue;
+
+            out.add(i, (int) sx, (int) sy, b, p[ViewTransform.DEPTH]);
+        }
+
+        return out.size() - before;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+}
@@ -1,16 +1,28 @@
 package net.laurus.starmapper.ui.render;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.Getter;
 import lombok.Setter;
+import net.laurus.starmapper.jfr.FrameRenderEvent;
 import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarCatalog;
 import net.laurus.starmapper.model.StarColour;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.model.StarSelection;
+import net.laurus.starmapper.navigation.Route;
 import net.laurus.starmapper.ui.component.Camera;
 import net.laurus.starmapper.ui.component.KDTree;
+import net.laurus.starmapper.ui.component.MagnitudeIndex;
 import net.laurus.starmapper.ui.component.Projection;
+import net.laurus.starmapper.util.FramePhase;
+import net.laurus.starmapper.util.FrameProfiler;
 
 /**
  * Responsible for star rendering, distance filtering, and projection
@@ -19,14 +31,100 @@ public class StarRenderer {
 
     public static final int SELECTION_RADIUS = 8;
 
-    private static final double COORD_SCALE = 10.0;
+    public static final double COORD_SCALE = 10.0;
+
+    public static final double DEFAULT_DEPTH_FADE = 0.6;
+
+    // Columns projected per step of a progressive frame
+    private static final int PROGRESSIVE_CHUNK = 2048;
+
+    // Use the focus distance index once the filter keeps less than this share of candidates
+    private static final double DISTANCE_INDEX_MAX_SHARE = 0.5;
+
+    private static final Color HIGHLIGHT = new Color(80, 220, 255, 180);
+
+    private static final Color ROUTE = new Color(255, 170, 60, 220);
+
+    // Distinct hues for cluster ids (golden-angle steps), and how faint noise is drawn
+    private static final float[][] CLUSTER_PALETTE = new float[64][];
+
+    private static final float[] NOISE_RGB = { 0.5f, 0.5f, 0.5f };
+
+    private static final float NOISE_ALPHA = 0.3f;
+
+    static {
+        for (int k = 0; k < CLUSTER_PALETTE.length; k++)
+            CLUSTER_PALETTE[k] = Color
+                    .getHSBColor((k * 0.618034f) % 1f, 0.75f, 1f)
+                    .getRGBColorComponents(null);
+    }
 
     private final List<Star> stars;
 
+    @Getter
     private final Camera camera;
 
     private final KDTree kdtree;
 
+    @Getter
+    private final MagnitudeIndex magnitudeIndex;
+
+    @Getter
+    private final BrightnessModel brightnessModel = new BrightnessModel();
+
+    @Getter
+    private final StarColumns columns;
+
+    @Getter
+    private final DensityRenderer densityRenderer;
+
+    @Getter
+    private final LabelLayer labelLayer = new LabelLayer();
+
+    // Draw far-to-near using a radix sort on depth, with depth attenuation
+    @Getter
+    @Setter
+    private boolean depthSorted = false;
+
+    // 0 = no depth attenuation, 1 = farthest stars fade out completely
+    @Getter
+    @Setter
+    private double depthFade = DEFAULT_DEPTH_FADE;
+
+    private final DepthSorter depthSorter = new DepthSorter();
+
+    // Draw within a per-frame time budget, brightest first, finishing on later frames
+    @Getter
+    @Setter
+    private boolean progressive = false;
+
+    @Getter
+    @Setter
+    private long frameBudgetNanos = 8_000_000L;
+
+    private final ProgressiveCanvas progress = new ProgressiveCanvas();
+
+    // Bulk cull/project step; scalar or Vector API (see ProjectionKernel)
+    @Getter
+    @Setter
+    private ProjectionKernel projectionKernel = ProjectionKernel.defaultKernel();
+
+    // Stars that survived culling this frame, reused across frames
+    @Getter
+    private final ProjectedStars projected = new ProjectedStars();
+
+    @Getter
+    @Setter
+    private RenderMode renderMode = RenderMode.POINTS;
+
+    // AUTO switches to density above this many stars per covered pixel
+    @Getter
+    @Setter
+    private double autoDensityThreshold = 0.5;
+
+    // Projection scratch, reused across frames (rendering happens on the EDT)
+    private final double[] scratch = new double[ViewTransform.OUT_SIZE];
+
     @Getter
     @Setter
     private double maxDistance = Double.MAX_VALUE;
@@ -34,10 +132,48 @@ public class StarRenderer {
     @Getter
     private double maxDistanceSq = Double.MAX_VALUE;
 
-    public StarRenderer(List<Star> stars, Camera camera, KDTree kdtree) {
-        this.stars = stars;
+    // Stars by distance to the focus, rebuilt off-thread when the focus moves
+    private FocusDistanceIndex distanceIndex;
+
+    private CompletableFuture<FocusDistanceIndex> pendingIndex;
+
+    // Called (off the paint thread) when a new distance index is ready
+    @Setter
+    private Runnable onDistanceIndexReady;
+
+    // Called from render() when a progressive frame ran out of budget with stars left
+    @Setter
+    private Runnable onRefine;
+
+    // Multi-selection to highlight on top of the points pass, or null
+    @Getter
+    @Setter
+    private StarSelection highlighted;
+
+    // Per-star cluster ids (see ClusterResult) to colour by instead of star colour, or null
+    @Getter
+    @Setter
+    private int[] clusterLabels;
+
+    // Planned route drawn over the stars, or null
+    @Getter
+    @Setter
+    private Route route;
+
+    // Per-phase frame timings; off (and nearly free) unless the HUD or a dump wants them
+    @Getter
+    private final FrameProfiler profiler = new FrameProfiler();
+
+    // This frame's candidates: catalog indices from the distance index, or null for a prefix
+    private int[] candidateSubset;
+
+    public StarRenderer(StarCatalog catalog, Camera camera) {
+        this.stars = catalog.getStars();
         this.camera = camera;
-        this.kdtree = kdtree;
+        this.kdtree = catalog.getKdtree();
+        this.magnitudeIndex = catalog.getMagnitudeIndex();
+        this.columns = catalog.getColumns();
+        this.densityRenderer = new DensityRenderer(columns);
     }
 
     public void setDistanceFilter(double parsecs) {
@@ -61,29 +197,88 @@ public class StarRenderer {
 
     public void
             render(Graphics2D g, int width, int height, Star selectedStar, double[][] rotMatrix) {
-        // Use camera focus instead of selected star for proper zoom
-        double centerX = camera.getFocusX();
-        double centerY = camera.getFocusY();
-        double centerZ = camera.getFocusZ();
-
-        for (Star s : stars) {
-            double dx = (s.getX() - centerX) * COORD_SCALE;
-            double dy = (s.getY() - centerY) * COORD_SCALE;
-            double dz = (s.getZ() - centerZ) * COORD_SCALE;
-
-            double dsq = dx * dx + dy * dy + dz * dz;
-            if (dsq > maxDistanceSq)
-                continue;
+        FrameRenderEvent event = FrameRenderEvent.start(width, height);
+        ViewTransform view = ViewTransform.of(camera, rotMatrix, width, height);
+        boolean densityMode = useDensity();
+
+        if (densityMode) {
+            long t = profiler.begin();
+            BufferedImage density = densityRenderer
+                    .render(
+                            view, width, height, camera.getFocusX(), camera.getFocusY(), camera
+                                    .getFocusZ(), maxDistanceSq
+                    );
+            g.drawImage(density, 0, 0, null);
+            t = profiler.lap(FramePhase.DRAW, t);
+            drawSelection(g, view, selectedStar);
+            profiler.lap(FramePhase.OVERLAY, t);
+        }
+        else if (progressive) {
+            renderProgressive(g, view, selectedStar);
+        }
+        else {
+            renderPoints(g, view, selectedStar);
+        }
+
+        long t = profiler.begin();
+        drawRoute(g, view);
+        drawFilterCircle(g, width, height, selectedStar);
+        profiler.lap(FramePhase.OVERLAY, t);
+        event
+                .finish(
+                        densityMode ? "density" : progressive ? "progressive" : "points",
+                        densityMode ? -1 : projected.size()
+                );
+    }
+
+    /**
+     * Draw only the overlays (multi-selection, selection marker, labels, route
+     * and filter circle), for callers that put the stars on screen some other
+     * way (e.g. composited tiles). Highlights and labels come from the last
+     * live frame's stars, re-projected into this view.
+     */
+    public void renderOverlay(
+            Graphics2D g,
+            int width,
+            int height,
+            Star selectedStar,
+            double[][] rotMatrix
+    ) {
+        long t = profiler.begin();
+        ViewTransform view = ViewTransform.of(camera, rotMatrix, width, height);
+        drawHighlighted(g, view);
+        drawSelection(g, view, selectedStar);
+        labelLayer.renderPlaced(g, view, magnitudeIndex);
+        drawRoute(g, view);
+        drawFilterCircle(g, width, height, selectedStar);
+        profiler.lap(FramePhase.OVERLAY, t);
+    }
 
-            double[] pos = applyMatrix(new double[] {
-                    dx, dy, dz
-            }, rotMatrix);
-            int[] p = Projection.project(pos, width, height, camera);
+    /** Jumps as line segments with a marker on every waypoint. */
+    private void drawRoute(Graphics2D g, ViewTransform view) {
+        Route r = route;
+        if (r == null || !r.isFound())
+            return;
 
-            drawStar(g, s, p[0], p[1], selectedStar == s);
+        g.setColor(ROUTE);
+        int[] path = r.getPath();
+        int px = 0, py = 0;
+
+        for (int k = 0; k < path.length; k++) {
+            int i = path[k];
+            view.project(columns.x(i), columns.y(i), columns.z(i), scratch);
+            int sx = (int) scratch[ViewTransform.SCREEN_X];
+            int sy = (int) scratch[ViewTransform.SCREEN_Y];
+            if (k > 0)
+                g.drawLine(px, py, sx, sy);
+            g.drawOval(sx - 3, sy - 3, 6, 6);
+            px = sx;
+            py = sy;
         }
 
-        // Draw filter circle
+    }
+
+    private void drawFilterCircle(Graphics2D g, int width, int height, Star selectedStar) {
         if (selectedStar != null && maxDistance != Double.MAX_VALUE) {
             g.setColor(new Color(255, 255, 255, 40));
             int radius = (int) (maxDistance * COORD_SCALE * camera.getZoom());
@@ -96,15 +291,372 @@ public class StarRenderer {
 
     }
 
-    private void drawStar(Graphics2D g, Star s, int x, int y, boolean highlight) {
+    /** Whether the current frame should use the density image. */
+    public boolean useDensity() {
+        switch (renderMode) {
+            case DENSITY:
+                return true;
+            case AUTO:
+                return DensityRenderer
+                        .starsPerPixel(
+                                columns.getSize(), magnitudeIndex.getRadius(), camera.getZoom()
+                        ) > autoDensityThreshold;
+            default:
+                return false;
+        }
+
+    }
+
+    /**
+     * Points pass spread over several frames. Each frame projects and draws
+     * further chunks of the brightest-first prefix onto an offscreen canvas
+     * until the time budget runs out. While the view keeps changing only the
+     * brightest stars make it; once it settles later frames complete it.
+     */
+    private void renderProgressive(Graphics2D g, ViewTransform view, Star selectedStar) {
+        long t = profiler.begin();
+        int candidates = selectCandidates(view);
+        t = profiler.lap(FramePhase.CULL, t);
+        long settings = settingsKey();
+        if (!progress.matches(view, settings) || progress.total != candidates) {
+            progress.reset(view, settings, candidates, g);
+            projected.clear();
+        }
+
+        Graphics2D cg = progress.graphics();
+        long deadline = System.nanoTime() + frameBudgetNanos;
+
+        // Always make some progress, even if the budget is already spent
+        while (!progress.isComplete()) {
+            int end = Math.min(progress.total, progress.next + PROGRESSIVE_CHUNK);
+            int first = projected.size();
+            projectCandidates(view, progress.next, end);
+            progress.next = end;
+            t = profiler.lap(FramePhase.PROJECT, t);
+
+            for (int k = first; k < projected.size(); k++) {
+                drawStar(
+                        cg, projected.rank(k), projected.x(k), projected.y(k), projected
+                                .brightness(k), 1.0, false
+                );
+            }
+
+            t = profiler.lap(FramePhase.DRAW, t);
+            if (System.nanoTime() >= deadline)
+                break;
+        }
+
+        // Depth order needs every star, so the finished frame is redrawn once sorted
+        if (depthSorted && progress.isComplete() && !progress.finalPass) {
+            progress.clear();
+            cg.setComposite(AlphaComposite.SrcOver);
+            drawProjected(cg);
+            progress.finalPass = true;
+        }
+
+        g.drawImage(progress.image(), 0, 0, null);
+        t = profiler.lap(FramePhase.DRAW, t);
+        drawHighlighted(g);
+        drawSelection(g, view, selectedStar);
+        labelLayer.render(g, view, projected, magnitudeIndex, selectedStar, maxDistanceSq);
+        profiler.lap(FramePhase.OVERLAY, t);
+        profiler.stars(projected.size(), columns.getSize() - projected.size());
+
+        // Ask for the next frame now; it picks up the chunks this one left
+        Runnable refine = onRefine;
+        if (refine != null && !progress.isComplete())
+            refine.run();
+    }
+
+    /** True while a progressive frame still has stars left to draw. */
+    public boolean isRefining() {
+        return progressive && !progress.isComplete();
+    }
+
+    /** Settings besides the view that change what the points pass draws. */
+    private long settingsKey() {
+        long h = Double.hashCode(maxDistanceSq);
+        h = 31 * h + Double.hashCode(brightnessModel.getMinContribution());
+        h = 31 * h + Double.hashCode(brightnessModel.getExposure());
+        h = 31 * h + Boolean.hashCode(brightnessModel.isEnabled());
+        h = 31 * h + brightnessModel.getMinPointSize();
+        h = 31 * h + brightnessModel.getMaxPointSize();
+        h = 31 * h + Double.hashCode(brightnessModel.getReferencePointSize());
+        h = 31 * h + Boolean.hashCode(depthSorted);
+        h = 31 * h + Double.hashCode(depthFade);
+        h = 31 * h + (candidateSubset != null ? 1 : 0);
+        h = 31 * h + System.identityHashCode(clusterLabels);
+        return h;
+    }
+
+    /** Draw everything in {@link #projected}: far-to-near, or faintest first. */
+    private void drawProjected(Graphics2D g) {
+
+        if (depthSorted) {
+            int[] order = depthSorter.sort(projected);
+
+            for (int k = 0; k < projected.size(); k++) {
+                int slot = order[k];
+                float far = depthSorter.normalisedDepth(projected.depth(slot));
+                drawStar(
+                        g, projected.rank(slot), projected.x(slot), projected.y(slot), projected
+                                .brightness(slot), 1.0 - depthFade * far, false
+                );
+            }
+
+        }
+        else {
+
+            // The kernel emits brightest first; draw in reverse so bright stars end up on top
+            for (int k = projected.size() - 1; k >= 0; k--) {
+                drawStar(
+                        g, projected.rank(k), projected.x(k), projected.y(k), projected
+                                .brightness(k), 1.0, false
+                );
+            }
+
+        }
+
+    }
+
+    private void renderPoints(Graphics2D g, ViewTransform view, Star selectedStar) {
+        long t = profiler.begin();
+        int candidates = selectCandidates(view);
+        t = profiler.lap(FramePhase.CULL, t);
+        projected.clear();
+        projectCandidates(view, 0, candidates);
+        t = profiler.lap(FramePhase.PROJECT, t);
+        drawProjected(g);
+        t = profiler.lap(FramePhase.DRAW, t);
+        drawHighlighted(g);
+
+        // The selection is always drawn on top, even when culled as too faint
+        drawSelection(g, view, selectedStar);
+
+        labelLayer.render(g, view, projected, magnitudeIndex, selectedStar, maxDistanceSq);
+        profiler.lap(FramePhase.OVERLAY, t);
+        profiler.stars(projected.size(), columns.getSize() - projected.size());
+    }
+
+    /**
+     * Mark drawn stars that are in the multi-selection. Only stars already in
+     * {@link #projected} are checked, one bit test each.
+     */
+    private void drawHighlighted(Graphics2D g) {
+        StarSelection sel = highlighted;
+        if (sel == null || sel.isEmpty())
+            return;
+
+        g.setColor(HIGHLIGHT);
+
+        for (int k = 0; k < projected.size(); k++) {
+            if (sel.contains(projected.rank(k)))
+                g.drawRect(projected.x(k) - 2, projected.y(k) - 2, 4, 4);
+        }
+
+    }
+
+    // As above for a view the stars in projected were not projected into
+    private void drawHighlighted(Graphics2D g, ViewTransform view) {
+        StarSelection sel = highlighted;
+        if (sel == null || sel.isEmpty())
+            return;
+
+        g.setColor(HIGHLIGHT);
+
+        for (int k = 0; k < projected.size(); k++) {
+            int i = projected.rank(k);
+            if (!sel.contains(i))
+                continue;
+
+            view.project(columns.x(i), columns.y(i), columns.z(i), scratch);
+            int sx = (int) scratch[ViewTransform.SCREEN_X];
+            int sy = (int) scratch[ViewTransform.SCREEN_Y];
+            g.drawRect(sx - 2, sy - 2, 4, 4);
+        }
+
+    }
+
+    private void drawSelection(Graphics2D g, ViewTransform view, Star selectedStar) {
+        if (selectedStar == null || distanceSqToFocus(selectedStar) > maxDistanceSq)
+            return;
+
+        view.project(selectedStar.getX(), selectedStar.getY(), selectedStar.getZ(), scratch);
+        int sx = (int) scratch[ViewTransform.SCREEN_X];
+        int sy = (int) scratch[ViewTransform.SCREEN_Y];
+        double pcPerUnit = view.parsecsPerUnit();
+        double eyeSq = scratch[ViewTransform.EYE_DIST_SQ] * pcPerUnit * pcPerUnit;
+        double brightness = brightnessModel
+                .apparentBrightness(MagnitudeIndex.luminosityOf(selectedStar), eyeSq);
+        drawStar(g, selectedStar, -1, sx, sy, brightness, 1.0, true);
+    }
+
+    /**
+     * Number of leading magnitude-index entries that can possibly be visible:
+     * bands of the index with no star close enough to the eye for their
+     * luminosity are cut, then the distance filter's sphere gives a
+     * luminosity cutoff of its own.
+     */
+    private int visibleCount(ViewTransform view) {
+        view.eyePosition(scratch);
+        double zoom = view.getZoom();
+        int count = magnitudeIndex
+                .visiblePrefix(
+                        scratch[0], scratch[1], scratch[2],
+                        brightnessModel.reachPerSqrtLuminosity() * zoom,
+                        BrightnessModel.MIN_DISTANCE * zoom
+                );
+
+        if (maxDistance != Double.MAX_VALUE) {
+            // The filter compares scaled distances: its radius is maxDistance / COORD_SCALE pc
+            double minEye = view
+                    .minEyeDistance(
+                            camera.getFocusX(), camera.getFocusY(), camera.getFocusZ(),
+                            maxDistance / COORD_SCALE, scratch
+                    );
+            double cutoff = brightnessModel.luminosityCutoff(minEye * view.parsecsPerUnit());
+            count = Math.min(count, magnitudeIndex.visiblePrefix(cutoff));
+        }
+
+        return count;
+    }
+
+    /**
+     * Work out which stars this frame projects. Returns how many, and sets
+     * {@link #candidateSubset} to their catalog indices when the distance index
+     * applies, or null when they are simply the first {@code count} columns.
+     */
+    private int selectCandidates(ViewTransform view) {
+        int prefix = visibleCount(view);
+        candidateSubset = null;
+
+        FocusDistanceIndex index = distanceIndex();
+        if (index == null)
+            return prefix;
+
+        // Gathering only pays when the filter throws away most of the prefix
+        int within = index.countWithin(maxDistanceSq);
+        if (within > prefix * DISTANCE_INDEX_MAX_SHARE)
+            return prefix;
+
+        int[] nearest = index.select(within);
+        int count = Arrays.binarySearch(nearest, 0, within, prefix);
+        candidateSubset = nearest;
+        return count >= 0 ? count : -count - 1;
+    }
+
+    private void projectCandidates(ViewTransform view, int from, int to) {
+        if (candidateSubset != null)
+            projectionKernel
+                    .projectIndexed(
+                            columns, candidateSubset, from, to, view, maxDistanceSq,
+                            brightnessModel, projected
+                    );
+        else
+            projectionKernel
+                    .project(columns, from, to, view, maxDistanceSq, brightnessModel, projected);
+    }
+
+    /**
+     * Distance index for the current focus, or null while the filter is off or
+     * the index is still being built (a build is started if needed).
+     */
+    private FocusDistanceIndex distanceIndex() {
+        if (maxDistance == Double.MAX_VALUE)
+            return null;
+
+        double fx = camera.getFocusX(), fy = camera.getFocusY(), fz = camera.getFocusZ();
+        if (distanceIndex != null && distanceIndex.isFor(fx, fy, fz))
+            return distanceIndex;
+
+        if (pendingIndex != null && pendingIndex.isDone()) {
+            distanceIndex = pendingIndex.exceptionally(e -> distanceIndex).join();
+            pendingIndex = null;
+            if (distanceIndex != null && distanceIndex.isFor(fx, fy, fz))
+                return distanceIndex;
+        }
+
+        // One build at a time; a focus that moved on meanwhile is picked up next frame
+        if (pendingIndex == null) {
+            pendingIndex = FocusDistanceIndex.buildAsync(columns, fx, fy, fz);
+            Runnable ready = onDistanceIndexReady;
+            if (ready != null)
+                pendingIndex.thenRun(ready);
+        }
+
+        return null;
+    }
+
+    /** The distance index if one is ready for the current focus; never starts a build. */
+    FocusDistanceIndex readyDistanceIndex() {
+        if (maxDistance == Double.MAX_VALUE || distanceIndex == null)
+            return null;
+
+        return distanceIndex.isFor(camera.getFocusX(), camera.getFocusY(), camera.getFocusZ())
+                ? distanceIndex
+                : null;
+    }
+
+    private double distanceSqToFocus(Star s) {
+        double dx = (s.getX() - camera.getFocusX()) * COORD_SCALE;
+        double dy = (s.getY() - camera.getFocusY()) * COORD_SCALE;
+        double dz = (s.getZ() - camera.getFocusZ()) * COORD_SCALE;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void drawStar(
+            Graphics2D g,
+            int rank,
+            int x,
+            int y,
+            double brightness,
+            double depthCue,
+            boolean highlight
+    ) {
+        drawStar(g, magnitudeIndex.get(rank), rank, x, y, brightness, depthCue, highlight);
+    }
+
+    /**
+     * Draw one star. {@code depthCue} (0..1) scales size and alpha down for
+     * distant stars when drawing depth-sorted. {@code rank} is the star's
+     * catalog index, used for cluster colours, or -1 if unknown.
+     */
+    private void drawStar(
+            Graphics2D g,
+            Star s,
+            int rank,
+            int x,
+            int y,
+            double brightness,
+            double depthCue,
+            boolean highlight
+    ) {
         StarColour col = s.getColour();
-        if (col != null)
-            g.setColor(new Color(clamp(col.getRed()), clamp(col.getGreen()), clamp(col.getBlue())));
+        float alpha = (float) (brightnessModel.alpha(brightness) / 255.0 * depthCue);
+        int[] labels = clusterLabels;
+        if (labels != null && rank >= 0) {
+            int label = labels[rank];
+            float[] rgb = label >= 0 ? CLUSTER_PALETTE[label % CLUSTER_PALETTE.length] : NOISE_RGB;
+            float a = label >= 0 ? alpha : alpha * NOISE_ALPHA;
+            g.setColor(new Color(rgb[0], rgb[1], rgb[2], a));
+        }
+        else if (col != null)
+            g
+                    .setColor(
+                            new Color(
+                                    clamp(col.getRed()), clamp(col.getGreen()), clamp(col
+                                            .getBlue()), alpha
+                            )
+                    );
         else
-            g.setColor(Color.WHITE);
+            g.setColor(new Color(1f, 1f, 1f, alpha));
 
-        int size = 3;
-        g.fillOval(x, y, size, size);
+        int size = Math.max(1, (int) Math.round(brightnessModel.pointSize(brightness) * depthCue));
+        // Tiny points look the same as ovals and are much cheaper to fill
+        if (size <= 2)
+            g.fillRect(x, y, size, size);
+        else
+            g.fillOval(x, y, size, size);
 
         if (highlight) {
             g.setColor(Color.YELLOW);
@@ -121,16 +673,28 @@ public class StarRenderer {
 
     public int[]
             projectStarToScreen(Star s, Star center, double[][] rotMatrix, int width, int height) {
+        return projectStarToScreen(s, center, rotMatrix, width, height, camera);
+    }
+
+    /** As above against a given camera, e.g. a snapshot taken for a background pick. */
+    public static int[] projectStarToScreen(
+            Star s,
+            Star center,
+            double[][] rotMatrix,
+            int width,
+            int height,
+            Camera cam
+    ) {
         double dx = (s.getX() - center.getX()) * COORD_SCALE;
         double dy = (s.getY() - center.getY()) * COORD_SCALE;
         double dz = (s.getZ() - center.getZ()) * COORD_SCALE;
         double[] pos = applyMatrix(new double[] {
                 dx, dy, dz
         }, rotMatrix);
-        return Projection.project(pos, width, height, camera);
+        return Projection.project(pos, width, height, cam);
     }
 
-    private double[] applyMatrix(double[] v, double[][] m) {
+    private static double[] applyMatrix(double[] v, double[][] m) {
         return new double[] {
                 v[0] * m[0][0] + v[1] * m[1][0] + v[2] * m[2][0],
                 v[0] * m[0][1] + v[1] * m[1][1] + v[2] * m[2][1],
@@ -144,12 +708,13 @@ public class StarRenderer {
             int panelWidth,
             int panelHeight
     ) {
-        Star center = (selectedStar != null) ? selectedStar : stars.get(0);
-        if (center == null)
-            return;
+        // Around the selection, else around what the camera is looking at
+        double cx = selectedStar != null ? selectedStar.getX() : camera.getFocusX();
+        double cy = selectedStar != null ? selectedStar.getY() : camera.getFocusY();
+        double cz = selectedStar != null ? selectedStar.getZ() : camera.getFocusZ();
 
         double r = radiusParsecs > 0 ? radiusParsecs : maxDistance;
-        List<Star> cluster = kdtree.range(center.getX(), center.getY(), center.getZ(), r);
+        List<Star> cluster = kdtree.range(cx, cy, cz, r);
         if (cluster.isEmpty())
             return;
 
@@ -0,0 +1,100 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-memory LRU of rendered tiles, optionally backed by a directory of
+ * PNGs that survives restarts. Memory operations are synchronised; disk I/O is
+ * meant to be done from background threads.
+ */
+@Slf4j
+public class TileCache {
+
+    private final Map<TileKey, BufferedImage> tiles;
+
+    @Getter
+    private final Path diskDir;
+
+    /**
+     * @param maxTiles tiles kept in memory before the least recently used is dropped
+     * @param diskDir  directory for the on-disk cache, or null for memory only
+     */
+    public TileCache(int maxTiles, Path diskDir) {
+        this.diskDir = diskDir;
+        this.tiles = new LinkedHashMap<>(maxTiles, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, BufferedImage> eldest) {
+                return size() > maxTiles;
+            }
+
+        };
+    }
+
+    public synchronized BufferedImage get(TileKey key) {
+        return tiles.get(key);
+    }
+
+    public synchronized void put(TileKey key, BufferedImage tile) {
+        tiles.put(key, tile);
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    /** Read a tile from the disk cache, or null if absent or unreadable. */
+    public BufferedImage load(TileKey key) {
+        if (diskDir == null)
+            return null;
+
+        Path file = diskDir.resolve(key.toPath());
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try {
+            return ImageIO.read(file.toFile());
+        }
+        catch (IOException e) {
+            log.warn("Failed to read cached tile {}", file, e);
+            return null;
+        }
+
+    }
+
+    /** Write a tile to the disk cache; failures are logged and ignored. */
+    public void store(TileKey key, BufferedImage tile) {
+        if (diskDir == null)
+            return;
+
+        Path file = diskDir.resolve(key.toPath());
+
+        try {
+            Files.createDirectories(file.getParent());
+            // Write then rename so readers never see a partial PNG
+            Path tmp = Files.createTempFile(file.getParent(), "tile", ".tmp");
+            ImageIO.write(tile, "png", tmp.toFile());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            log.warn("Failed to write cached tile {}", file, e);
+        }
+
+    }
+
+}
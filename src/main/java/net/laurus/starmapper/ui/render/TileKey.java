@@ -0,0 +1,27 @@
+package net.laurus.starmapper.ui.render;
+
+import lombok.Value;
+
+/**
+ * Address of one pyramid tile: the render style it was drawn with, the zoom
+ * it was drawn at and the tile column/row in that zoom's pixel space.
+ */
+@Value
+public class TileKey {
+
+    long style;
+
+    double zoom;
+
+    int tx;
+
+    int ty;
+
+    /** Relative path used by the on-disk cache. */
+    public String toPath() {
+        return String.format(
+                "%016x/%016x/%d_%d.png", style, Double.doubleToLongBits(zoom), tx, ty
+        );
+    }
+
+}
@@ -0,0 +1,288 @@
+package net.laurus.starmapper.ui.render;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.headless.HeadlessRenderer;
+import net.laurus.starmapper.headless.ViewSpec;
+
+/**
+ * Slippy-map style grid of pre-rendered tiles for the unrotated view. With no
+ * rotation, panning is a pure screen translation, so a view is the tiles of
+ * its own zoom composited 1:1: tiles are drawn at exactly the display zoom,
+ * never rescaled, so point sizes and brightness culling match live frames.
+ * <p>
+ * Tiles are rendered lazily on background threads into a {@link TileCache},
+ * in batches of up to {@value #BATCH} x {@value #BATCH} tiles rendered as one
+ * image and cut up, so the catalog is projected once per batch rather than
+ * once per tile.
+ */
+@Slf4j
+public class TilePyramid {
+
+    public static final int TILE_SIZE = 256;
+
+    // Tiles per side of one batch render (a 2048 px square)
+    static final int BATCH = 8;
+
+    // Outstanding tiles; further requests wait for the next frame
+    private static final int MAX_PENDING = 2 * BATCH * BATCH;
+
+    private final HeadlessRenderer renderer;
+
+    @Getter
+    private final TileCache cache;
+
+    private final ExecutorService workers;
+
+    private final Set<TileKey> pending = ConcurrentHashMap.newKeySet();
+
+    private final Runnable onTileReady;
+
+    @Getter
+    @Setter
+    private boolean enabled = true;
+
+    /**
+     * @param onTileReady called from a worker thread whenever a tile lands in
+     *                    the cache (e.g. a thread-safe repaint)
+     */
+    public TilePyramid(
+            HeadlessRenderer renderer,
+            TileCache cache,
+            int threads,
+            Runnable onTileReady
+    ) {
+        this.renderer = renderer;
+        this.cache = cache;
+        this.onTileReady = onTileReady;
+
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "tile-renderer-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+    }
+
+    /** Tiles only hold for unrotated point rendering. */
+    public static boolean supports(ViewSpec view) {
+        return view.getRotX() == 0 && view.getRotY() == 0 && view.getMode() == RenderMode.POINTS;
+    }
+
+    /**
+     * Composite the tiles covering the view. If any is missing nothing is
+     * drawn, the missing tiles are requested and false is returned so the
+     * caller can fall back to live rendering for this frame.
+     */
+    public boolean draw(Graphics2D g, ViewSpec view, int width, int height) {
+        Grid grid = new Grid(view, width, height, 0);
+        BufferedImage[] images = new BufferedImage[grid.cols * grid.rows];
+
+        for (int ty = grid.ty0; ty <= grid.ty1; ty++) {
+            for (int tx = grid.tx0; tx <= grid.tx1; tx++)
+                images[(ty - grid.ty0) * grid.cols + (tx - grid.tx0)] = cache.get(grid.key(tx, ty));
+
+        }
+
+        for (BufferedImage tile : images) {
+            if (tile == null) {
+                requestMissing(grid, view);
+                return false;
+            }
+
+        }
+
+        int originX = (int) Math.floor(grid.originX);
+        int originY = (int) Math.floor(grid.originY);
+
+        for (int ty = grid.ty0; ty <= grid.ty1; ty++) {
+            for (int tx = grid.tx0; tx <= grid.tx1; tx++) {
+                BufferedImage tile = images[(ty - grid.ty0) * grid.cols + (tx - grid.tx0)];
+                g.drawImage(tile, originX + tx * TILE_SIZE, originY + ty * TILE_SIZE, null);
+            }
+
+        }
+
+        return true;
+    }
+
+    /** Request the tiles covering the view plus {@code margin} tiles around it. */
+    public void prefetch(ViewSpec view, int width, int height, int margin) {
+        requestMissing(new Grid(view, width, height, margin), view);
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Queue one batch render per BATCH x BATCH block of the grid that has tiles missing
+    private void requestMissing(Grid grid, ViewSpec view) {
+        for (int by = grid.ty0; by <= grid.ty1; by += BATCH) {
+            for (int bx = grid.tx0; bx <= grid.tx1; bx += BATCH) {
+                int tx1 = Math.min(grid.tx1, bx + BATCH - 1);
+                int ty1 = Math.min(grid.ty1, by + BATCH - 1);
+                List<TileKey> batch = new ArrayList<>();
+
+                for (int ty = by; ty <= ty1; ty++) {
+                    for (int tx = bx; tx <= tx1; tx++) {
+                        TileKey key = grid.key(tx, ty);
+                        if (cache.get(key) != null || pending.size() >= MAX_PENDING)
+                            continue;
+                        if (pending.add(key))
+                            batch.add(key);
+                    }
+
+                }
+
+                if (!batch.isEmpty())
+                    submit(batch, view);
+            }
+
+        }
+
+    }
+
+    private void submit(List<TileKey> batch, ViewSpec view) {
+        workers.execute(() -> {
+            try {
+                List<TileKey> missing = new ArrayList<>();
+
+                for (TileKey key : batch) {
+                    BufferedImage tile = cache.load(key);
+                    if (tile != null)
+                        cache.put(key, tile);
+                    else
+                        missing.add(key);
+                }
+
+                if (!missing.isEmpty())
+                    renderBatch(missing, view);
+                onTileReady.run();
+            }
+            catch (RuntimeException e) {
+                log.warn("Failed to render {} tiles from {}", batch.size(), batch.get(0), e);
+            }
+            finally {
+                pending.removeAll(batch);
+            }
+
+        });
+    }
+
+    // Render the bounding block of the tiles as one image, then cut it up
+    private void renderBatch(List<TileKey> keys, ViewSpec view) {
+        int tx0 = Integer.MAX_VALUE, ty0 = Integer.MAX_VALUE;
+        int tx1 = Integer.MIN_VALUE, ty1 = Integer.MIN_VALUE;
+
+        for (TileKey key : keys) {
+            tx0 = Math.min(tx0, key.getTx());
+            ty0 = Math.min(ty0, key.getTy());
+            tx1 = Math.max(tx1, key.getTx());
+            ty1 = Math.max(ty1, key.getTy());
+        }
+
+        int width = (tx1 - tx0 + 1) * TILE_SIZE;
+        int height = (ty1 - ty0 + 1) * TILE_SIZE;
+        BufferedImage block = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = block.createGraphics();
+
+        try {
+            renderer.render(g, blockView(view, tx0, ty0, width, height), width, height);
+        }
+        finally {
+            g.dispose();
+        }
+
+        for (TileKey key : keys) {
+            BufferedImage tile = new BufferedImage(
+                    TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB
+            );
+            int x = (key.getTx() - tx0) * TILE_SIZE;
+            int y = (key.getTy() - ty0) * TILE_SIZE;
+            tile.getRaster().setRect(-x, -y, block.getRaster());
+            cache.store(key, tile);
+            cache.put(key, tile);
+        }
+
+    }
+
+    /**
+     * The view rendered into a block of tiles: same zoom, panned so the top
+     * left corner of tile (tx0, ty0) is the image origin.
+     */
+    private static ViewSpec blockView(ViewSpec view, int tx0, int ty0, int width, int height) {
+        ViewSpec v = new ViewSpec(view);
+        v.setPanX(-width / 2.0 - (double) tx0 * TILE_SIZE);
+        v.setPanY(-height / 2.0 - (double) ty0 * TILE_SIZE);
+        // Labels would be clipped at tile edges; they are drawn live instead
+        v.setLabels(false);
+        return v;
+    }
+
+    /**
+     * Hash of everything besides zoom and pan that changes a tile's pixels.
+     * Labels and the selection are never in tiles, so they are left out.
+     */
+    private long styleOf(ViewSpec view) {
+        long h = renderer.getCatalog().getContentHash();
+        h = 31 * h + Double.hashCode(view.getFocusX());
+        h = 31 * h + Double.hashCode(view.getFocusY());
+        h = 31 * h + Double.hashCode(view.getFocusZ());
+        h = 31 * h + Double.hashCode(view.getRotX());
+        h = 31 * h + Double.hashCode(view.getRotY());
+        h = 31 * h + Double.hashCode(view.getMaxDistance());
+        h = 31 * h + view.getMode().ordinal();
+        h = 31 * h + Double.hashCode(view.getMinContribution());
+        h = 31 * h + Boolean.hashCode(view.isDepthSorted());
+        h = 31 * h + Double.hashCode(view.getDepthFade());
+        h = 31 * h + Double.hashCode(view.getExposure());
+        h = 31 * h + Boolean.hashCode(view.isBrightness());
+        h = 31 * h + view.getMinPointSize();
+        h = 31 * h + view.getMaxPointSize();
+        h = 31 * h + Double.hashCode(view.getReferencePointSize());
+        h = 31 * h + Boolean.hashCode(view.isAntialias());
+        return h;
+    }
+
+    /** Tile range and placement covering a view. */
+    private final class Grid {
+
+        final long style;
+
+        final double zoom, originX, originY;
+
+        final int tx0, tx1, ty0, ty1, cols, rows;
+
+        Grid(ViewSpec view, int width, int height, int margin) {
+            style = styleOf(view);
+            zoom = view.getZoom();
+            originX = width / 2.0 + view.getPanX();
+            originY = height / 2.0 + view.getPanY();
+
+            tx0 = (int) Math.floor(-originX / TILE_SIZE) - margin;
+            tx1 = (int) Math.floor((width - 1 - originX) / TILE_SIZE) + margin;
+            ty0 = (int) Math.floor(-originY / TILE_SIZE) - margin;
+            ty1 = (int) Math.floor((height - 1 - originY) / TILE_SIZE) + margin;
+            cols = tx1 - tx0 + 1;
+            rows = ty1 - ty0 + 1;
+        }
+
+        TileKey key(int tx, int ty) {
+            return new TileKey(style, zoom, tx, ty);
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package net.laurus.starmapper.ui.render;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import net.laurus.starmapper.model.StarColumns;
+import net.laurus.starmapper.ui.component.Projection;
+
+/**
+ * {@link ProjectionKernel} using the incubating Vector API: processes
+ * {@code SPECIES_PREFERRED} lanes of x/y/z at a time (4 on AVX2, 8 on
+ * AVX-512) and only drops to scalar code to append surviving lanes and for
+ * the loop tail. Compact columns are widened from int lanes of the same
+ * count, scaled by the offset step and added to the origin. Every lane
+ * performs
+ * the same double operations in the same order as
+ * {@link ScalarProjectionKernel}, so both emit identical stars.
+ */
+final class VectorProjectionKernel implements ProjectionKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Int lanes matching SPECIES one to one, for compact coordinates
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies
+            .of(int.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    @Override
+    public int project(
+            StarColumns columns,
+            int from,
+            int to,
+            ViewTransform v,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    ) {
+        double[] lum = columns.getLuminosity();
+        int lanes = SPECIES.length();
+        int before = out.size();
+
+        double scale = StarRenderer.COORD_SCALE;
+        double camDist = Projection.CAMERA_DISTANCE;
+        double ppu = v.parsecsPerUnit();
+        double margin = brightness.getMaxPointSize() + 1;
+        double minDistSq = BrightnessModel.MIN_DISTANCE * BrightnessModel.MIN_DISTANCE;
+        // With the model disabled every star passes the brightness test
+        double minB = brightness.isEnabled() ? brightness.getMinContribution()
+                : Double.NEGATIVE_INFINITY;
+
+        double[] sxOut = new double[lanes], syOut = new double[lanes];
+        double[] bOut = new double[lanes], depthOut = new double[lanes];
+
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+
+        for (; i < upper; i += lanes) {
+            DoubleVector dx = loadX(columns, i).sub(v.focusX).mul(scale);
+            DoubleVector dy = loadY(columns, i).sub(v.focusY).mul(scale);
+            DoubleVector dz = loadZ(columns, i).sub(v.focusZ).mul(scale);
+
+            VectorMask<Double> keep = dx
+                    .mul(dx)
+                    .add(dy.mul(dy))
+                    .add(dz.mul(dz))
+                    .compare(VectorOperators.LE, maxDistanceSq);
+            if (!keep.anyTrue())
+                continue;
+
+            // Rotate (row vector times matrix), re-apply the focus offset as Projection does
+            DoubleVector rx = dx.mul(v.m00).add(dy.mul(v.m10)).add(dz.mul(v.m20)).sub(v.focusX);
+            DoubleVector ry = dx.mul(v.m01).add(dy.mul(v.m11)).add(dz.mul(v.m21)).sub(v.focusY);
+            DoubleVector rz = dx.mul(v.m02).add(dy.mul(v.m12)).add(dz.mul(v.m22)).sub(v.focusZ);
+
+            // Same operation order as ViewTransform.project, so lanes round identically
+            DoubleVector depth = rz.add(camDist);
+            DoubleVector persp = DoubleVector
+                    .broadcast(SPECIES, camDist)
+                    .div(depth.max(1.0))
+                    .mul(v.zoom);
+            DoubleVector sx = rx.mul(persp).add(v.originX);
+            DoubleVector sy = ry.mul(persp).add(v.originY);
+
+            keep = keep
+                    .and(sx.compare(VectorOperators.GE, -margin))
+                    .and(sx.compare(VectorOperators.LT, v.width + margin))
+                    .and(sy.compare(VectorOperators.GE, -margin))
+                    .and(sy.compare(VectorOperators.LT, v.height + margin));
+            if (!keep.anyTrue())
+                continue;
+
+            DoubleVector eyeSq = rx
+                    .mul(rx)
+                    .add(ry.mul(ry))
+                    .add(depth.mul(depth))
+                    .mul(ppu)
+                    .mul(ppu)
+                    .max(minDistSq);
+            DoubleVector b = DoubleVector
+                    .fromArray(SPECIES, lum, i)
+                    .mul(brightness.getExposure())
+                    .div(eyeSq);
+            keep = keep.and(b.compare(VectorOperators.GE, minB));
+
+            long bits = keep.toLong();
+            if (bits == 0)
+                continue;
+
+            sx.intoArray(sxOut, 0);
+            sy.intoArray(syOut, 0);
+            b.intoArray(bOut, 0);
+            depth.intoArray(depthOut, 0);
+
+            while (bits != 0) {
+                int lane = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                out
+                        .add(
+                                i + lane, (int) sxOut[lane], (int) syOut[lane], bOut[lane],
+                                depthOut[lane]
+                        );
+            }
+
+        }
+
+        ScalarProjectionKernel.INSTANCE.project(columns, i, to, v, maxDistanceSq, brightness, out);
+        return out.size() - before;
+    }
+
+    /** Gathered lanes gain little over scalar code, so indexed runs use the scalar kernel. */
+    @Override
+    public int projectIndexed(
+            StarColumns columns,
+            int[] indices,
+            int from,
+            int to,
+            ViewTransform v,
+            double maxDistanceSq,
+            BrightnessModel brightness,
+            ProjectedStars out
+    ) {
+        return ScalarProjectionKernel.INSTANCE
+                .projectIndexed(columns, indices, from, to, v, maxDistanceSq, brightness, out);
+    }
+
+    private static DoubleVector loadX(StarColumns c, int i) {
+        return load(c.getX(), c.getOffsetX(), c.getOriginX(), c.getQuantum(), i);
+    }
+
+    private static DoubleVector loadY(StarColumns c, int i) {
+        return load(c.getY(), c.getOffsetY(), c.getOriginY(), c.getQuantum(), i);
+    }
+
+    private static DoubleVector loadZ(StarColumns c, int i) {
+        return load(c.getZ(), c.getOffsetZ(), c.getOriginZ(), c.getQuantum(), i);
+    }
+
+    /** World coordinates for lanes from {@code i}: doubles, or origin plus scaled offset. */
+    private static DoubleVector load(
+            double[] full,
+            int[] offsets,
+            double origin,
+            double quantum,
+            int i
+    ) {
+        if (full != null)
+            return DoubleVector.fromArray(SPECIES, full, i);
+
+        DoubleVector widened = (DoubleVector) IntVector
+                .fromArray(INT_SPECIES, offsets, i)
+                .convertShape(VectorOperators.I2D, SPECIES, 0);
+        return widened.mul(quantum).add(origin);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+}
@@ -0,0 +1,153 @@
+package net.laurus.starmapper.ui.render;
+
+import net.laurus.starmapper.ui.component.Camera;
+import net.laurus.starmapper.ui.component.Projection;
+
+/**
+ * Per-frame snapshot of the world-to-screen mapping. Holds the rotation matrix
+ * and camera state as primitives so hot loops can project stars without
+ * allocating, using the same maths as {@link Projection#project}.
+ */
+public final class ViewTransform {
+
+    /** Index of the screen x coordinate in the {@link #project} output */
+    public static final int SCREEN_X = 0;
+
+    /** Index of the screen y coordinate in the {@link #project} output */
+    public static final int SCREEN_Y = 1;
+
+    /** Index of the squared eye distance (scaled units) in the output */
+    public static final int EYE_DIST_SQ = 2;
+
+    /** Index of the eye-space depth (scaled units) in the output */
+    public static final int DEPTH = 3;
+
+    /** Length of the scratch array expected by {@link #project} */
+    public static final int OUT_SIZE = 4;
+
+    // Package-private so the projection kernels can hoist them into registers
+    final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+    final double focusX, focusY, focusZ;
+
+    final double zoom;
+
+    final double originX, originY;
+
+    final int width, height;
+
+    private ViewTransform(Camera cam, double[][] m, int width, int height) {
+        m00 = m[0][0];
+        m01 = m[0][1];
+        m02 = m[0][2];
+        m10 = m[1][0];
+        m11 = m[1][1];
+        m12 = m[1][2];
+        m20 = m[2][0];
+        m21 = m[2][1];
+        m22 = m[2][2];
+        focusX = cam.getFocusX();
+        focusY = cam.getFocusY();
+        focusZ = cam.getFocusZ();
+        zoom = cam.getZoom();
+        originX = width / 2.0 + cam.getPanX();
+        originY = height / 2.0 + cam.getPanY();
+        this.width = width;
+        this.height = height;
+    }
+
+    public static ViewTransform of(Camera cam, double[][] rotMatrix, int width, int height) {
+        return new ViewTransform(cam, rotMatrix, width, height);
+    }
+
+    /**
+     * Project a world-space point (parsecs). Writes screen x/y, squared eye
+     * distance and eye depth into {@code out} (length {@link #OUT_SIZE}).
+     */
+    public void project(double wx, double wy, double wz, double[] out) {
+        double dx = (wx - focusX) * StarRenderer.COORD_SCALE;
+        double dy = (wy - focusY) * StarRenderer.COORD_SCALE;
+        double dz = (wz - focusZ) * StarRenderer.COORD_SCALE;
+
+        // Projection subtracts the focus again after rotation; mirror it here
+        double rx = dx * m00 + dy * m10 + dz * m20 - focusX;
+        double ry = dx * m01 + dy * m11 + dz * m21 - focusY;
+        double rz = dx * m02 + dy * m12 + dz * m22 - focusZ;
+
+        double depth = rz + Projection.CAMERA_DISTANCE;
+        double scale = (Projection.CAMERA_DISTANCE / (depth < 1 ? 1 : depth)) * zoom;
+
+        // Callers truncate with (int), matching Projection
+        out[SCREEN_X] = rx * scale + originX;
+        out[SCREEN_Y] = ry * scale + originY;
+        out[EYE_DIST_SQ] = rx * rx + ry * ry + depth * depth;
+        out[DEPTH] = depth;
+    }
+
+    /**
+     * Lower bound of the eye distance (scaled units) for any point inside the
+     * given world-space sphere. Rotation is rigid, so the sphere stays a sphere.
+     */
+    public double minEyeDistance(double wx, double wy, double wz, double radius, double[] scratch) {
+        project(wx, wy, wz, scratch);
+        double d = Math.sqrt(scratch[EYE_DIST_SQ]) - radius * StarRenderer.COORD_SCALE;
+        return Math.max(0, d);
+    }
+
+    /**
+     * World-space position (parsecs) of the eye, written to {@code out[0..2]}.
+     * A point's distance from it in parsecs, over the zoom, is its apparent
+     * distance.
+     */
+    public void eyePosition(double[] out) {
+        // The eye is at rotated (0, 0, -CAMERA_DISTANCE); undo project()'s steps
+        double rx = focusX, ry = focusY, rz = focusZ - Projection.CAMERA_DISTANCE;
+        out[0] = focusX + (m00 * rx + m01 * ry + m02 * rz) / StarRenderer.COORD_SCALE;
+        out[1] = focusY + (m10 * rx + m11 * ry + m12 * rz) / StarRenderer.COORD_SCALE;
+        out[2] = focusZ + (m20 * rx + m21 * ry + m22 * rz) / StarRenderer.COORD_SCALE;
+    }
+
+    /** Conversion factor from scaled eye distance to apparent parsecs. */
+    public double parsecsPerUnit() {
+        return 1.0 / (StarRenderer.COORD_SCALE * zoom);
+    }
+
+    /**
+     * Whether this view differs from {@code other} only by panning plus a small
+     * rotation or zoom change, so screen-space decisions made for one still
+     * hold for the other.
+     */
+    public boolean isCloseTo(ViewTransform other, double tolerance) {
+        if (other == null || width != other.width || height != other.height)
+            return false;
+        if (focusX != other.focusX || focusY != other.focusY || focusZ != other.focusZ)
+            return false;
+        if (Math.abs(zoom / other.zoom - 1) > tolerance)
+            return false;
+
+        double dm = Math.abs(m00 - other.m00) + Math.abs(m01 - other.m01)
+                + Math.abs(m02 - other.m02) + Math.abs(m10 - other.m10)
+                + Math.abs(m11 - other.m11) + Math.abs(m12 - other.m12)
+                + Math.abs(m20 - other.m20) + Math.abs(m21 - other.m21)
+                + Math.abs(m22 - other.m22);
+        return dm <= tolerance;
+    }
+
+    /** Exact match, including pan. */
+    public boolean sameAs(ViewTransform other) {
+        return isCloseTo(other, 0.0) && originX == other.originX && originY == other.originY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+}
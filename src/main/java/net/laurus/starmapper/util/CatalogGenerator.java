@@ -0,0 +1,394 @@
+package net.laurus.starmapper.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.model.Star;
+import net.laurus.starmapper.model.StarColour;
+
+/**
+ * Deterministic synthetic catalogs of any size in the bundled JSON schema
+ * ({@code i, n, x, y, z, N, K}), for scale testing.
+ * <p>
+ * Every star is a pure function of the seed and its index, so output is the
+ * same whatever the thread count, and {@link #write} streams blocks of stars
+ * generated in parallel straight to disk, holding only a few blocks in
+ * memory. Star 0 is Sol at the origin, as in the real catalogs; the rest
+ * have ids {@code 1..count-1} and names {@code SYN-<id>}.
+ */
+@Slf4j
+@Getter
+public class CatalogGenerator {
+
+    // bubble.json: 9102 stars within 500 pc, so default sizes keep its density
+    private static final double DENSITY = 9102 / (4.0 / 3.0 * Math.PI * 500 * 500 * 500);
+
+    private static final int STARS_PER_CLUSTER = 1000;
+
+    private static final double CLUSTER_SIGMA = 5;
+
+    private static final int BLOCK = 1 << 16;
+
+    // Fields of one generated star in the scratch array
+    private static final int X = 0, Y = 1, Z = 2, LUM = 3, RED = 4, GREEN = 5, BLUE = 6;
+
+    private final int count;
+
+    private final long seed;
+
+    private final SpatialDistribution distribution;
+
+    // Sphere (or disc) radius in parsecs
+    private final double radius;
+
+    // CLUSTERED only: cluster centres, xyz interleaved
+    @Getter(AccessLevel.NONE)
+    private final double[] clusters;
+
+    public CatalogGenerator(int count, long seed, SpatialDistribution distribution, double radius) {
+        if (count < 1)
+            throw new IllegalArgumentException("Need at least one star: " + count);
+        if (!(radius > 0))
+            throw new IllegalArgumentException("Radius must be positive: " + radius);
+
+        this.count = count;
+        this.seed = seed;
+        this.distribution = distribution;
+        this.radius = radius;
+        this.clusters = distribution == SpatialDistribution.CLUSTERED ? clusterCentres() : null;
+    }
+
+    /** Radius giving bubble.json's star density for {@code count} stars. */
+    public static double defaultRadius(int count) {
+        return Math.cbrt(count / DENSITY / (4.0 / 3.0 * Math.PI));
+    }
+
+    public static CatalogGenerator of(int count, long seed, SpatialDistribution distribution) {
+        return new CatalogGenerator(count, seed, distribution, defaultRadius(count));
+    }
+
+    private double[] clusterCentres() {
+        int n = Math.max(1, count / STARS_PER_CLUSTER);
+        double[] centres = new double[3 * n];
+        SplittableRandom random = new SplittableRandom(mix(seed ^ 0x636c7573L));
+        double[] p = new double[3];
+
+        for (int c = 0; c < n; c++) {
+            inSphere(random, radius, p);
+            System.arraycopy(p, 0, centres, 3 * c, 3);
+        }
+
+        return centres;
+    }
+
+    /** Star {@code i}, in any order and from any thread. */
+    public Star star(int i) {
+        double[] s = new double[7];
+        generate(i, s);
+        Star star = new Star();
+        star.setId(i);
+        star.setName(name(i));
+        star.setX(s[X]);
+        star.setY(s[Y]);
+        star.setZ(s[Z]);
+        star.setMagnitude(s[LUM]);
+        StarColour colour = new StarColour();
+        colour.setRed(s[RED]);
+        colour.setGreen(s[GREEN]);
+        colour.setBlue(s[BLUE]);
+        star.setColour(colour);
+        return star;
+    }
+
+    /** The whole catalog in memory; only sensible for sizes that fit. */
+    public List<Star> stars() {
+        List<Star> stars = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+            stars.add(star(i));
+
+        return stars;
+    }
+
+    private static String name(int i) {
+        return i == 0 ? "Sol" : "SYN-" + i;
+    }
+
+    private void generate(int i, double[] s) {
+        if (i == 0) {
+            Arrays.fill(s, 0);
+            s[LUM] = 1;
+            s[RED] = 1;
+            s[GREEN] = 1;
+            s[BLUE] = 0.8;
+            return;
+        }
+
+        SplittableRandom random = new SplittableRandom(mix(seed + i * 0x9e3779b97f4a7c15L));
+        position(random, s);
+
+        // Log-normal luminosity around the real catalog's median (~60)
+        double logLum = 1.8 + 1.2 * gaussian(random);
+        s[LUM] = Math.pow(10, logLum);
+
+        // Brighter stars run bluer, fainter ones redder, with some scatter
+        double t = Math.max(0, Math.min(1, (logLum + 1) / 6 + 0.1 * gaussian(random)));
+        s[RED] = 1 - 0.6 * t;
+        s[GREEN] = 0.65 + 0.3 * (1 - Math.abs(2 * t - 1));
+        s[BLUE] = 0.55 + 0.45 * t;
+    }
+
+    private void position(SplittableRandom random, double[] s) {
+        switch (distribution) {
+            case CLUSTERED:
+                if (random.nextBoolean()) {
+                    int c = 3 * random.nextInt(clusters.length / 3);
+                    s[X] = clusters[c] + CLUSTER_SIGMA * gaussian(random);
+                    s[Y] = clusters[c + 1] + CLUSTER_SIGMA * gaussian(random);
+                    s[Z] = clusters[c + 2] + CLUSTER_SIGMA * gaussian(random);
+                    return;
+                }
+
+                inSphere(random, radius, s);
+                return;
+            case DISC:
+                disc(random, s);
+                return;
+            default:
+                inSphere(random, radius, s);
+        }
+
+    }
+
+    private static void inSphere(SplittableRandom random, double radius, double[] s) {
+        double x, y, z;
+
+        do {
+            x = random.nextDouble(-1, 1);
+            y = random.nextDouble(-1, 1);
+            z = random.nextDouble(-1, 1);
+        }
+        while (x * x + y * y + z * z > 1);
+
+        s[X] = x * radius;
+        s[Y] = y * radius;
+        s[Z] = z * radius;
+    }
+
+    // Surface density ~ exp(-r / scale) (so r is gamma(2)), height ~ exp(-|z| / scale)
+    private void disc(SplittableRandom random, double[] s) {
+        double scaleLength = radius / 3;
+        double scaleHeight = Math.max(1, radius / 50);
+        double r;
+
+        do {
+            double u = 1 - random.nextDouble(), v = 1 - random.nextDouble();
+            r = -scaleLength * (Math.log(u) + Math.log(v));
+        }
+        while (r > radius);
+
+        double angle = random.nextDouble(2 * Math.PI);
+        double h = -scaleHeight * Math.log(1 - random.nextDouble());
+        s[X] = r * Math.cos(angle);
+        s[Y] = random.nextBoolean() ? h : -h;
+        s[Z] = r * Math.sin(angle);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    // SplitMix64 finaliser, so neighbouring seeds give unrelated streams
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Write the catalog as a JSON array to {@code file}, one star per line.
+     * Blocks of stars are formatted on {@code threads} workers and written in
+     * order as they complete; at most two blocks per worker are in flight.
+     * The file is written under a temporary name and renamed when complete.
+     */
+    public void write(Path file, int threads) throws IOException {
+        long begin = System.nanoTime();
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "catalog", ".tmp");
+        int blocks = (int) ((count + (long) BLOCK - 1) / BLOCK);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "catalog-generator");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            long bytes = 0;
+            out.write("[\n".getBytes(StandardCharsets.US_ASCII));
+
+            for (int b = 0; b < blocks; b++) {
+                while (next < blocks && inFlight.size() < 2 * Math.max(1, threads)) {
+                    int block = next++;
+                    inFlight.add(pool.submit(() -> format(block)));
+                }
+
+                byte[] chunk = inFlight.poll().get();
+                out.write(chunk);
+                bytes += chunk.length;
+
+                if ((b + 1) % 128 == 0)
+                    log.info("Generated {} of {} stars", Math.min(count, (b + 1L) * BLOCK), count);
+            }
+
+            out.write("]\n".getBytes(StandardCharsets.US_ASCII));
+            log
+                    .info(
+                            "Wrote {} {} stars ({} MB) to {} in {} ms", count, distribution,
+                            bytes >> 20, file, (System.nanoTime() - begin) / 1_000_000
+                    );
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Files.deleteIfExists(tmp);
+            throw new IOException("Interrupted while generating " + file, e);
+        }
+        catch (ExecutionException e) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("Failed to generate " + file, e.getCause());
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // One block as JSON lines; every line but the catalog's last ends with a comma
+    private byte[] format(int block) {
+        int from = block * BLOCK;
+        int to = (int) Math.min(count, (long) from + BLOCK);
+        AsciiBuffer buf = new AsciiBuffer((to - from) * 128);
+        double[] s = new double[7];
+
+        for (int i = from; i < to; i++) {
+            generate(i, s);
+            buf.append("{\"i\":").append(i);
+            buf.append(",\"n\":\"").append(name(i));
+            buf.append("\",\"x\":").append(s[X], 4);
+            buf.append(",\"y\":").append(s[Y], 4);
+            buf.append(",\"z\":").append(s[Z], 4);
+            buf.append(",\"N\":").append(s[LUM], 4);
+            buf.append(",\"K\":{\"r\":").append(s[RED], 3);
+            buf.append(",\"g\":").append(s[GREEN], 3);
+            buf.append(",\"b\":").append(s[BLUE], 3);
+            buf.append(i == count - 1 ? "}}\n" : "}},\n");
+        }
+
+        return buf.toByteArray();
+    }
+
+    // Growable ASCII byte buffer with allocation-free number formatting
+    private static final class AsciiBuffer {
+
+        private static final long[] POW10 = { 1, 10, 100, 1000, 10000, 100000, 1000000 };
+
+        private byte[] bytes;
+
+        private int size;
+
+        AsciiBuffer(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensure(int more) {
+            if (size + more > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(size + more, bytes.length * 2));
+        }
+
+        AsciiBuffer append(String s) {
+            ensure(s.length());
+
+            for (int k = 0; k < s.length(); k++)
+                bytes[size++] = (byte) s.charAt(k);
+
+            return this;
+        }
+
+        AsciiBuffer append(long v) {
+            ensure(20);
+            if (v < 0) {
+                bytes[size++] = '-';
+                v = -v;
+            }
+
+            int start = size;
+
+            do {
+                bytes[size++] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            while (v != 0);
+
+            for (int a = start, b = size - 1; a < b; a++, b--) {
+                byte t = bytes[a];
+                bytes[a] = bytes[b];
+                bytes[b] = t;
+            }
+
+            return this;
+        }
+
+        /** Fixed point with {@code decimals} places, trailing zeros dropped. */
+        AsciiBuffer append(double v, int decimals) {
+            long scaled = Math.round(Math.abs(v) * POW10[decimals]);
+            if (v < 0 && scaled != 0)
+                append("-");
+
+            append(scaled / POW10[decimals]);
+            long frac = scaled % POW10[decimals];
+            if (frac == 0)
+                return this;
+
+            ensure(decimals + 1);
+            bytes[size++] = '.';
+
+            for (int d = decimals - 1; d >= 0 && frac != 0; d--) {
+                long digit = frac / POW10[d];
+                bytes[size++] = (byte) ('0' + digit);
+                frac -= digit * POW10[d];
+            }
+
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+    }
+
+}
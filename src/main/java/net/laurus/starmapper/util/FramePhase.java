@@ -0,0 +1,24 @@
+package net.laurus.starmapper.util;
+
+/** Parts of a frame timed by {@link FrameProfiler}. */
+public enum FramePhase {
+
+    /** Whole paint, from input applied to overlay drawn. */
+    FRAME,
+
+    /** Choosing candidate stars: magnitude cutoff and distance index. */
+    CULL,
+
+    /** Projecting candidates to screen. */
+    PROJECT,
+
+    /** Drawing stars, or the density image. */
+    DRAW,
+
+    /** Highlights, selection, labels, route, filter circle and drag outline. */
+    OVERLAY,
+
+    /** Hover and click picks; these run off the paint thread. */
+    PICK
+
+}
@@ -0,0 +1,27 @@
+package net.laurus.starmapper.util;
+
+import java.util.Map;
+
+import lombok.Value;
+
+/** Snapshot of a {@link FrameProfiler}, as shown on the HUD and dumped to JSON. */
+@Value
+public class FrameProfile {
+
+    // Per phase, in FramePhase order; FRAME is the whole paint
+    Map<FramePhase, FrameStats> phases;
+
+    double framesPerSecond;
+
+    // Stars drawn and not drawn in the last live frame; -1 before the first one
+    int starsDrawn;
+
+    int starsCulled;
+
+    // Bytes allocated on the paint thread per frame (mean), -1 if the JVM cannot tell
+    long allocatedBytesPerFrame;
+
+    // Paint-thread allocation over wall time since the profiler was reset, in MB/s
+    double allocationMbPerSecond;
+
+}
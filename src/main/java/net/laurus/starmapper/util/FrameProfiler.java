@@ -0,0 +1,193 @@
+package net.laurus.starmapper.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-phase frame timing. Paint-thread phases add up into per-frame totals
+ * with {@link #lap}, which {@link #endFrame} moves into a
+ * {@link PhaseHistogram} per phase; picks, which run elsewhere, record
+ * directly. Also tracks stars drawn and culled and paint-thread allocation.
+ * <p>
+ * While disabled {@link #beginFrame} and {@link #begin} return 0 and every
+ * other call returns at once on seeing it, so the hooks cost a branch.
+ */
+@Slf4j
+public class FrameProfiler {
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final FramePhase[] PHASES = FramePhase.values();
+
+    // Per-thread allocation counter, or null where the JVM has none
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    @Getter
+    private volatile boolean enabled;
+
+    private final PhaseHistogram[] histograms = new PhaseHistogram[PHASES.length];
+
+    // This frame's time per phase, paint thread only; -1 = phase not reached
+    private final long[] frameNanos = new long[PHASES.length];
+
+    private volatile int starsDrawn = -1;
+
+    private volatile int starsCulled = -1;
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    private long frameAllocationStart;
+
+    private volatile long resetNanos = System.nanoTime();
+
+    private long lastFrameEnd;
+
+    // Smoothed frame interval for the fps readout
+    private volatile double intervalNanos;
+
+    public FrameProfiler() {
+        for (int p = 0; p < PHASES.length; p++)
+            histograms[p] = new PhaseHistogram();
+
+    }
+
+    /** Turning profiling on starts from empty histograms. */
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled)
+            reset();
+        this.enabled = enabled;
+    }
+
+    public void reset() {
+        for (PhaseHistogram h : histograms)
+            h.reset();
+
+        starsDrawn = starsCulled = -1;
+        allocatedBytes.set(0);
+        intervalNanos = 0;
+        lastFrameEnd = 0;
+        resetNanos = System.nanoTime();
+    }
+
+    /** Start of a paint; returns the token for {@link #lap} and {@link #endFrame}. */
+    public long beginFrame() {
+        if (!enabled)
+            return 0;
+
+        for (int p = 0; p < PHASES.length; p++)
+            frameNanos[p] = -1;
+
+        frameAllocationStart = threadAllocatedBytes();
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since {@code since} to {@code phase} for this frame and
+     * return now, to time the next phase from. Returns 0 if {@code since} is.
+     */
+    public long lap(FramePhase phase, long since) {
+        if (since == 0)
+            return 0;
+
+        long now = System.nanoTime();
+        long total = frameNanos[phase.ordinal()];
+        frameNanos[phase.ordinal()] = Math.max(total, 0) + now - since;
+        return now;
+    }
+
+    /** Record the stars drawn by the points pass this frame. */
+    public void stars(int drawn, int culled) {
+        if (!enabled)
+            return;
+
+        starsDrawn = drawn;
+        starsCulled = culled;
+    }
+
+    public void endFrame(long start) {
+        if (start == 0)
+            return;
+
+        long now = System.nanoTime();
+        frameNanos[FramePhase.FRAME.ordinal()] = now - start;
+
+        for (int p = 0; p < PHASES.length; p++) {
+            if (frameNanos[p] >= 0)
+                histograms[p].record(frameNanos[p]);
+        }
+
+        long bytes = threadAllocatedBytes();
+        if (bytes >= 0 && frameAllocationStart >= 0)
+            allocatedBytes.addAndGet(bytes - frameAllocationStart);
+
+        if (lastFrameEnd != 0) {
+            double interval = now - lastFrameEnd;
+            intervalNanos = intervalNanos == 0 ? interval : 0.9 * intervalNanos + 0.1 * interval;
+        }
+
+        lastFrameEnd = now;
+    }
+
+    /** Start timing work on any thread; 0 while disabled. */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Record the time since {@code start}, from {@link #begin}, as one sample. */
+    public void record(FramePhase phase, long start) {
+        if (start != 0)
+            histograms[phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public FrameProfile snapshot() {
+        Map<FramePhase, FrameStats> phases = new EnumMap<>(FramePhase.class);
+
+        for (int p = 0; p < PHASES.length; p++)
+            phases.put(PHASES[p], histograms[p].stats());
+
+        long frames = histograms[FramePhase.FRAME.ordinal()].count();
+        long bytes = allocatedBytes.get();
+        boolean allocation = threadAllocatedBytes() >= 0;
+        double seconds = (System.nanoTime() - resetNanos) / 1e9;
+        double interval = intervalNanos;
+        return new FrameProfile(
+                phases, interval > 0 ? 1e9 / interval : 0, starsDrawn, starsCulled,
+                !allocation ? -1 : frames > 0 ? bytes / frames : 0,
+                allocation && seconds > 0 ? bytes / seconds / 1e6 : 0
+        );
+    }
+
+    /** Write {@link #snapshot} as JSON. */
+    public void writeJson(Path file) throws IOException {
+        JSON.writeValue(file.toFile(), snapshot());
+        log.info("Wrote frame profile to {}", file.toAbsolutePath());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean
+                : null;
+    }
+
+    // -1 where the JVM does not count per-thread allocation
+    private static long threadAllocatedBytes() {
+        if (ALLOCATION == null || !ALLOCATION.isThreadAllocatedMemoryEnabled())
+            return -1;
+
+        return ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+}
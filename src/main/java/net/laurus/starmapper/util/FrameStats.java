@@ -0,0 +1,58 @@
+package net.laurus.starmapper.util;
+
+import java.util.Arrays;
+
+import lombok.Value;
+
+/**
+ * Summary of a run of frame times: count, mean and nearest-rank percentiles,
+ * all in milliseconds.
+ */
+@Value
+public class FrameStats {
+
+    int frames;
+
+    double meanMs;
+
+    double p50Ms;
+
+    double p95Ms;
+
+    double p99Ms;
+
+    double maxMs;
+
+    public static FrameStats of(long[] nanos) {
+        if (nanos.length == 0)
+            return new FrameStats(0, 0, 0, 0, 0, 0);
+
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+
+        for (long n : sorted)
+            sum += n;
+
+        return new FrameStats(
+                sorted.length, sum / sorted.length / 1e6, percentile(sorted, 50) / 1e6,
+                percentile(sorted, 95) / 1e6, percentile(sorted, 99) / 1e6,
+                sorted[sorted.length - 1] / 1e6
+        );
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /** One-line report, e.g. for logs and CI output. */
+    public String summary() {
+        return String
+                .format(
+                        "%d frames: mean %.2f, p50 %.2f, p95 %.2f, p99 %.2f, max %.2f ms",
+                        frames, meanMs, p50Ms, p95Ms, p99Ms, maxMs
+                );
+    }
+
+}
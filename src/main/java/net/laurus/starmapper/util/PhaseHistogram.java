@@ -0,0 +1,108 @@
+package net.laurus.starmapper.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Buckets are log-linear:
+ * 16 per power of two, so any value is placed within about 6% and the whole
+ * range of a long fits in under a thousand counters. Any thread may record;
+ * readers see a consistent enough picture for a HUD or a dump.
+ */
+public final class PhaseHistogram {
+
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB = 1 << SUB_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Not atomic against concurrent records, which may land either side of it. */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++)
+            counts.set(b, 0);
+
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    // Values below SUB have a bucket each; above, the top SUB_BITS + 1 bits pick one
+    static int bucket(long v) {
+        if (v < SUB)
+            return (int) v;
+
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((v >>> shift) & (SUB - 1));
+    }
+
+    // Largest value that lands in bucket b
+    static long upperBound(int b) {
+        if (b < SUB)
+            return b;
+
+        int shift = (b >>> SUB_BITS) - 1;
+        long lowest = (long) (SUB + (b & (SUB - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /** Summary in milliseconds; percentiles are bucket upper bounds, capped at the max. */
+    public FrameStats stats() {
+        long n = count.get();
+        if (n == 0)
+            return new FrameStats(0, 0, 0, 0, 0, 0);
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+            total += snapshot[b];
+        }
+
+        long top = max.get();
+        return new FrameStats(
+                (int) Math.min(Integer.MAX_VALUE, n), sum.get() / (double) n / 1e6,
+                percentile(snapshot, total, 50, top) / 1e6,
+                percentile(snapshot, total, 95, top) / 1e6,
+                percentile(snapshot, total, 99, top) / 1e6, top / 1e6
+        );
+    }
+
+    private static long percentile(long[] counts, long total, double p, long max) {
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank)
+                return Math.min(upperBound(b), max);
+        }
+
+        return max;
+    }
+
+}
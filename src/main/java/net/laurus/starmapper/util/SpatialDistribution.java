@@ -0,0 +1,15 @@
+package net.laurus.starmapper.util;
+
+/** Where {@link CatalogGenerator} places its stars. */
+public enum SpatialDistribution {
+
+    /** Evenly through a sphere around Sol, like the local bubble. */
+    UNIFORM,
+
+    /** Half in tight Gaussian clusters (about a thousand stars each), half uniform. */
+    CLUSTERED,
+
+    /** A thin disc with exponential radial and vertical falloff, like a galaxy. */
+    DISC
+
+}
@@ -1,15 +1,21 @@
 package net.laurus.starmapper.util;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.extern.slf4j.Slf4j;
+import net.laurus.starmapper.jfr.CatalogLoadEvent;
 import net.laurus.starmapper.model.Star;
 
 @Slf4j
@@ -17,11 +23,11 @@ public class StarLoader {
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
-    // Cache of loaded star lists by resource name
-    private static final Map<String, List<Star>> cache = new HashMap<>();
+    // Cache of loaded star lists by resource name or absolute path; loads may race
+    private static final Map<String, List<Star>> cache = new ConcurrentHashMap<>();
 
     // Cached Sol
-    private static Star SOL;
+    private static volatile Star SOL;
 
     /**
      * Load default star file: bubble.json
@@ -36,59 +42,100 @@ public class StarLoader {
      */
     public static List<Star> loadStars(String resourceName) {
 
-        // Return cached if available
-        if (cache.containsKey(resourceName)) {
-            return cache.get(resourceName);
-        }
-
         // Ensure resource path starts with /
-        if (!resourceName.startsWith("/")) {
-            resourceName = "/" + resourceName;
+        String key = resourceName.startsWith("/") ? resourceName : "/" + resourceName;
+        List<Star> cached = cache.get(key);
+        if (cached != null)
+            return cached;
+
+        log.info("Loading stars from resource: {}", key);
+        InputStream resource = StarLoader.class.getResourceAsStream(key);
+
+        if (resource == null) {
+            log.error("Resource '{}' not found in classpath!", key);
+            throw new RuntimeException(
+                    "Resource not found: " + key + "\nEnsure it exists in src/main/resources/"
+            );
         }
 
-        log.info("Loading stars from resource: {}", resourceName);
+        return load(resource, key);
+    }
 
-        try (InputStream is = StarLoader.class.getResourceAsStream(resourceName)) {
+    /**
+     * Load stars from a JSON file on disk. Shares the resource cache, keyed on
+     * the absolute path.
+     */
+    public static List<Star> loadStars(Path file) {
+        String key = file.toAbsolutePath().toString();
+        List<Star> cached = cache.get(key);
+        if (cached != null)
+            return cached;
 
-            if (is == null) {
-                log.error("Resource '{}' not found in classpath!", resourceName);
-                throw new RuntimeException(
-                        "Resource not found: " + resourceName
-                                + "\nEnsure it exists in src/main/resources/"
-                );
-            }
+        log.info("Loading stars from file: {}", key);
 
+        try {
+            return load(new BufferedInputStream(Files.newInputStream(file)), key);
+        }
+        catch (IOException e) {
+            log.error("Failed to open: {}", key, e);
+            throw new RuntimeException("Failed to open: " + key, e);
+        }
+
+    }
+
+    /**
+     * Parse a JSON star list from {@code in}, closing it, and cache it under
+     * {@code key}. If another thread loaded the same key meanwhile, its list
+     * wins so every caller sees one instance.
+     */
+    private static List<Star> load(InputStream in, String key) {
+        CatalogLoadEvent event = CatalogLoadEvent.start(key);
+
+        try (CountingInputStream is = new CountingInputStream(in)) {
             List<Star> stars = mapper.readValue(is, new TypeReference<List<Star>>() {
             });
-            log.info("Loaded {} stars from {}", stars.size(), resourceName);
+            event.finish(is.count, stars.size());
+            log.info("Loaded {} stars from {}", stars.size(), key);
 
-            // Cache loaded stars
-            cache.put(resourceName, stars);
-
-            // Cache Sol
-            SOL = stars.stream().filter(s -> s.getId() == 0).findFirst().orElse(new Star());
+            List<Star> previous = cache.putIfAbsent(key, stars);
+            if (previous != null)
+                return previous;
 
+            SOL = findSol(stars);
             return stars;
-
         }
         catch (Exception e) {
-            log.error("Failed to load JSON: {}", resourceName, e);
-            throw new RuntimeException("Failed to load JSON: " + resourceName, e);
+            log.error("Failed to load JSON: {}", key, e);
+            throw new RuntimeException("Failed to load JSON: " + key, e);
         }
 
     }
 
+    private static Star findSol(List<Star> stars) {
+        return stars.stream().filter(s -> s.getId() == 0).findFirst().orElse(new Star());
+    }
+
+    /**
+     * Load stars from {@code location}: a file path if one exists there,
+     * otherwise a classpath resource name.
+     */
+    public static List<Star> loadStarsFrom(String location) {
+        Path file = Path.of(location);
+        return Files.isRegularFile(file) ? loadStars(file) : loadStars(location);
+    }
+
     /**
      * Get cached Sol star. If not already loaded, will attempt to load default
      * stars first.
      */
     public static Star getSol() {
-        if (SOL != null)
-            return SOL;
+        Star sol = SOL;
+        if (sol != null)
+            return sol;
 
-        List<Star> stars = loadStars();
-        SOL = stars.stream().filter(s -> s.getId() == 0).findFirst().orElse(new Star());
-        return SOL;
+        sol = findSol(loadStars());
+        SOL = sol;
+        return sol;
     }
 
     /**
@@ -106,4 +153,38 @@ public class StarLoader {
         return cache.getOrDefault(resourceName, Collections.emptyList());
     }
 
+    // Bytes read so far, for the load event
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+    }
+
 }